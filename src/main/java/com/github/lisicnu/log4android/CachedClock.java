@@ -0,0 +1,99 @@
+package com.github.lisicnu.log4android;
+
+/**
+ * A <code>Clock</code> that returns a cached wall clock time and a cached
+ * monotonic time, both updated by a daemon thread at a fixed resolution.
+ * Reading the clock is a volatile read instead of a system call, which pays
+ * off when thousands of lines are logged per second. The time of an event
+ * may be up to one resolution behind the system time.
+ * <p/>
+ * The ticker thread runs until {@link #stop()} is called.
+ */
+public final class CachedClock implements Clock {
+    private static final String TAG = CachedClock.class.getSimpleName();
+
+    public static final long DEFAULT_RESOLUTION = 1;
+
+    private final long resolution;
+
+    private volatile long millis = System.currentTimeMillis();
+
+    private volatile long nanos = System.nanoTime();
+
+    private volatile boolean running = true;
+
+    private final Thread ticker;
+
+    /**
+     * Create a <code>CachedClock</code> with the default resolution of one
+     * millisecond.
+     */
+    public CachedClock() {
+        this(DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * Create a <code>CachedClock</code> and start its ticker thread.
+     *
+     * @param resolution the time between two updates of the cached time, in
+     *                   milliseconds.
+     * @throws IllegalArgumentException if the <code>resolution</code> is less than 1.
+     */
+    public CachedClock(long resolution) throws IllegalArgumentException {
+        if (resolution < 1) {
+            throw new IllegalArgumentException("The resolution must be at least 1 ms.");
+        }
+        this.resolution = resolution;
+
+        ticker = new Thread(new Runnable() {
+            public void run() {
+                tick();
+            }
+        }, "Log4Android-" + TAG);
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private void tick() {
+        while (running) {
+            millis = System.currentTimeMillis();
+            nanos = System.nanoTime();
+            try {
+                Thread.sleep(resolution);
+            } catch (InterruptedException e) {
+                // Checked by the loop condition.
+            }
+        }
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.Clock#currentTimeMillis()
+     */
+    public long currentTimeMillis() {
+        return millis;
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.Clock#nanoTime()
+     */
+    public long nanoTime() {
+        return nanos;
+    }
+
+    /**
+     * Get the time between two updates of the cached time.
+     *
+     * @return the resolution in milliseconds.
+     */
+    public long getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Stop the ticker thread. The clock keeps returning the last cached time.
+     */
+    public void stop() {
+        running = false;
+        ticker.interrupt();
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.lisicnu.log4android;
+
+/**
+ * The source of the time of the logging events. For every event the wall
+ * clock time and the monotonic time, from which the time since the first
+ * logging is computed, are read once, and kept in the <code>LogEvent</code>.
+ *
+ * @see Logger#setClock(Clock)
+ */
+public interface Clock {
+
+    /**
+     * Get the current time.
+     *
+     * @return the time in milliseconds since January 1, 1970 UTC.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Get the current value of the monotonic time source, like
+     * <code>System.nanoTime()</code>. Only the difference of two values has a
+     * meaning.
+     *
+     * @return the monotonic time in nanoseconds.
+     */
+    long nanoTime();
+}
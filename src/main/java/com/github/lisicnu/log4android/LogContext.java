@@ -0,0 +1,95 @@
+package com.github.lisicnu.log4android;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Context data of the current thread that is added to every logging event,
+ * similar to the <code>MDC</code> of Log4j, e.g. a request or a session id.
+ * <p/>
+ * The data of a thread is kept as an unmodifiable map that is replaced on
+ * every change, so a <code>LogEvent</code> only keeps a reference to the map
+ * that was current when it was created.
+ */
+public final class LogContext {
+
+    private static final Map<String, String> EMPTY_CONTEXT = Collections.emptyMap();
+
+    private static final ThreadLocal<Map<String, String>> context = new ThreadLocal<Map<String, String>>() {
+        @Override
+        protected Map<String, String> initialValue() {
+            return EMPTY_CONTEXT;
+        }
+    };
+
+    private LogContext() {
+    }
+
+    /**
+     * Put a value in the context of the current thread.
+     *
+     * @param key   the key.
+     * @param value the value, <code>null</code> removes the key.
+     * @throws IllegalArgumentException if the <code>key</code> is <code>null</code>.
+     */
+    public static void put(String key, String value) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("The key must not be null.");
+        }
+        if (value == null) {
+            remove(key);
+            return;
+        }
+
+        Map<String, String> updated = new HashMap<String, String>(context.get());
+        updated.put(key, value);
+        context.set(Collections.unmodifiableMap(updated));
+    }
+
+    /**
+     * Get a value from the context of the current thread.
+     *
+     * @param key the key.
+     * @return the value or <code>null</code> if there is none.
+     */
+    public static String get(String key) {
+        return context.get().get(key);
+    }
+
+    /**
+     * Remove a value from the context of the current thread.
+     *
+     * @param key the key.
+     */
+    public static void remove(String key) {
+        Map<String, String> current = context.get();
+        if (!current.containsKey(key)) {
+            return;
+        }
+
+        if (current.size() == 1) {
+            context.set(EMPTY_CONTEXT);
+        } else {
+            Map<String, String> updated = new HashMap<String, String>(current);
+            updated.remove(key);
+            context.set(Collections.unmodifiableMap(updated));
+        }
+    }
+
+    /**
+     * Remove all the values from the context of the current thread.
+     */
+    public static void clear() {
+        context.set(EMPTY_CONTEXT);
+    }
+
+    /**
+     * Get the context of the current thread.
+     *
+     * @return an unmodifiable snapshot of the context.
+     */
+    public static Map<String, String> getContext() {
+        return context.get();
+    }
+}
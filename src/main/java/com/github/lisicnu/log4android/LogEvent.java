@@ -0,0 +1,301 @@
+package com.github.lisicnu.log4android;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A single logging event. Everything that describes the event, i.e. the wall
+ * clock time, the thread name, the sequence number and the data of the
+ * {@link LogContext}, is captured once when the event is created, so it can
+ * be formatted later or on another thread with the same result.
+ * <p/>
+ * Events are recycled. An event is obtained with
+ * {@link #obtain(String, String, long, Level, Object, Throwable)} and given
+ * back with {@link #release()}. An <code>Appender</code> that keeps the event
+ * after <code>append</code> returns must call {@link #retain()} first and
+ * {@link #release()} when it is done with it. A released event must not be
+ * used anymore.
+ * <p/>
+ * Every thread has a pool of its own, so obtaining and releasing an event
+ * takes no lock. An event that is released by another thread, e.g. the
+ * thread of an <code>AsyncAppender</code>, is pushed onto a lock-free list
+ * of the thread that created it, which takes the events back when its own
+ * pool is empty.
+ */
+public final class LogEvent {
+
+    private static final int MAX_POOL_SIZE = 64;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * The free events of a thread. Only the owner takes events from the pool,
+     * the other threads only push onto <code>returned</code>, so the list has
+     * a single consumer and needs no protection from ABA.
+     */
+    private static final class Pool {
+        final Thread owner = Thread.currentThread();
+        final LogEvent[] free = new LogEvent[MAX_POOL_SIZE];
+        int size;
+        final AtomicReference<LogEvent> returned = new AtomicReference<LogEvent>();
+
+        LogEvent take() {
+            if (size > 0) {
+                LogEvent event = free[--size];
+                free[size] = null;
+                return event;
+            }
+
+            // Only this thread pops, so the head cannot be popped and pushed
+            // again between the read and the compare-and-set.
+            while (true) {
+                LogEvent event = returned.get();
+                if (event == null) {
+                    return new LogEvent(this);
+                }
+                if (returned.compareAndSet(event, event.next)) {
+                    event.next = null;
+                    return event;
+                }
+            }
+        }
+
+        void give(LogEvent event) {
+            if (Thread.currentThread() == owner) {
+                if (size < MAX_POOL_SIZE) {
+                    free[size++] = event;
+                }
+                return;
+            }
+
+            while (true) {
+                LogEvent head = returned.get();
+                event.next = head;
+                if (returned.compareAndSet(head, event)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final ThreadLocal<Pool> pools = new ThreadLocal<Pool>() {
+        @Override
+        protected Pool initialValue() {
+            return new Pool();
+        }
+    };
+
+    private static final AtomicLong sequenceCounter = new AtomicLong();
+
+    private final AtomicInteger references = new AtomicInteger();
+
+    /**
+     * The pool of the thread that created this event.
+     */
+    private final Pool pool;
+
+    /**
+     * The next free event while this event is on the returned list of its
+     * pool.
+     */
+    private LogEvent next;
+
+    private String clientID;
+    private String name;
+    private long timeNanos;
+    private long timeMillis;
+    private Level level;
+    private Object message;
+    private Throwable throwable;
+    private String threadName;
+    private long sequence;
+    private Map<String, String> contextData;
+
+    private LogEvent(Pool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Get an event from the pool of the current thread, or create one if the
+     * pool is empty, and capture the time of the <code>Logger</code> clock,
+     * the name of the current thread and the context data of the current
+     * thread. The caller owns one reference to the event.
+     *
+     * @param clientID the id of the client.
+     * @param name     the name of the logger.
+     * @param time     the time since the first logging has done (in milliseconds).
+     * @param level    the logging level.
+     * @param message  the message to log.
+     * @param t        the exception to log.
+     * @return the event.
+     * @see Logger#getClock()
+     */
+    public static LogEvent obtain(String clientID, String name, long time, Level level,
+                                  Object message, Throwable t) {
+        return obtain(clientID, name, time * NANOS_PER_MILLI,
+                Logger.getClock().currentTimeMillis(), level, message, t);
+    }
+
+    /**
+     * Get an event from the pool of the current thread, or create one if the
+     * pool is empty, for an event that happened at the specified time. The
+     * name of the current thread and the context data of the current thread
+     * are captured. The caller owns one reference to the event.
+     *
+     * @param clientID   the id of the client.
+     * @param name       the name of the logger.
+     * @param timeNanos  the time since the first logging has done (in nanoseconds).
+     * @param timeMillis the wall clock time of the event.
+     * @param level      the logging level.
+     * @param message    the message to log.
+     * @param t          the exception to log.
+     * @return the event.
+     */
+    public static LogEvent obtain(String clientID, String name, long timeNanos,
+                                  long timeMillis, Level level, Object message, Throwable t) {
+        LogEvent event = pools.get().take();
+
+        event.references.set(1);
+        event.clientID = clientID;
+        event.name = name;
+        event.timeNanos = timeNanos;
+        event.timeMillis = timeMillis;
+        event.level = level;
+        event.message = message;
+        event.throwable = t;
+        event.threadName = Thread.currentThread().getName();
+        event.sequence = sequenceCounter.incrementAndGet();
+        event.contextData = LogContext.getContext();
+
+        return event;
+    }
+
+    /**
+     * Add a reference to the event, so it is not recycled before
+     * {@link #release()} is called once more.
+     *
+     * @return this event.
+     */
+    public LogEvent retain() {
+        references.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * Give up a reference to the event. The event is returned to the pool of
+     * the thread that created it when the last reference is released.
+     *
+     * @throws IllegalStateException if the event has already been released.
+     */
+    public void release() throws IllegalStateException {
+        int remaining = references.decrementAndGet();
+        if (remaining > 0) {
+            return;
+        }
+        if (remaining < 0) {
+            references.set(0);
+            throw new IllegalStateException("The event has already been released.");
+        }
+
+        clientID = null;
+        name = null;
+        level = null;
+        message = null;
+        throwable = null;
+        threadName = null;
+        contextData = null;
+
+        pool.give(this);
+    }
+
+    public String getClientID() {
+        return clientID;
+    }
+
+    /**
+     * Get the name of the logger.
+     *
+     * @return the name of the logger.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the time since the first logging has done.
+     *
+     * @return the relative time in milliseconds.
+     */
+    public long getTime() {
+        return timeNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Get the time since the first logging has done, with nanosecond
+     * precision.
+     *
+     * @return the relative time in nanoseconds.
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * Get the wall clock time of the event.
+     *
+     * @return the time in milliseconds since January 1, 1970 UTC.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public Object getMessage() {
+        return message;
+    }
+
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /**
+     * Get the name of the thread that created the event.
+     *
+     * @return the thread name.
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * Get the sequence number of the event. The number is increased for
+     * every event, so it gives the order in which the events were created.
+     *
+     * @return the sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the context data of the thread that created the event.
+     *
+     * @return an unmodifiable map, never <code>null</code> for a live event.
+     * @see LogContext
+     */
+    public Map<String, String> getContextData() {
+        return contextData;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        return "LogEvent[" + sequence + ' ' + level + ' ' + name + ' ' + message + ']';
+    }
+}
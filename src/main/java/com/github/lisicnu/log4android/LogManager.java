@@ -26,6 +26,8 @@ public final class LogManager {
 
     static Logger logger;
 
+    private static volatile String clientId;
+
     public static void logMemoryInfo() {
 
         Log.i("Memory Max=" + Runtime.getRuntime().maxMemory() / 1024f / 1024, "Total/Free= "
@@ -52,8 +54,34 @@ public final class LogManager {
     }
 
     static void setClientId(Context context) {
-        if (logger != null && context != null)
-            logger.setClientID(context.getPackageName());
+        if (logger != null && context != null) {
+            clientId = context.getPackageName();
+            logger.setClientID(clientId);
+        }
+    }
+
+    /**
+     * Get the logger of the tag. Every tag has its own logger in the
+     * repository, named after the tag, so the level can be set per tag, e.g.
+     * with <code>microlog.logger.MyTag=WARN</code>. The logger is looked up
+     * in the repository on every call, which is a single map lookup, so a
+     * logger that was evicted or replaced by a reset is never used again.
+     *
+     * @param tag the tag, <code>null</code> gives the root logger.
+     * @return the logger of the tag.
+     */
+    public static Logger getLogger(String tag) {
+        if (tag == null) {
+            return logger;
+        }
+
+        Logger tagLogger = LoggerFactory.getLogger(tag);
+        String currentClientId = clientId;
+        if (currentClientId != null && !currentClientId.equals(tagLogger.getClientID())) {
+            tagLogger.setClientID(currentClientId);
+        }
+
+        return tagLogger;
     }
 
     public static void init(Context context, int resID) {
@@ -103,34 +131,37 @@ public final class LogManager {
         if (msg == null)
             return;
 
-        if (logger != null) {
-            Throwable p = null;
-            String t = tag;
-            if (msg instanceof Throwable) {
-                p = (Throwable) msg;
-            } else {
-                t = tag.concat("   ").concat(msg.toString());
-            }
-            switch (level) {
-                case Log.DEBUG:
-                    logger.debug(t, p);
-                    break;
-                case Log.ERROR:
-                    logger.error(t, p);
-                    break;
-                case Log.WARN:
-                    logger.warn(t, p);
-                    break;
-                case Log.ASSERT:
-                    logger.fatal(t, p);
-                    break;
-                case Log.VERBOSE:
-                    logger.debug(t, p);
-                    break;
-                default:
-                    logger.info(t, p);
-                    break;
-            }
+        Logger tagLogger = getLogger(tag);
+        if (tagLogger == null)
+            return;
+
+        Level logLevel;
+        switch (level) {
+            case Log.DEBUG:
+            case Log.VERBOSE:
+                logLevel = Level.DEBUG;
+                break;
+            case Log.ERROR:
+                logLevel = Level.ERROR;
+                break;
+            case Log.WARN:
+                logLevel = Level.WARN;
+                break;
+            case Log.ASSERT:
+                logLevel = Level.FATAL;
+                break;
+            default:
+                logLevel = Level.INFO;
+                break;
+        }
+
+        if (!tagLogger.isEnabled(logLevel))
+            return;
+
+        if (msg instanceof Throwable) {
+            tagLogger.log(logLevel, tag, (Throwable) msg);
+        } else {
+            tagLogger.log(logLevel, msg, null);
         }
     }
 
@@ -16,14 +16,18 @@ package com.github.lisicnu.log4android;
 
 import android.util.Log;
 
+import com.github.lisicnu.log4android.appender.AbstractAppender;
 import com.github.lisicnu.log4android.appender.Appender;
+import com.github.lisicnu.log4android.appender.AsyncAppender;
+import com.github.lisicnu.log4android.appender.DuplicateSuppressingAppender;
+import com.github.lisicnu.log4android.appender.ExceptionAggregatingAppender;
 import com.github.lisicnu.log4android.factory.DefaultAppenderFactory;
+import com.github.lisicnu.log4android.filter.Filter;
+import com.github.lisicnu.log4android.filter.FilterChain;
+import com.github.lisicnu.log4android.format.ParameterizedMessage;
 import com.github.lisicnu.log4android.repository.CommonLoggerRepository;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.ListIterator;
-import java.util.Vector;
 
 /**
  * The <code>Logger</code> class is used for logging.
@@ -44,13 +48,84 @@ public final class Logger {
     public static final String DEFAULT_CLIENT_ID = "Microlog";
     private String clientID = DEFAULT_CLIENT_ID;
     private static final String TAG = Logger.class.getSimpleName();
-    private static final StopWatch stopWatch = new StopWatch();
-    private final static List<Appender> appenderList = new Vector<Appender>(4);
+    /**
+     * Measures the relative time of the events with the clock of the events.
+     * It is replaced by a new one when the logging starts again or the clock
+     * is changed, so reading it needs no locking. The clock of an event is
+     * always taken from the <code>StopWatch</code>, so both times of the
+     * event come from the same clock.
+     */
+    private static volatile StopWatch stopWatch = new StopWatch(SystemTimeClock.INSTANCE);
+    private static final Object clockLock = new Object();
+    private static final Appender[] NO_APPENDERS = new Appender[0];
+    /**
+     * The appenders shared by all loggers. The array is never modified, it is
+     * replaced by a new copy under <code>appenderLock</code> whenever an
+     * appender is added or removed. This way the logging itself only reads the
+     * volatile reference and needs no locking.
+     */
+    private static volatile Appender[] appenders = NO_APPENDERS;
+    private static final Object appenderLock = new Object();
+    /**
+     * The threshold used for <code>Level.OFF</code>, above all other levels.
+     */
+    private static final int OFF_THRESHOLD = 32;
+    private static final int THRESHOLD_BITS = 6;
+    private static final int THRESHOLD_MASK = (1 << THRESHOLD_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << 25) - 1;
+    /**
+     * The lowest level value enabled for any logger. Anything below it is
+     * rejected with this single read, before the level of the logger itself
+     * is looked at.
+     */
+    private static volatile int lowestEnabledLevel = Level.TRACE_INT;
+    /**
+     * The lowest level set on a logger that does not belong to a repository.
+     */
+    private static int unmanagedLowestLevel = Integer.MAX_VALUE;
+    private static final Object lowestLevelLock = new Object();
     private static boolean firstLogEvent = true;
     private CommonLoggerRepository commonLoggerRepository = null;
     private String name;
     private Level level;
     private boolean addDefaultLogger = true;
+    /**
+     * The resolved effective level threshold in the low bits, and the level
+     * generation of the repository it was resolved in above them. A single
+     * int is used so the pair is always read and written consistently.
+     */
+    private int levelCache = -1;
+    /**
+     * The filters of this logger, replaced by a new chain on every change.
+     */
+    private volatile FilterChain filterChain = FilterChain.EMPTY;
+    /**
+     * The rate limiter set on this logger, <code>null</code> if it uses the
+     * one of its parent.
+     */
+    private volatile RateLimiter rateLimiter;
+    /**
+     * The sampler set on this logger, <code>null</code> if it uses the one of
+     * its parent.
+     */
+    private volatile Sampler sampler;
+    /**
+     * The rate limiters of this logger and its parents, the inherited
+     * sampler, and the level generation they were resolved in.
+     */
+    private InheritedCache inheritedCache;
+
+    private static final class InheritedCache {
+        final int generation;
+        final RateLimiter[] limiters;
+        final Sampler sampler;
+
+        InheritedCache(int generation, RateLimiter[] limiters, Sampler sampler) {
+            this.generation = generation;
+            this.limiters = limiters;
+            this.sampler = sampler;
+        }
+    }
 
     /**
      * Create a logger with the specified <code>name</code>. The
@@ -70,6 +145,9 @@ public final class Logger {
 
     public synchronized void setCommonRepository(final CommonLoggerRepository commonLoggerRepository) {
         this.commonLoggerRepository = commonLoggerRepository;
+        levelCache = -1;
+        inheritedCache = null;
+        updateLowestEnabledLevel(commonLoggerRepository, level);
     }
 
     public boolean isAddDefaultLogger() {
@@ -100,6 +178,33 @@ public final class Logger {
             throw new IllegalArgumentException("The level must not be null.");
         }
         this.level = level;
+        levelCache = -1;
+
+        CommonLoggerRepository repository = commonLoggerRepository;
+        if (repository != null) {
+            repository.loggerConfigured(this);
+            repository.levelChanged();
+        }
+        updateLowestEnabledLevel(repository, level);
+    }
+
+    /**
+     * Update the lowest enabled level after the level of a logger has been
+     * changed. The repository knows the levels of its loggers, a logger
+     * without a repository can only lower the value.
+     */
+    private static void updateLowestEnabledLevel(CommonLoggerRepository repository, Level level) {
+        synchronized (lowestLevelLock) {
+            if (repository == null) {
+                if (level != null && level != Level.OFF) {
+                    unmanagedLowestLevel = Math.min(unmanagedLowestLevel, level.toInt());
+                }
+                lowestEnabledLevel = Math.min(lowestEnabledLevel, unmanagedLowestLevel);
+            } else {
+                lowestEnabledLevel = Math.min(repository.getLowestEnabledLevel(),
+                        unmanagedLowestLevel);
+            }
+        }
     }
 
     /**
@@ -122,6 +227,75 @@ public final class Logger {
         return effectiveLevel;
     }
 
+    /**
+     * Get the threshold of the effective level, i.e. the lowest level value
+     * that is logged. The threshold is cached until the level generation of
+     * the repository changes, so checking a disabled level does not need any
+     * lookup in the repository.
+     *
+     * @return the threshold of the effective level.
+     */
+    private int getThreshold() {
+        CommonLoggerRepository repository = commonLoggerRepository;
+        if (repository == null) {
+            return toThreshold(getEffectiveLevel());
+        }
+
+        int generation = repository.getLevelGeneration() & GENERATION_MASK;
+        int cache = levelCache;
+        if ((cache >>> THRESHOLD_BITS) == generation) {
+            return cache & THRESHOLD_MASK;
+        }
+
+        int threshold = toThreshold(getEffectiveLevel());
+        levelCache = (generation << THRESHOLD_BITS) | threshold;
+        return threshold;
+    }
+
+    private static int toThreshold(Level level) {
+        if (level == null) {
+            level = DEFAULT_LOG_LEVEL;
+        }
+        return level == Level.OFF ? OFF_THRESHOLD : level.toInt();
+    }
+
+    /**
+     * Get the clock that gives the time of the logging events.
+     *
+     * @return the clock in use.
+     */
+    public static Clock getClock() {
+        return stopWatch.getClock();
+    }
+
+    /**
+     * Set the clock that gives the time of the logging events, e.g. a
+     * <code>CachedClock</code>. The clock is shared by all loggers. Both the
+     * wall clock time and the relative time of an event are taken from it.
+     * The relative time goes on from where it was with the old clock, since
+     * the monotonic times of two clocks need not have the same origin.
+     *
+     * @param clock the clock to use.
+     * @throws IllegalArgumentException if the <code>clock</code> is <code>null</code>.
+     */
+    public static void setClock(Clock clock) throws IllegalArgumentException {
+        if (clock == null) {
+            throw new IllegalArgumentException("The clock must not be null.");
+        }
+        synchronized (clockLock) {
+            stopWatch = new StopWatch(clock, stopWatch.getCurrentTimeNanos());
+        }
+    }
+
+    /**
+     * Restart the relative time of the events with the current clock.
+     */
+    private static void restartStopWatch() {
+        synchronized (clockLock) {
+            stopWatch = new StopWatch(stopWatch.getClock());
+        }
+    }
+
     /**
      * Get the client ID.
      *
@@ -159,16 +333,43 @@ public final class Logger {
      * @param appender the <code>Appender</code> to add.
      * @throws IllegalArgumentException if the <code>appender</code> is <code>null</code>.
      */
-    synchronized public void addAppender(Appender appender) throws IllegalArgumentException {
+    public void addAppender(Appender appender) throws IllegalArgumentException {
         if (appender == null) {
             throw new IllegalArgumentException("Appender not allowed to be null");
         }
 
-        for (Appender p : appenderList) {
-            if (p.getClass() == appender.getClass())
-                return;
+        synchronized (appenderLock) {
+            Appender[] current = appenders;
+            for (Appender p : current) {
+                if (appenderClass(p) == appenderClass(appender))
+                    return;
+            }
+
+            Appender[] updated = new Appender[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = appender;
+            appenders = updated;
+        }
+    }
+
+    /**
+     * Get the class of the appender that does the actual logging, i.e. the
+     * wrapped appender of an <code>AsyncAppender</code>, a
+     * <code>DuplicateSuppressingAppender</code> or an
+     * <code>ExceptionAggregatingAppender</code>.
+     */
+    private static Class<?> appenderClass(Appender appender) {
+        while (true) {
+            if (appender instanceof AsyncAppender) {
+                appender = ((AsyncAppender) appender).getAppender();
+            } else if (appender instanceof DuplicateSuppressingAppender) {
+                appender = ((DuplicateSuppressingAppender) appender).getAppender();
+            } else if (appender instanceof ExceptionAggregatingAppender) {
+                appender = ((ExceptionAggregatingAppender) appender).getAppender();
+            } else {
+                return appender.getClass();
+            }
         }
-        appenderList.add(appender);
     }
 
     /**
@@ -188,17 +389,33 @@ public final class Logger {
                 Log.e(TAG, "Failed to close appender. " + e);
             }
         }
-        appenderList.remove(appender);
+
+        synchronized (appenderLock) {
+            Appender[] current = appenders;
+            for (int index = 0; index < current.length; index++) {
+                if (current[index].equals(appender)) {
+                    Appender[] updated = new Appender[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, index);
+                    System.arraycopy(current, index + 1, updated, index, updated.length - index);
+                    appenders = updated;
+                    break;
+                }
+            }
+        }
     }
 
     /**
      * Remove all the appenders.
      */
     public void removeAllAppenders() {
-        ListIterator<Appender> ite = appenderList.listIterator();
-        while (ite.hasNext()) {
-            Appender appender = ite.next();
-            if (appender != null && appender.isLogOpen()) {
+        Appender[] removed;
+        synchronized (appenderLock) {
+            removed = appenders;
+            appenders = NO_APPENDERS;
+        }
+
+        for (Appender appender : removed) {
+            if (appender.isLogOpen()) {
                 try {
                     appender.close();
                 } catch (IOException e) {
@@ -206,7 +423,186 @@ public final class Logger {
                 }
             }
         }
-        appenderList.clear();
+    }
+
+    /**
+     * Add a filter to this logger. The filters are asked after the level
+     * check and before the event is passed to the appenders, in the order
+     * they were added.
+     *
+     * @param filter the <code>Filter</code> to add.
+     * @throws IllegalArgumentException if the <code>filter</code> is <code>null</code>.
+     */
+    public void addFilter(Filter filter) throws IllegalArgumentException {
+        synchronized (this) {
+            filterChain = filterChain.add(filter);
+        }
+
+        CommonLoggerRepository repository = commonLoggerRepository;
+        if (repository != null) {
+            repository.loggerConfigured(this);
+        }
+    }
+
+    /**
+     * Remove a filter from this logger.
+     *
+     * @param filter the <code>Filter</code> to remove.
+     */
+    public synchronized void removeFilter(Filter filter) {
+        filterChain = filterChain.remove(filter);
+    }
+
+    /**
+     * Remove all the filters of this logger.
+     */
+    public synchronized void clearFilters() {
+        filterChain = FilterChain.EMPTY;
+    }
+
+    /**
+     * Get the filters of this logger.
+     *
+     * @return the filter chain.
+     */
+    public FilterChain getFilterChain() {
+        return filterChain;
+    }
+
+    /**
+     * Set the rate limiter of this logger. The limiter is shared by this
+     * logger and all the loggers below it. A logger below it that has a
+     * limiter of its own is limited by both.
+     *
+     * @param rateLimiter the <code>RateLimiter</code>, or <code>null</code> to
+     *                    use the one of the parent.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        inheritedCache = null;
+
+        CommonLoggerRepository repository = commonLoggerRepository;
+        if (repository != null) {
+            repository.loggerConfigured(this);
+            repository.levelChanged();
+        }
+    }
+
+    /**
+     * Get the rate limiter set on this logger.
+     *
+     * @return the <code>RateLimiter</code>, or <code>null</code> if none is set.
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Get the rate limiter of this logger or of its closest parent that has
+     * one.
+     *
+     * @return the effective <code>RateLimiter</code>, or <code>null</code> if
+     * the logger is not limited.
+     */
+    public RateLimiter getEffectiveRateLimiter() {
+        RateLimiter limiter = rateLimiter;
+        if (limiter != null) {
+            return limiter;
+        }
+        InheritedCache cache = getInheritedCache();
+        return cache != null && cache.limiters.length > 0 ? cache.limiters[0] : null;
+    }
+
+    /**
+     * Take a token from the rate limiter of this logger and from those of
+     * all its parents.
+     *
+     * @return <code>true</code> if one of the limiters throttled the event.
+     */
+    private boolean isRateLimited(int levelValue, long nanoTime) {
+        RateLimiter own = rateLimiter;
+        if (own != null && !own.tryAcquire(levelValue, nanoTime)) {
+            return true;
+        }
+
+        InheritedCache cache = getInheritedCache();
+        if (cache == null) {
+            return false;
+        }
+
+        RateLimiter[] limiters = cache.limiters;
+        for (int index = 0; index < limiters.length; index++) {
+            // The own limiter is in the array if this logger is in the repository.
+            if (limiters[index] != own && !limiters[index].tryAcquire(levelValue, nanoTime)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Set the sampler of this logger. The sampler is shared by this logger
+     * and all the loggers below it that have no sampler of their own.
+     *
+     * @param sampler the <code>Sampler</code>, or <code>null</code> to use
+     *                the one of the parent.
+     */
+    public void setSampler(Sampler sampler) {
+        this.sampler = sampler;
+        inheritedCache = null;
+
+        CommonLoggerRepository repository = commonLoggerRepository;
+        if (repository != null) {
+            repository.loggerConfigured(this);
+            repository.levelChanged();
+        }
+    }
+
+    /**
+     * Get the sampler set on this logger.
+     *
+     * @return the <code>Sampler</code>, or <code>null</code> if none is set.
+     */
+    public Sampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * Get the sampler of this logger or of its closest parent that has one.
+     *
+     * @return the effective <code>Sampler</code>, or <code>null</code> if all
+     * the events are kept.
+     */
+    public Sampler getEffectiveSampler() {
+        Sampler current = sampler;
+        if (current != null) {
+            return current;
+        }
+        InheritedCache cache = getInheritedCache();
+        return cache != null ? cache.sampler : null;
+    }
+
+    /**
+     * Get the rate limiters of this logger and its parents and the sampler
+     * of the closest parent that has one. They are cached until the level generation of the repository
+     * changes.
+     *
+     * @return the cache, or <code>null</code> if the logger has no parents.
+     */
+    private InheritedCache getInheritedCache() {
+        CommonLoggerRepository repository = commonLoggerRepository;
+        if (repository == null || name.equals("")) {
+            return null;
+        }
+
+        int generation = repository.getLevelGeneration();
+        InheritedCache cache = inheritedCache;
+        if (cache == null || cache.generation != generation) {
+            cache = new InheritedCache(generation, repository.getRateLimiters(name),
+                    repository.getEffectiveSampler(name));
+            inheritedCache = cache;
+        }
+        return cache;
     }
 
     /**
@@ -215,7 +611,7 @@ public final class Logger {
      * @return the number of appenders.
      */
     public int getNumberOfAppenders() {
-        return appenderList.size();
+        return appenders.length;
     }
 
     /**
@@ -225,9 +621,10 @@ public final class Logger {
      * @return the appender.
      */
     public Appender getAppender(int index) {
-        if (index < 0 || index >= appenderList.size())
+        Appender[] current = appenders;
+        if (index < 0 || index >= current.length)
             return null;
-        return appenderList.get(index);
+        return current[index];
     }
 
     /**
@@ -254,7 +651,9 @@ public final class Logger {
             throw new IllegalArgumentException("The level must not be null.");
         }
 
-        if (getEffectiveLevel().toInt() <= level.toInt() && level.toInt() > Level.OFF_INT) {
+        int levelValue = level.toInt();
+        if (levelValue >= lowestEnabledLevel && getThreshold() <= levelValue
+                && levelValue > Level.OFF_INT) {
 
             if (firstLogEvent == true) {
                 addDefaultAppender();
@@ -265,20 +664,68 @@ public final class Logger {
                     Log.e(TAG, "Failed to open the log. " + e);
                 }
 
-                stopWatch.start();
+                restartStopWatch();
                 firstLogEvent = false;
             }
-            ListIterator<Appender> ite = appenderList.listIterator();
-            while (ite.hasNext()) {
-                Appender appender = ite.next();
-                if (appender != null)
-                    appender.doLog(clientID, name, stopWatch.getCurrentTime(), level, message, t);
+            Appender[] current = appenders;
+            if (current.length == 0) {
+                return;
+            }
+            Sampler currentSampler = getEffectiveSampler();
+            if (currentSampler != null && !currentSampler.isSampled(levelValue)) {
+                return;
             }
+
+            StopWatch currentWatch = stopWatch;
+            Clock currentClock = currentWatch.getClock();
+            long nanoTime = currentClock.nanoTime();
+            LogEvent event = LogEvent.obtain(clientID, name, currentWatch.getTimeNanos(nanoTime),
+                    currentClock.currentTimeMillis(), level, message, t);
+            try {
+                if (filterChain.isDenied(event)) {
+                    return;
+                }
+                if (isRateLimited(levelValue, nanoTime)) {
+                    return;
+                }
+                for (int index = 0; index < current.length; index++) {
+                    AbstractAppender.dispatch(current[index], event);
+                }
+            } finally {
+                event.release();
+            }
+        }
+    }
+
+    private void log(Level level, ParameterizedMessage message) {
+        log(level, message, message.getThrowable());
+    }
+
+    /**
+     * Check if the level with the specified value is enabled.
+     */
+    private boolean isEnabledFor(int levelValue) {
+        return levelValue >= lowestEnabledLevel && getThreshold() <= levelValue;
+    }
+
+    /**
+     * Check if the specified level is enabled for this <code>Logger</code>.
+     * This can be used to guard an expensive construction of a message.
+     *
+     * @param level the level to check.
+     * @return true if a message at the level would be logged.
+     * @throws IllegalArgumentException if the <code>level</code> is <code>null</code>.
+     */
+    public boolean isEnabled(Level level) throws IllegalArgumentException {
+        if (level == null) {
+            throw new IllegalArgumentException("The level must not be null.");
         }
+        int levelValue = level.toInt();
+        return levelValue > Level.OFF_INT && isEnabledFor(levelValue);
     }
 
     private void addDefaultAppender() {
-        if (appenderList.size() == 0) {
+        if (appenders.length == 0) {
             Log.w(TAG, "Warning! No appender is set, using LogCatAppender with PatternFormatter " +
                     "or not =" + isAddDefaultLogger());
             if (isAddDefaultLogger()) {
@@ -294,8 +741,7 @@ public final class Logger {
      * @return true if logging is enabled.
      */
     public boolean isTraceEnabled() {
-        Level effectiveLevel = getEffectiveLevel();
-        return effectiveLevel.toInt() <= Level.TRACE_INT;
+        return isEnabledFor(Level.TRACE_INT);
     }
 
     /**
@@ -318,14 +764,65 @@ public final class Logger {
         log(Level.TRACE, message, t);
     }
 
+    /**
+     * Log the specified message and <code>Throwable</code> object at
+     * <code>Level.TRACE</code> level. The message is not treated as a pattern.
+     *
+     * @param message the message to log.
+     * @param t       the <code>Throwable</code> to log.
+     */
+    public void trace(String message, Throwable t) {
+        log(Level.TRACE, message, t);
+    }
+
+    /**
+     * Log the message at <code>Level.TRACE</code> level, replacing the <code>{}</code>
+     * placeholder with the argument. The message is only formatted if the
+     * level is enabled.
+     *
+     * @param format   the message pattern.
+     * @param argument the argument.
+     */
+    public void trace(String format, Object argument) {
+        if (isEnabledFor(Level.TRACE_INT)) {
+            log(Level.TRACE, new ParameterizedMessage(format, argument));
+        }
+    }
+
+    /**
+     * Log the message at <code>Level.TRACE</code> level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param argument1 the first argument.
+     * @param argument2 the second argument.
+     */
+    public void trace(String format, Object argument1, Object argument2) {
+        if (isEnabledFor(Level.TRACE_INT)) {
+            log(Level.TRACE, new ParameterizedMessage(format, argument1, argument2));
+        }
+    }
+
+    /**
+     * Log the message at <code>Level.TRACE</code> level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param arguments the arguments.
+     */
+    public void trace(String format, Object... arguments) {
+        if (isEnabledFor(Level.TRACE_INT)) {
+            log(Level.TRACE, new ParameterizedMessage(format, arguments));
+        }
+    }
+
     /**
      * Is this <code>Logger</code> enabled for DEBUG level?
      *
      * @return true if logging is enabled.
      */
     public boolean isDebugEnabled() {
-        Level effectiveLevel = getEffectiveLevel();
-        return effectiveLevel.toInt() <= Level.DEBUG_INT;
+        return isEnabledFor(Level.DEBUG_INT);
     }
 
     /**
@@ -348,14 +845,65 @@ public final class Logger {
         log(Level.DEBUG, message, t);
     }
 
+    /**
+     * Log the specified message and <code>Throwable</code> object at
+     * <code>Level.DEBUG</code> level. The message is not treated as a pattern.
+     *
+     * @param message the message to log.
+     * @param t       the <code>Throwable</code> to log.
+     */
+    public void debug(String message, Throwable t) {
+        log(Level.DEBUG, message, t);
+    }
+
+    /**
+     * Log the message at <code>Level.DEBUG</code> level, replacing the <code>{}</code>
+     * placeholder with the argument. The message is only formatted if the
+     * level is enabled.
+     *
+     * @param format   the message pattern.
+     * @param argument the argument.
+     */
+    public void debug(String format, Object argument) {
+        if (isEnabledFor(Level.DEBUG_INT)) {
+            log(Level.DEBUG, new ParameterizedMessage(format, argument));
+        }
+    }
+
+    /**
+     * Log the message at <code>Level.DEBUG</code> level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param argument1 the first argument.
+     * @param argument2 the second argument.
+     */
+    public void debug(String format, Object argument1, Object argument2) {
+        if (isEnabledFor(Level.DEBUG_INT)) {
+            log(Level.DEBUG, new ParameterizedMessage(format, argument1, argument2));
+        }
+    }
+
+    /**
+     * Log the message at <code>Level.DEBUG</code> level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param arguments the arguments.
+     */
+    public void debug(String format, Object... arguments) {
+        if (isEnabledFor(Level.DEBUG_INT)) {
+            log(Level.DEBUG, new ParameterizedMessage(format, arguments));
+        }
+    }
+
     /**
      * Is this <code>Logger</code> enabled for INFO level?
      *
      * @return true if the <code>Level.INFO</code> level is enabled.
      */
     public boolean isInfoEnabled() {
-        Level effectiveLevel = getEffectiveLevel();
-        return effectiveLevel.toInt() <= Level.INFO_INT;
+        return isEnabledFor(Level.INFO_INT);
     }
 
     /**
@@ -378,6 +926,58 @@ public final class Logger {
         log(Level.INFO, message, t);
     }
 
+    /**
+     * Log the specified message and <code>Throwable</code> object at
+     * <code>Level.INFO</code> level. The message is not treated as a pattern.
+     *
+     * @param message the message to log.
+     * @param t       the <code>Throwable</code> to log.
+     */
+    public void info(String message, Throwable t) {
+        log(Level.INFO, message, t);
+    }
+
+    /**
+     * Log the message at <code>Level.INFO</code> level, replacing the <code>{}</code>
+     * placeholder with the argument. The message is only formatted if the
+     * level is enabled.
+     *
+     * @param format   the message pattern.
+     * @param argument the argument.
+     */
+    public void info(String format, Object argument) {
+        if (isEnabledFor(Level.INFO_INT)) {
+            log(Level.INFO, new ParameterizedMessage(format, argument));
+        }
+    }
+
+    /**
+     * Log the message at <code>Level.INFO</code> level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param argument1 the first argument.
+     * @param argument2 the second argument.
+     */
+    public void info(String format, Object argument1, Object argument2) {
+        if (isEnabledFor(Level.INFO_INT)) {
+            log(Level.INFO, new ParameterizedMessage(format, argument1, argument2));
+        }
+    }
+
+    /**
+     * Log the message at <code>Level.INFO</code> level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param arguments the arguments.
+     */
+    public void info(String format, Object... arguments) {
+        if (isEnabledFor(Level.INFO_INT)) {
+            log(Level.INFO, new ParameterizedMessage(format, arguments));
+        }
+    }
+
     /**
      * Log the specified message at <code>Level.WARN</code> level.
      *
@@ -398,6 +998,58 @@ public final class Logger {
         log(Level.WARN, message, t);
     }
 
+    /**
+     * Log the specified message and <code>Throwable</code> object at
+     * <code>Level.WARN</code> level. The message is not treated as a pattern.
+     *
+     * @param message the message to log.
+     * @param t       the <code>Throwable</code> to log.
+     */
+    public void warn(String message, Throwable t) {
+        log(Level.WARN, message, t);
+    }
+
+    /**
+     * Log the message at <code>Level.WARN</code> level, replacing the <code>{}</code>
+     * placeholder with the argument. The message is only formatted if the
+     * level is enabled.
+     *
+     * @param format   the message pattern.
+     * @param argument the argument.
+     */
+    public void warn(String format, Object argument) {
+        if (isEnabledFor(Level.WARN_INT)) {
+            log(Level.WARN, new ParameterizedMessage(format, argument));
+        }
+    }
+
+    /**
+     * Log the message at <code>Level.WARN</code> level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param argument1 the first argument.
+     * @param argument2 the second argument.
+     */
+    public void warn(String format, Object argument1, Object argument2) {
+        if (isEnabledFor(Level.WARN_INT)) {
+            log(Level.WARN, new ParameterizedMessage(format, argument1, argument2));
+        }
+    }
+
+    /**
+     * Log the message at <code>Level.WARN</code> level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param arguments the arguments.
+     */
+    public void warn(String format, Object... arguments) {
+        if (isEnabledFor(Level.WARN_INT)) {
+            log(Level.WARN, new ParameterizedMessage(format, arguments));
+        }
+    }
+
     /**
      * Log the specified message at ERROR level.
      *
@@ -417,6 +1069,58 @@ public final class Logger {
         log(Level.ERROR, message, t);
     }
 
+    /**
+     * Log the specified message and <code>Throwable</code> object at
+     * ERROR level. The message is not treated as a pattern.
+     *
+     * @param message the message to log.
+     * @param t       the <code>Throwable</code> to log.
+     */
+    public void error(String message, Throwable t) {
+        log(Level.ERROR, message, t);
+    }
+
+    /**
+     * Log the message at ERROR level, replacing the <code>{}</code>
+     * placeholder with the argument. The message is only formatted if the
+     * level is enabled.
+     *
+     * @param format   the message pattern.
+     * @param argument the argument.
+     */
+    public void error(String format, Object argument) {
+        if (isEnabledFor(Level.ERROR_INT)) {
+            log(Level.ERROR, new ParameterizedMessage(format, argument));
+        }
+    }
+
+    /**
+     * Log the message at ERROR level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param argument1 the first argument.
+     * @param argument2 the second argument.
+     */
+    public void error(String format, Object argument1, Object argument2) {
+        if (isEnabledFor(Level.ERROR_INT)) {
+            log(Level.ERROR, new ParameterizedMessage(format, argument1, argument2));
+        }
+    }
+
+    /**
+     * Log the message at ERROR level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param arguments the arguments.
+     */
+    public void error(String format, Object... arguments) {
+        if (isEnabledFor(Level.ERROR_INT)) {
+            log(Level.ERROR, new ParameterizedMessage(format, arguments));
+        }
+    }
+
     /**
      * Log the specified message at FATAL level.
      *
@@ -436,6 +1140,58 @@ public final class Logger {
         log(Level.FATAL, message, t);
     }
 
+    /**
+     * Log the specified message and <code>Throwable</code> object at
+     * FATAL level. The message is not treated as a pattern.
+     *
+     * @param message the message to log.
+     * @param t       the <code>Throwable</code> to log.
+     */
+    public void fatal(String message, Throwable t) {
+        log(Level.FATAL, message, t);
+    }
+
+    /**
+     * Log the message at FATAL level, replacing the <code>{}</code>
+     * placeholder with the argument. The message is only formatted if the
+     * level is enabled.
+     *
+     * @param format   the message pattern.
+     * @param argument the argument.
+     */
+    public void fatal(String format, Object argument) {
+        if (isEnabledFor(Level.FATAL_INT)) {
+            log(Level.FATAL, new ParameterizedMessage(format, argument));
+        }
+    }
+
+    /**
+     * Log the message at FATAL level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param argument1 the first argument.
+     * @param argument2 the second argument.
+     */
+    public void fatal(String format, Object argument1, Object argument2) {
+        if (isEnabledFor(Level.FATAL_INT)) {
+            log(Level.FATAL, new ParameterizedMessage(format, argument1, argument2));
+        }
+    }
+
+    /**
+     * Log the message at FATAL level, replacing the <code>{}</code>
+     * placeholders with the arguments.
+     *
+     * @param format    the message pattern.
+     * @param arguments the arguments.
+     */
+    public void fatal(String format, Object... arguments) {
+        if (isEnabledFor(Level.FATAL_INT)) {
+            log(Level.FATAL, new ParameterizedMessage(format, arguments));
+        }
+    }
+
     /**
      * @see Object#toString()
      */
@@ -444,13 +1200,9 @@ public final class Logger {
         stringBuffer.append(super.toString());
         stringBuffer.append('[');
 
-        ListIterator<Appender> ite = appenderList.listIterator();
-        while (ite.hasNext()) {
-            Appender p = ite.next();
-            if (p != null) {
-                stringBuffer.append(p);
-                stringBuffer.append(';');
-            }
+        for (Appender p : appenders) {
+            stringBuffer.append(p);
+            stringBuffer.append(';');
         }
 
         stringBuffer.append(']');
@@ -462,20 +1214,22 @@ public final class Logger {
      * default level.
      */
     public synchronized void resetLogger() {
-        Logger.appenderList.clear();
-        Logger.stopWatch.stop();
-        Logger.stopWatch.reset();
+        synchronized (appenderLock) {
+            Logger.appenders = NO_APPENDERS;
+        }
+        restartStopWatch();
         Logger.firstLogEvent = true;
+        rateLimiter = null;
+        sampler = null;
+        inheritedCache = null;
     }
 
     /**
      * Open the log. The logging is now turned on.
      */
     void open() throws IOException {
-        ListIterator<Appender> ite = appenderList.listIterator();
-        while (ite.hasNext()) {
-            Appender p = ite.next();
-            if (p != null) p.open();
+        for (Appender p : appenders) {
+            p.open();
         }
     }
 
@@ -485,13 +1239,9 @@ public final class Logger {
      * @throws java.io.IOException if the <code>Logger</code> failed to close.
      */
     public void close() throws IOException {
-        ListIterator<Appender> ite = appenderList.listIterator();
-        while (ite.hasNext()) {
-            Appender p = ite.next();
-            if (p != null)
-                p.close();
+        for (Appender p : appenders) {
+            p.close();
         }
-        stopWatch.stop();
         Logger.firstLogEvent = true;
     }
 }
@@ -0,0 +1,214 @@
+package com.github.lisicnu.log4android;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token buckets that limit the number of events per second of a logger and
+ * of all the loggers below it. A logger below it that has a limiter of its
+ * own is limited by both. Every level has a bucket of its own, so a flood of
+ * DEBUG events does not use up the budget of the ERROR events. A bucket
+ * holds up to <code>burst</code> tokens and is refilled at the configured
+ * rate. An event that finds its bucket empty is dropped and counted.
+ * <p/>
+ * A bucket is kept as the theoretical arrival time of the next event (GCRA),
+ * so it is refilled lazily when an event arrives, without a timer thread,
+ * and a token is taken with a single compare-and-set. The time is the
+ * monotonic time of the <code>Logger</code> clock, which the
+ * <code>Logger</code> reads once per event for the event and all the
+ * limiters.
+ *
+ * @see Logger#setRateLimiter(RateLimiter)
+ */
+public final class RateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * The longest time it may take to refill a full bucket. The theoretical
+     * arrival times are compared by their difference, which must not
+     * overflow.
+     */
+    private static final double MAX_REFILL_NANOS = Long.MAX_VALUE / 4;
+
+    /**
+     * The number of buckets, one for every level from TRACE to FATAL.
+     */
+    private static final int BUCKETS = 6;
+
+    private final double eventsPerSecond;
+
+    private final int burst;
+
+    private final Level level;
+
+    /**
+     * The time in nanoseconds it takes to refill one token.
+     */
+    private final long interval;
+
+    /**
+     * How far the theoretical arrival time may be ahead of the current time,
+     * i.e. the time it takes to refill all but one of the tokens.
+     */
+    private final long tolerance;
+
+    /**
+     * The theoretical arrival time of the next event of every level.
+     */
+    private final AtomicLongArray theoreticalArrivals;
+
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * Create a <code>RateLimiter</code> for all levels, with a burst of one
+     * second worth of events.
+     *
+     * @param eventsPerSecond the number of events per second.
+     * @throws IllegalArgumentException if <code>eventsPerSecond</code> is not positive, or so
+     *                                  small that the bucket would take more than
+     *                                  70 years to refill.
+     */
+    public RateLimiter(double eventsPerSecond) throws IllegalArgumentException {
+        this(eventsPerSecond, (int) Math.min(Integer.MAX_VALUE, Math.ceil(eventsPerSecond)),
+                Level.FATAL);
+    }
+
+    /**
+     * Create a <code>RateLimiter</code>.
+     *
+     * @param eventsPerSecond the number of events per second.
+     * @param burst           the number of events that may be logged at once
+     *                        after a quiet period.
+     * @param level           the highest level that is limited. Events above
+     *                        it are always logged.
+     * @throws IllegalArgumentException if <code>eventsPerSecond</code> or <code>burst</code> is
+     *                                  not positive, the bucket would take more than 70 years to
+     *                                  refill, or the <code>level</code> is <code>null</code>.
+     */
+    public RateLimiter(double eventsPerSecond, int burst, Level level)
+            throws IllegalArgumentException {
+        if (!(eventsPerSecond > 0) || Double.isInfinite(eventsPerSecond)) {
+            throw new IllegalArgumentException("The rate must be a positive number.");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("The burst must be at least 1.");
+        }
+        if (level == null) {
+            throw new IllegalArgumentException("The level must not be null.");
+        }
+        if ((double) NANOS_PER_SECOND / eventsPerSecond * burst > MAX_REFILL_NANOS) {
+            throw new IllegalArgumentException("The rate is too small for the burst.");
+        }
+
+        this.eventsPerSecond = eventsPerSecond;
+        this.burst = burst;
+        this.level = level;
+        this.interval = Math.max(1, (long) (NANOS_PER_SECOND / eventsPerSecond));
+        this.tolerance = interval * (burst - 1);
+        this.theoreticalArrivals = new AtomicLongArray(BUCKETS);
+        long now = Logger.getClock().nanoTime();
+        for (int index = 0; index < BUCKETS; index++) {
+            theoreticalArrivals.set(index, now);
+        }
+    }
+
+    public double getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Get the highest level that is limited.
+     *
+     * @return the level.
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Take a token from the bucket of the level of an event, at the current
+     * time of the <code>Logger</code> clock.
+     *
+     * @param levelValue the value of the level of the event.
+     * @return <code>true</code> if the event may be logged, <code>false</code>
+     * if it is throttled.
+     * @see Logger#getClock()
+     */
+    public boolean tryAcquire(int levelValue) {
+        return tryAcquire(levelValue, Logger.getClock().nanoTime());
+    }
+
+    /**
+     * Take a token from the bucket of the level of an event.
+     *
+     * @param levelValue the value of the level of the event.
+     * @param nanoTime   the monotonic time of the event, from
+     *                   <code>Clock.nanoTime()</code>.
+     * @return <code>true</code> if the event may be logged, <code>false</code>
+     * if it is throttled.
+     */
+    public boolean tryAcquire(int levelValue, long nanoTime) {
+        if (levelValue > level.toInt()) {
+            return true;
+        }
+
+        int bucket = bucketIndex(levelValue);
+        long now = nanoTime;
+        while (true) {
+            long arrival = theoreticalArrivals.get(bucket);
+            // A bucket that is further ahead than a burst can take it was
+            // filled with a clock of another origin, it starts full again.
+            long ahead = arrival - now;
+            long start = ahead < 0 || ahead > tolerance + interval ? now : arrival;
+            if (start - now > tolerance) {
+                throttled.incrementAndGet();
+                return false;
+            }
+            if (theoreticalArrivals.compareAndSet(bucket, arrival, start + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Get the bucket of a level, 0 for TRACE up to 5 for FATAL.
+     */
+    private static int bucketIndex(int levelValue) {
+        if (levelValue <= Level.TRACE_INT) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 1 + Integer.numberOfTrailingZeros(levelValue));
+    }
+
+    /**
+     * Get the number of events that have been throttled.
+     *
+     * @return the number of dropped events.
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * Get the number of events that have been throttled and start counting
+     * from zero again, e.g. to report the drops periodically.
+     *
+     * @return the number of dropped events since the last reset.
+     */
+    public long resetThrottledCount() {
+        return throttled.getAndSet(0);
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        return "RateLimiter[" + eventsPerSecond + "/s per level, burst " + burst + ", up to "
+                + level + ']';
+    }
+}
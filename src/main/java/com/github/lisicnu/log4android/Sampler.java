@@ -0,0 +1,219 @@
+package com.github.lisicnu.log4android;
+
+/**
+ * Keeps one in <code>N</code> events of a logger and of all the loggers below
+ * it that have no sampler of their own. Every level has a rate of its own,
+ * e.g. one in 100 TRACE events and one in 10 DEBUG events, the levels without
+ * a rate are always kept. A sampler is immutable, {@link #withRate(Level, int)}
+ * returns a copy with the rate of one level changed.
+ * <p/>
+ * Without a key the events are picked at random, with a generator of the
+ * current thread. With a key the decision is made from the hash of the value
+ * of that key in the {@link LogContext}, e.g. a request id, so all the events
+ * with the same value are kept or dropped together, by every sampler with
+ * the same rate. An event without a value for the key is picked at random.
+ *
+ * @see Logger#setSampler(Sampler)
+ */
+public final class Sampler {
+
+    private static final ThreadLocal<long[]> seeds = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            long seed = mix(Thread.currentThread().getId() ^ System.nanoTime());
+            return new long[]{seed != 0 ? seed : 1};
+        }
+    };
+
+    /**
+     * The rate of every level, indexed by the value of the level.
+     */
+    private final int[] rates;
+
+    /**
+     * An event is kept when its 63 bit hash is below the threshold of its
+     * level, indexed by the value of the level.
+     */
+    private final long[] thresholds;
+
+    private final String key;
+
+    /**
+     * Create a <code>Sampler</code> that picks the events at random.
+     *
+     * @param rate  keep one in <code>rate</code> events.
+     * @param level the highest level that is sampled.
+     * @throws IllegalArgumentException if the <code>rate</code> is less than 1, or the
+     *                                  <code>level</code> is <code>null</code>.
+     */
+    public Sampler(int rate, Level level) throws IllegalArgumentException {
+        this(rate, level, null);
+    }
+
+    /**
+     * Create a <code>Sampler</code> with the same rate for all the levels up
+     * to the specified level.
+     *
+     * @param rate  keep one in <code>rate</code> events.
+     * @param level the highest level that is sampled.
+     * @param key   the <code>LogContext</code> key whose value decides, or
+     *              <code>null</code> to pick the events at random.
+     * @throws IllegalArgumentException if the <code>rate</code> is less than 1, or the
+     *                                  <code>level</code> is <code>null</code>.
+     */
+    public Sampler(int rate, Level level, String key) throws IllegalArgumentException {
+        this(key);
+        if (level == null) {
+            throw new IllegalArgumentException("The level must not be null.");
+        }
+        checkRate(rate);
+
+        for (Level sampled : Level.values()) {
+            if (sampled != Level.OFF && sampled.toInt() <= level.toInt()) {
+                setRate(sampled, rate);
+            }
+        }
+    }
+
+    /**
+     * Create a <code>Sampler</code> that keeps all the events, to add the
+     * rates of the levels to with {@link #withRate(Level, int)}.
+     *
+     * @param key the <code>LogContext</code> key whose value decides, or
+     *            <code>null</code> to pick the events at random.
+     */
+    public Sampler(String key) {
+        this.key = key;
+        this.rates = new int[Level.FATAL_INT + 1];
+        this.thresholds = new long[Level.FATAL_INT + 1];
+        for (int index = 0; index < rates.length; index++) {
+            rates[index] = 1;
+            thresholds[index] = Long.MAX_VALUE;
+        }
+    }
+
+    private Sampler(Sampler sampler) {
+        this.key = sampler.key;
+        this.rates = sampler.rates.clone();
+        this.thresholds = sampler.thresholds.clone();
+    }
+
+    private static void checkRate(int rate) throws IllegalArgumentException {
+        if (rate < 1) {
+            throw new IllegalArgumentException("The rate must be at least 1.");
+        }
+    }
+
+    private void setRate(Level level, int rate) {
+        rates[level.toInt()] = rate;
+        thresholds[level.toInt()] = rate == 1 ? Long.MAX_VALUE : Long.MAX_VALUE / rate;
+    }
+
+    /**
+     * Get a copy of this sampler with the rate of one level changed.
+     *
+     * @param level the level.
+     * @param rate  keep one in <code>rate</code> events of the level, 1 keeps
+     *              all of them.
+     * @return the new sampler.
+     * @throws IllegalArgumentException if the <code>rate</code> is less than 1, or the
+     *                                  <code>level</code> is <code>null</code> or <code>OFF</code>.
+     */
+    public Sampler withRate(Level level, int rate) throws IllegalArgumentException {
+        if (level == null || level == Level.OFF) {
+            throw new IllegalArgumentException("The level must be one that events are logged at.");
+        }
+        checkRate(rate);
+
+        Sampler sampler = new Sampler(this);
+        sampler.setRate(level, rate);
+        return sampler;
+    }
+
+    /**
+     * Get the rate of a level.
+     *
+     * @param level the level.
+     * @return one in how many events of the level are kept, 1 if all of them
+     * are kept.
+     */
+    public int getRate(Level level) {
+        int value = level != null ? level.toInt() : -1;
+        return value >= 0 && value < rates.length ? rates[value] : 1;
+    }
+
+    /**
+     * Get the <code>LogContext</code> key that decides.
+     *
+     * @return the key, or <code>null</code> if the events are picked at random.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Decide if an event at the specified level is kept. This is called
+     * before the event is created, so a dropped event costs nothing more.
+     *
+     * @param levelValue the value of the level of the event.
+     * @return <code>true</code> if the event is kept.
+     */
+    public boolean isSampled(int levelValue) {
+        if (levelValue < 0 || levelValue >= thresholds.length) {
+            return true;
+        }
+        long threshold = thresholds[levelValue];
+        if (threshold == Long.MAX_VALUE) {
+            return true;
+        }
+
+        if (key != null) {
+            String value = LogContext.get(key);
+            if (value != null) {
+                return (mix(value.hashCode()) >>> 1) < threshold;
+            }
+        }
+
+        long[] seed = seeds.get();
+        long x = seed[0];
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        seed[0] = x;
+        return (x >>> 1) < threshold;
+    }
+
+    /**
+     * Spread the bits of the value, so similar values give unrelated hashes.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Sampler[");
+        boolean first = true;
+        for (Level level : Level.values()) {
+            int rate = getRate(level);
+            if (rate > 1) {
+                builder.append(first ? "" : ", ").append(level).append(" 1 in ").append(rate);
+                first = false;
+            }
+        }
+        if (first) {
+            builder.append("all");
+        }
+        if (key != null) {
+            builder.append(", key ").append(key);
+        }
+        return builder.append(']').toString();
+    }
+}
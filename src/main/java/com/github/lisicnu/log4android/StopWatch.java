@@ -16,23 +16,56 @@
 package com.github.lisicnu.log4android;
 
 /**
- * A class that works as a stop watch.
+ * A class that works as a stop watch. The time is measured with the
+ * monotonic time of a {@link Clock}, so it is not affected when the wall
+ * clock is adjusted, and it has the same origin as the time the
+ * <code>Logger</code> reads from the clock for every event. The start time
+ * is fixed when the <code>StopWatch</code> is created, restarting means
+ * creating a new one, so the time can be read from any thread without
+ * locking.
  * 
  * @author Johan Karlsson (johan.karlsson@jayway.se)
  */
-class StopWatch {
+final class StopWatch {
 
-	private boolean started;
-	private long startTime;
-	private long currentTime;
-	private long stopTime;
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private final Clock clock;
+
+	private final long startTime;
+
+	/**
+	 * Create a <code>StopWatch</code> started now.
+	 * 
+	 * @param clock
+	 *            the clock to measure the time with.
+	 */
+	public StopWatch(Clock clock) {
+		this(clock, 0);
+	}
+
+	/**
+	 * Create a <code>StopWatch</code> that shows the specified time now, e.g.
+	 * to go on with the time of a <code>StopWatch</code> that measured with
+	 * another clock.
+	 * 
+	 * @param clock
+	 *            the clock to measure the time with.
+	 * @param elapsedNanos
+	 *            the time to show now, in nanoseconds.
+	 */
+	public StopWatch(Clock clock, long elapsedNanos) {
+		this.clock = clock;
+		this.startTime = clock.nanoTime() - elapsedNanos;
+	}
 
 	/**
-	 * Start the <code>StopWatch</code>.
+	 * Get the clock that this <code>StopWatch</code> measures the time with.
+	 * 
+	 * @return the clock.
 	 */
-	public synchronized void start() {
-		this.startTime = System.currentTimeMillis();
-		started = true;
+	public Clock getClock() {
+		return clock;
 	}
 
 	/**
@@ -41,42 +74,32 @@ class StopWatch {
 	 * @return the current time as milliseconds since the <code>StopWatch</code>
 	 *         was started.
 	 */
-	public synchronized long getCurrentTime() {
-
-		if (started) {
-			currentTime = System.currentTimeMillis() - startTime;
-		}
-
-		return currentTime;
+	public long getCurrentTime() {
+		return getCurrentTimeNanos() / NANOS_PER_MILLI;
 	}
 
 	/**
-	 * Stop the <code>StopWatch</code>.
+	 * Get the current time with nanosecond precision.
 	 * 
-	 * @return the current time when
+	 * @return the current time as nanoseconds since the
+	 *         <code>StopWatch</code> was started.
 	 */
-	public synchronized long stop() {
-
-		stopTime = System.currentTimeMillis();
-		currentTime = stopTime - startTime;
-		started = false;
-
-		return currentTime;
+	public long getCurrentTimeNanos() {
+		return getTimeNanos(clock.nanoTime());
 	}
 
 	/**
-	 * Reset the <code>StopWatch</code>.
+	 * Get the time at the given monotonic time of the clock of this
+	 * <code>StopWatch</code>.
+	 * 
+	 * @param nanoTime
+	 *            the value of <code>Clock.nanoTime()</code>.
+	 * @return the time as nanoseconds since the <code>StopWatch</code> was
+	 *         started, never negative.
 	 */
-	public synchronized void reset() {
-
-		if (started) {
-			startTime = System.currentTimeMillis();
-		} else {
-			startTime = 0;
-		}
-
-		stopTime = 0;
-		currentTime = 0;
+	public long getTimeNanos(long nanoTime) {
+		long time = nanoTime - startTime;
+		return time > 0 ? time : 0;
 	}
 
 	/**
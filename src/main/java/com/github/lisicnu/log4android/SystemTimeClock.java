@@ -0,0 +1,23 @@
+package com.github.lisicnu.log4android;
+
+/**
+ * A <code>Clock</code> that reads <code>System.currentTimeMillis()</code> and
+ * <code>System.nanoTime()</code> for every event. This is the default clock.
+ */
+public enum SystemTimeClock implements Clock {
+    INSTANCE;
+
+    /**
+     * @see com.github.lisicnu.log4android.Clock#currentTimeMillis()
+     */
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.Clock#nanoTime()
+     */
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+}
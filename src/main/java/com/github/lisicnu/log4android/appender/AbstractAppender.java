@@ -15,6 +15,10 @@
 package com.github.lisicnu.log4android.appender;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.filter.Filter;
+import com.github.lisicnu.log4android.filter.FilterChain;
+import com.github.lisicnu.log4android.format.BufferedFormatter;
 import com.github.lisicnu.log4android.format.Formatter;
 import com.github.lisicnu.log4android.format.SimpleFormatter;
 
@@ -27,13 +31,13 @@ import java.io.IOException;
  * @author Johan Karlsson (johan.karlsson@jayway.se)
  * @since 0.1
  */
-public abstract class AbstractAppender implements Appender {
+public abstract class AbstractAppender implements EventAppender {
 
 	/**
 	 * This is the default formatter used by all subclasses. The subclass can
 	 * change this as suitable.
 	 */
-	protected Formatter formatter = new SimpleFormatter();
+	protected volatile Formatter formatter = new SimpleFormatter();
 
 	/**
 	 * The logOpen shows whether the log is open or not. The implementing
@@ -41,6 +45,12 @@ public abstract class AbstractAppender implements Appender {
 	 */
 	protected boolean logOpen;
 
+	/**
+	 * The filters of this appender. The chain is immutable, it is replaced
+	 * when a filter is added or removed.
+	 */
+	private volatile FilterChain filterChain = FilterChain.EMPTY;
+
 	/**
 	 * Set the <code>Formatter</code> object that is used for formatting the
 	 * output.
@@ -91,6 +101,126 @@ public abstract class AbstractAppender implements Appender {
 	public abstract void doLog(String clientID, String name, long time,
 			Level level, Object message, Throwable t);
 
+	/**
+	 * Do the logging of an event, unless one of the filters of this appender
+	 * denies it. The filters see the raw event, before it is formatted.
+	 * 
+	 * @param event
+	 *            the event to log.
+	 */
+	public final void append(LogEvent event) {
+		if (filterChain.isDenied(event)) {
+			return;
+		}
+		doAppend(event);
+	}
+
+	/**
+	 * Log the event with the appender. An {@link EventAppender} is given the
+	 * event, any other <code>Appender</code> is given the fields of the event
+	 * through <code>doLog</code>.
+	 * 
+	 * @param appender
+	 *            the appender to log with.
+	 * @param event
+	 *            the event to log.
+	 */
+	public static void dispatch(Appender appender, LogEvent event) {
+		if (appender instanceof EventAppender) {
+			((EventAppender) appender).append(event);
+		} else {
+			appender.doLog(event.getClientID(), event.getName(),
+					event.getTime(), event.getLevel(), event.getMessage(),
+					event.getThrowable());
+		}
+	}
+
+	/**
+	 * Do the logging of an event that passed the filters. The default
+	 * implementation passes the fields of the event to <code>doLog</code>, a
+	 * subclass that makes use of the data captured in the event overrides
+	 * this method.
+	 * 
+	 * @param event
+	 *            the event to log.
+	 */
+	protected void doAppend(LogEvent event) {
+		doLog(event.getClientID(), event.getName(), event.getTime(),
+				event.getLevel(), event.getMessage(), event.getThrowable());
+	}
+
+	/**
+	 * Log the given data as an event, for the subclasses that implement
+	 * <code>doLog</code> by overriding <code>doAppend</code>.
+	 */
+	protected final void appendEvent(String clientID, String name, long time,
+			Level level, Object message, Throwable t) {
+		LogEvent event = LogEvent.obtain(clientID, name, time, level, message, t);
+		try {
+			append(event);
+		} finally {
+			event.release();
+		}
+	}
+
+	/**
+	 * Add a filter, that is asked after the filters that were added before.
+	 * 
+	 * @param filter
+	 *            the filter to add.
+	 * @throws IllegalArgumentException
+	 *             if the <code>filter</code> is <code>null</code>.
+	 */
+	public synchronized void addFilter(Filter filter) throws IllegalArgumentException {
+		filterChain = filterChain.add(filter);
+	}
+
+	/**
+	 * Remove a filter.
+	 * 
+	 * @param filter
+	 *            the filter to remove.
+	 */
+	public synchronized void removeFilter(Filter filter) {
+		filterChain = filterChain.remove(filter);
+	}
+
+	/**
+	 * Remove all the filters.
+	 */
+	public synchronized void clearFilters() {
+		filterChain = FilterChain.EMPTY;
+	}
+
+	/**
+	 * Get the filters of this appender.
+	 * 
+	 * @return the filter chain.
+	 */
+	public FilterChain getFilterChain() {
+		return filterChain;
+	}
+
+	/**
+	 * Format the event with the formatter of this appender. A
+	 * <code>BufferedFormatter</code> formats the data captured in the event,
+	 * any other formatter gets the fields of the event.
+	 * 
+	 * @param event
+	 *            the event to format.
+	 * @return the formatted event.
+	 */
+	protected String format(LogEvent event) {
+		Formatter currentFormatter = formatter;
+		if (currentFormatter instanceof BufferedFormatter) {
+			return ((BufferedFormatter) currentFormatter).format(event);
+		}
+
+		return currentFormatter.format(event.getClientID(), event.getName(),
+				event.getTime(), event.getLevel(), event.getMessage(),
+				event.getThrowable());
+	}
+
 	/**
 	 * Clear the log.
 	 * 
@@ -0,0 +1,425 @@
+package com.github.lisicnu.log4android.appender;
+
+import android.util.Log;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.format.Formatter;
+import com.github.lisicnu.log4android.format.ParameterizedMessage;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An <code>Appender</code> that hands the logging events over to a background
+ * thread, which passes them on to the wrapped <code>Appender</code>. The
+ * logging thread only retains the event and puts it into a bounded ring
+ * buffer, that is allocated once when the <code>AsyncAppender</code> is
+ * created. The event carries its own time and thread name, so it is formatted
+ * the same way as on the logging thread. A {@link ParameterizedMessage} is
+ * formatted on the logging thread before it is queued, so the arguments are
+ * printed with the values they had when the event was logged, and they are
+ * not used by two threads at once.
+ * <p/>
+ * When the ring buffer is full the {@link OverflowPolicy} decides whether the
+ * logging thread waits for free space or whether the event is dropped. Dropped
+ * events are counted and a "N events dropped" line is written to the wrapped
+ * appender, so the gaps are visible in the log.
+ */
+public class AsyncAppender implements EventAppender {
+    private static final String TAG = AsyncAppender.class.getSimpleName();
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /**
+     * What to do when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until the background thread has made room for the event.
+         */
+        BLOCK,
+        /**
+         * Drop the event that could not be added.
+         */
+        DROP_NEWEST,
+        /**
+         * Drop the event if its level is below the drop threshold, otherwise
+         * wait until there is room for it.
+         */
+        DROP_BELOW_LEVEL
+    }
+
+    private final Appender appender;
+
+    private final LogEvent[] ring;
+
+    private final int mask;
+
+    private final Object lock = new Object();
+
+    /**
+     * The sequence of the next slot to be read by the background thread.
+     */
+    private long head;
+
+    /**
+     * The sequence of the next slot to be written by a logging thread.
+     */
+    private long tail;
+
+    /**
+     * Events dropped since the last "dropped" marker was written.
+     */
+    private long pendingDrops;
+
+    /**
+     * The client id and the time of the last dropped event, which are used
+     * for the "dropped" marker.
+     */
+    private String dropClientID;
+
+    private long dropTimeNanos;
+
+    private long dropTimeMillis;
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private Level dropThreshold = Level.WARN;
+
+    private Thread worker;
+
+    private volatile boolean logOpen;
+
+    /**
+     * Create an <code>AsyncAppender</code> with the default buffer size.
+     *
+     * @param appender the <code>Appender</code> that does the actual logging.
+     */
+    public AsyncAppender(Appender appender) {
+        this(appender, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create an <code>AsyncAppender</code>.
+     *
+     * @param appender   the <code>Appender</code> that does the actual logging.
+     * @param bufferSize the number of events the ring buffer can hold. It is
+     *                   rounded up to the next power of two.
+     * @throws IllegalArgumentException if the <code>appender</code> is <code>null</code> or the
+     *                                  <code>bufferSize</code> is less than 1.
+     */
+    public AsyncAppender(Appender appender, int bufferSize) throws IllegalArgumentException {
+        if (appender == null) {
+            throw new IllegalArgumentException("The appender must not be null.");
+        }
+        if (bufferSize < 1 || bufferSize > (1 << 30)) {
+            throw new IllegalArgumentException("The buffer size must be between 1 and 2^30.");
+        }
+
+        int capacity = 1;
+        while (capacity < bufferSize) {
+            capacity <<= 1;
+        }
+
+        this.appender = appender;
+        this.ring = new LogEvent[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Get the wrapped <code>Appender</code>.
+     *
+     * @return the <code>Appender</code> that does the actual logging.
+     */
+    public Appender getAppender() {
+        return appender;
+    }
+
+    /**
+     * Get the capacity of the ring buffer.
+     *
+     * @return the number of events that can be queued.
+     */
+    public int getBufferSize() {
+        return ring.length;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Set what to do when the ring buffer is full.
+     *
+     * @param overflowPolicy the policy to use.
+     * @throws IllegalArgumentException if the <code>overflowPolicy</code> is <code>null</code>.
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) throws IllegalArgumentException {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("The overflow policy must not be null.");
+        }
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public Level getDropThreshold() {
+        return dropThreshold;
+    }
+
+    /**
+     * Set the level used by {@link OverflowPolicy#DROP_BELOW_LEVEL}. Events
+     * below this level are dropped when the buffer is full, the others wait.
+     *
+     * @param dropThreshold the level to set.
+     * @throws IllegalArgumentException if the <code>dropThreshold</code> is <code>null</code>.
+     */
+    public void setDropThreshold(Level dropThreshold) throws IllegalArgumentException {
+        if (dropThreshold == null) {
+            throw new IllegalArgumentException("The drop threshold must not be null.");
+        }
+        this.dropThreshold = dropThreshold;
+    }
+
+    /**
+     * Get the total number of events that have been dropped since this
+     * appender was created.
+     *
+     * @return the number of dropped events.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Queue the event for the background thread.
+     *
+     * @see com.github.lisicnu.log4android.appender.Appender#doLog(String, String, long,
+     * com.github.lisicnu.log4android.Level, Object, Throwable)
+     */
+    public void doLog(String clientID, String name, long time, Level level, Object message,
+                      Throwable t) {
+        LogEvent event = LogEvent.obtain(clientID, name, time, level, message, t);
+        try {
+            append(event);
+        } finally {
+            event.release();
+        }
+    }
+
+    /**
+     * Queue the event for the background thread. The event is retained until
+     * the wrapped appender has logged it.
+     *
+     * @see com.github.lisicnu.log4android.appender.EventAppender#append(LogEvent)
+     */
+    public void append(LogEvent event) {
+        if (!logOpen) {
+            return;
+        }
+
+        Level level = event.getLevel();
+        Object message = event.getMessage();
+        if (message instanceof ParameterizedMessage) {
+            // The formatted message is kept by the message.
+            message.toString();
+        }
+
+        synchronized (lock) {
+            while (tail - head == ring.length) {
+                if (overflowPolicy == OverflowPolicy.DROP_NEWEST
+                        || (overflowPolicy == OverflowPolicy.DROP_BELOW_LEVEL
+                        && level.toInt() < dropThreshold.toInt())
+                        || !logOpen) {
+                    countDrop(event);
+                    return;
+                }
+
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    countDrop(event);
+                    return;
+                }
+            }
+
+            ring[(int) tail & mask] = event.retain();
+
+            if (tail++ == head) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Count a dropped event. Must be called with the lock held.
+     */
+    private void countDrop(LogEvent event) {
+        pendingDrops++;
+        dropClientID = event.getClientID();
+        dropTimeNanos = event.getTimeNanos();
+        dropTimeMillis = event.getTimeMillis();
+        droppedEvents.incrementAndGet();
+    }
+
+    /**
+     * The loop of the background thread. The slots between <code>head</code>
+     * and the observed <code>tail</code> are owned by this thread until
+     * <code>head</code> is moved, so they are written out without holding the
+     * lock.
+     */
+    private void drain() {
+        while (true) {
+            long start;
+            long end;
+            long drops;
+            String clientID;
+            long timeNanos;
+            long timeMillis;
+            synchronized (lock) {
+                while (head == tail && pendingDrops == 0 && logOpen) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Keep draining until the appender is closed.
+                    }
+                }
+
+                if (head == tail && pendingDrops == 0) {
+                    return;
+                }
+
+                start = head;
+                end = tail;
+                drops = pendingDrops;
+                pendingDrops = 0;
+                clientID = dropClientID;
+                timeNanos = dropTimeNanos;
+                timeMillis = dropTimeMillis;
+            }
+
+            for (long sequence = start; sequence < end; sequence++) {
+                int index = (int) sequence & mask;
+                LogEvent event = ring[index];
+                ring[index] = null;
+                try {
+                    AbstractAppender.dispatch(appender, event);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "The wrapped appender failed to log. " + e);
+                }
+                event.release();
+            }
+
+            if (drops > 0) {
+                LogEvent marker = LogEvent.obtain(clientID, TAG, timeNanos, timeMillis, Level.WARN,
+                        drops + " events dropped", null);
+                try {
+                    AbstractAppender.dispatch(appender, marker);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "The wrapped appender failed to log. " + e);
+                } finally {
+                    marker.release();
+                }
+            }
+
+            synchronized (lock) {
+                head = end;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#clear()
+     */
+    public void clear() {
+        appender.clear();
+    }
+
+    /**
+     * Open the wrapped appender and start the background thread.
+     *
+     * @see com.github.lisicnu.log4android.appender.Appender#open()
+     */
+    public synchronized void open() throws IOException {
+        if (logOpen) {
+            return;
+        }
+
+        appender.open();
+
+        logOpen = true;
+        worker = new Thread(new Runnable() {
+            public void run() {
+                drain();
+            }
+        }, "Log4Android-" + TAG);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Write out the queued events, stop the background thread and close the
+     * wrapped appender.
+     *
+     * @see com.github.lisicnu.log4android.appender.Appender#close()
+     */
+    public synchronized void close() throws IOException {
+        if (worker != null) {
+            synchronized (lock) {
+                logOpen = false;
+                lock.notifyAll();
+            }
+
+            if (worker != Thread.currentThread()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            worker = null;
+        }
+
+        appender.close();
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#isLogOpen()
+     */
+    public boolean isLogOpen() {
+        return logOpen;
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#getLogSize()
+     */
+    public long getLogSize() {
+        return appender.getLogSize();
+    }
+
+    /**
+     * Set the formatter of the wrapped appender.
+     *
+     * @see com.github.lisicnu.log4android.appender.Appender#setFormatter(com.github.lisicnu.log4android.format.Formatter)
+     */
+    public void setFormatter(Formatter formatter) {
+        appender.setFormatter(formatter);
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#getFormatter()
+     */
+    public Formatter getFormatter() {
+        return appender.getFormatter();
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        return TAG + '[' + appender + ']';
+    }
+}
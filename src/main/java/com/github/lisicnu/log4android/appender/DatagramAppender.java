@@ -17,6 +17,7 @@ package com.github.lisicnu.log4android.appender;
 import android.util.Log;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 import java.io.IOException;
 import java.net.DatagramPacket;
@@ -70,8 +71,16 @@ public class DatagramAppender extends AbstractAppender {
 	@Override
 	public void doLog(String clientID, String name, long time, Level level, Object message,
 	        Throwable t){
+		appendEvent(clientID, name, time, level, message, t);
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.appender.AbstractAppender#doAppend(LogEvent)
+	 */
+	@Override
+	protected void doAppend(LogEvent event){
 		if (logOpen && formatter != null) {
-			String logMessage = formatter.format(clientID, name, time, level, message, t);
+			String logMessage = format(event);
 			sendMessage(logMessage);
 		}
 	}
@@ -85,12 +94,15 @@ public class DatagramAppender extends AbstractAppender {
 	public void sendMessage(String message){
 
 		byte[] datagramData = message.getBytes();
-		datagramPacket.setData(datagramData);
 
-		try {
-			datagramSocket.send(datagramPacket);
-		} catch (IOException e) {
-			Log.e(TAG, "Failed to send datagram log " + e);
+		// The packet is shared, only filling and sending it is serialized.
+		synchronized (datagramPacket) {
+			datagramPacket.setData(datagramData);
+			try {
+				datagramSocket.send(datagramPacket);
+			} catch (IOException e) {
+				Log.e(TAG, "Failed to send datagram log " + e);
+			}
 		}
 	}
 
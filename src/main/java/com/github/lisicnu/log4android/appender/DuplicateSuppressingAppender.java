@@ -0,0 +1,425 @@
+package com.github.lisicnu.log4android.appender;
+
+import android.util.Log;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.Logger;
+import com.github.lisicnu.log4android.format.Formatter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An <code>Appender</code> that collapses repeated events before they reach
+ * the wrapped <code>Appender</code>. An event with the same logger name,
+ * level, message and throwable as a recent one is counted instead of logged.
+ * Two throwables are the same if they are the same object, or of the same
+ * class and thrown at the same place. When the repetition ends, or at the
+ * latest when the window has passed, a line "Last message repeated N times in
+ * T ms" is logged. A daemon thread, started by {@link #open()}, checks the
+ * table once per window, so the summary of a burst that is followed by
+ * silence is not held back until the next event.
+ * <p/>
+ * The recent events are kept in a fixed table of slots, selected by the hash
+ * of the event. With one slot only consecutive duplicates are collapsed,
+ * with more slots interleaved duplicates are collapsed as well. The memory
+ * use is bounded by the number of slots. A repeated event is counted with a
+ * compare-and-set on the counter of its entry, and an entry is replaced with
+ * a compare-and-set on its slot, so logging takes no lock.
+ */
+public class DuplicateSuppressingAppender implements EventAppender {
+    private static final String TAG = DuplicateSuppressingAppender.class.getSimpleName();
+
+    public static final int DEFAULT_SLOTS = 1;
+
+    public static final long DEFAULT_WINDOW = 1000;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * A recent event. The counter is set to -1 when the entry is taken out of
+     * its slot, after that the entry does not count any more duplicates, so
+     * every duplicate is either in the summary or logged.
+     */
+    private static final class Entry {
+        final int hash;
+        final String clientID;
+        final String name;
+        final Level level;
+        final Object message;
+        final Throwable throwable;
+        final StackTraceElement frame;
+        final long timeMillis;
+        final long timeNanos;
+        final AtomicInteger suppressed = new AtomicInteger();
+
+        Entry(int hash, LogEvent event) {
+            this.hash = hash;
+            this.clientID = event.getClientID();
+            this.name = event.getName();
+            this.level = event.getLevel();
+            this.message = event.getMessage();
+            this.throwable = event.getThrowable();
+            this.frame = throwable != null ? topFrame(throwable) : null;
+            this.timeMillis = event.getTimeMillis();
+            this.timeNanos = event.getTimeNanos();
+        }
+
+        boolean matches(int hash, LogEvent event) {
+            Object otherMessage = event.getMessage();
+            return this.hash == hash && level == event.getLevel()
+                    && (name == null ? event.getName() == null : name.equals(event.getName()))
+                    && (message == otherMessage || (message != null && message.equals(otherMessage)))
+                    && sameThrowable(event.getThrowable());
+        }
+
+        private boolean sameThrowable(Throwable other) {
+            if (throwable == other) {
+                return true;
+            }
+            if (throwable == null || other == null || throwable.getClass() != other.getClass()) {
+                return false;
+            }
+
+            StackTraceElement otherFrame = topFrame(other);
+            return frame == null ? otherFrame == null : frame.equals(otherFrame);
+        }
+
+        /**
+         * Count a duplicate, unless the entry has been taken out of its slot.
+         */
+        boolean tryCount() {
+            while (true) {
+                int count = suppressed.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (suppressed.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Stop the counting and create the summary of the counted duplicates.
+         * Must be called once, by the thread that took the entry out of its
+         * slot.
+         *
+         * @param nowNanos  the relative time of the summary.
+         * @param nowMillis the wall clock time of the summary, at the same
+         *                  instant.
+         * @return the summary event, or <code>null</code> if there were no
+         * duplicates.
+         */
+        LogEvent takeSummary(long nowNanos, long nowMillis) {
+            int count = suppressed.getAndSet(-1);
+            if (count <= 0) {
+                return null;
+            }
+
+            return LogEvent.obtain(clientID, name, nowNanos, nowMillis, level,
+                    "Last message repeated " + count + " times in " + (nowMillis - timeMillis)
+                            + " ms", null);
+        }
+
+        /**
+         * Create the summary at the current wall clock time, with the
+         * relative time that passed as much since the first occurrence.
+         */
+        LogEvent takeSummary(long nowMillis) {
+            long elapsed = Math.max(0, nowMillis - timeMillis);
+            return takeSummary(timeNanos + elapsed * NANOS_PER_MILLI, timeMillis + elapsed);
+        }
+
+        private static StackTraceElement topFrame(Throwable throwable) {
+            StackTraceElement[] trace = throwable.getStackTrace();
+            return trace.length > 0 ? trace[0] : null;
+        }
+    }
+
+    private final Appender appender;
+
+    private final AtomicReferenceArray<Entry> slots;
+
+    private final int mask;
+
+    private final long window;
+
+    private Thread sweeper;
+
+    private volatile boolean sweeping;
+
+    /**
+     * Create a <code>DuplicateSuppressingAppender</code> that collapses
+     * consecutive duplicates within the default window.
+     *
+     * @param appender the <code>Appender</code> that does the actual logging.
+     */
+    public DuplicateSuppressingAppender(Appender appender) {
+        this(appender, DEFAULT_SLOTS, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Create a <code>DuplicateSuppressingAppender</code>.
+     *
+     * @param appender the <code>Appender</code> that does the actual logging.
+     * @param slots    the number of recent events that are remembered. It is
+     *                 rounded up to the next power of two.
+     * @param window   the time in milliseconds after which a summary is logged
+     *                 even if the repetition goes on.
+     * @throws IllegalArgumentException if the <code>appender</code> is <code>null</code>, or the
+     *                                  <code>slots</code> or the <code>window</code> is less than 1.
+     */
+    public DuplicateSuppressingAppender(Appender appender, int slots, long window)
+            throws IllegalArgumentException {
+        if (appender == null) {
+            throw new IllegalArgumentException("The appender must not be null.");
+        }
+        if (slots < 1 || slots > (1 << 20)) {
+            throw new IllegalArgumentException("The number of slots must be between 1 and 2^20.");
+        }
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must be at least 1 ms.");
+        }
+
+        int capacity = 1;
+        while (capacity < slots) {
+            capacity <<= 1;
+        }
+
+        this.appender = appender;
+        this.slots = new AtomicReferenceArray<Entry>(capacity);
+        this.mask = capacity - 1;
+        this.window = window;
+    }
+
+    /**
+     * Get the wrapped <code>Appender</code>.
+     *
+     * @return the <code>Appender</code> that does the actual logging.
+     */
+    public Appender getAppender() {
+        return appender;
+    }
+
+    /**
+     * Get the number of recent events that are remembered.
+     *
+     * @return the number of slots.
+     */
+    public int getSlots() {
+        return slots.length();
+    }
+
+    /**
+     * Get the time after which a summary is logged for an ongoing repetition.
+     *
+     * @return the window in milliseconds.
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#doLog(String, String, long,
+     * com.github.lisicnu.log4android.Level, Object, Throwable)
+     */
+    public void doLog(String clientID, String name, long time, Level level, Object message,
+                      Throwable t) {
+        LogEvent event = LogEvent.obtain(clientID, name, time, level, message, t);
+        try {
+            append(event);
+        } finally {
+            event.release();
+        }
+    }
+
+    /**
+     * Count the event if it repeats a recent one, otherwise pass it on.
+     *
+     * @see com.github.lisicnu.log4android.appender.EventAppender#append(LogEvent)
+     */
+    public void append(LogEvent event) {
+        long now = event.getTimeMillis();
+        int hash = hash(event);
+        int index = hash & mask;
+
+        while (true) {
+            Entry entry = slots.get(index);
+            if (entry != null && entry.matches(hash, event) && now - entry.timeMillis < window
+                    && entry.tryCount()) {
+                return;
+            }
+
+            if (slots.compareAndSet(index, entry, new Entry(hash, event))) {
+                if (entry != null) {
+                    // The summary takes the time of the event that ends the repetition.
+                    appendSummary(entry.takeSummary(event.getTimeNanos(), now));
+                }
+                AbstractAppender.dispatch(appender, event);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Log the summaries of the repetitions whose window has passed, or of
+     * all of them.
+     *
+     * @param now the current wall clock time.
+     * @param all <code>true</code> to log the summaries of all the pending
+     *            duplicates.
+     */
+    private void sweep(long now, boolean all) {
+        for (int index = 0; index < slots.length(); index++) {
+            Entry entry = slots.get(index);
+            if (entry == null || (!all && (entry.suppressed.get() <= 0
+                    || now - entry.timeMillis < window))) {
+                continue;
+            }
+
+            // Another thread that replaced the entry in between logs its summary.
+            if (slots.compareAndSet(index, entry, null)) {
+                appendSummary(entry.takeSummary(now));
+            }
+        }
+    }
+
+    private static int hash(LogEvent event) {
+        String name = event.getName();
+        Object message = event.getMessage();
+        Throwable throwable = event.getThrowable();
+        int hash = (name == null ? 0 : name.hashCode()) * 31 + event.getLevel().ordinal();
+        hash = hash * 31 + (message == null ? 0 : message.hashCode());
+        hash = hash * 31 + (throwable == null ? 0 : throwable.getClass().hashCode());
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Log the summary, if there is one, and release it.
+     */
+    private void appendSummary(LogEvent summary) {
+        if (summary == null) {
+            return;
+        }
+
+        try {
+            AbstractAppender.dispatch(appender, summary);
+        } finally {
+            summary.release();
+        }
+    }
+
+    /**
+     * Log the summaries of all the pending duplicates.
+     */
+    public void flush() {
+        sweep(Logger.getClock().currentTimeMillis(), true);
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#clear()
+     */
+    public void clear() {
+        appender.clear();
+    }
+
+    /**
+     * Open the wrapped appender and start the thread that logs the summaries
+     * of the ended repetitions.
+     *
+     * @see com.github.lisicnu.log4android.appender.Appender#open()
+     */
+    public synchronized void open() throws IOException {
+        appender.open();
+
+        if (sweeper == null) {
+            sweeping = true;
+            sweeper = new Thread(new Runnable() {
+                public void run() {
+                    sweepPeriodically();
+                }
+            }, "Log4Android-" + TAG);
+            sweeper.setDaemon(true);
+            sweeper.start();
+        }
+    }
+
+    private void sweepPeriodically() {
+        while (sweeping) {
+            try {
+                Thread.sleep(window);
+            } catch (InterruptedException e) {
+                // Checked by the loop condition.
+            }
+            if (sweeping) {
+                try {
+                    sweep(Logger.getClock().currentTimeMillis(), false);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "The wrapped appender failed to log. " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the thread, log the pending summaries and close the wrapped
+     * appender.
+     *
+     * @see com.github.lisicnu.log4android.appender.Appender#close()
+     */
+    public synchronized void close() throws IOException {
+        if (sweeper != null) {
+            sweeping = false;
+            sweeper.interrupt();
+            if (sweeper != Thread.currentThread()) {
+                try {
+                    sweeper.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sweeper = null;
+        }
+
+        flush();
+        appender.close();
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#isLogOpen()
+     */
+    public boolean isLogOpen() {
+        return appender.isLogOpen();
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#getLogSize()
+     */
+    public long getLogSize() {
+        return appender.getLogSize();
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#setFormatter(com.github.lisicnu.log4android.format.Formatter)
+     */
+    public void setFormatter(Formatter formatter) {
+        appender.setFormatter(formatter);
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#getFormatter()
+     */
+    public Formatter getFormatter() {
+        return appender.getFormatter();
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        return TAG + '[' + appender + ']';
+    }
+}
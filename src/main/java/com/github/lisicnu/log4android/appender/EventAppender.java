@@ -0,0 +1,23 @@
+package com.github.lisicnu.log4android.appender;
+
+import com.github.lisicnu.log4android.LogEvent;
+
+/**
+ * An <code>Appender</code> that logs the {@link LogEvent} created by the
+ * <code>Logger</code>, with the time, the thread name and the context data
+ * that were captured when the event happened. The appenders that only
+ * implement {@link Appender} are given the fields of the event through
+ * <code>doLog</code>, see {@link AbstractAppender#dispatch(Appender, LogEvent)}.
+ */
+public interface EventAppender extends Appender {
+
+    /**
+     * Do the logging of an event. The event belongs to the caller, it is
+     * recycled as soon as this method returns. An <code>Appender</code> that
+     * keeps the event, e.g. to log it on another thread, must call
+     * <code>retain()</code> on it and <code>release()</code> when done.
+     *
+     * @param event the event to log.
+     */
+    void append(LogEvent event);
+}
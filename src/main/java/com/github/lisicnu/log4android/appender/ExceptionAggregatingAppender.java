@@ -0,0 +1,486 @@
+package com.github.lisicnu.log4android.appender;
+
+import android.util.Log;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.Logger;
+import com.github.lisicnu.log4android.format.Formatter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An <code>Appender</code> that aggregates the events with a
+ * <code>Throwable</code> before they reach the wrapped <code>Appender</code>.
+ * Every throwable is fingerprinted by its type and its top frames. The first
+ * event with a fingerprint is logged with the full trace, the later ones are
+ * logged as a single line with the message, the id of the fingerprint and
+ * the number of times it has been seen, but without the trace.
+ * <p/>
+ * Once per interval a summary lists the fingerprints that were seen most
+ * often since the last summary, if any of them repeated. The summary is due
+ * at the next event, or, without events, at the latest when the daemon
+ * thread started by {@link #open()} checks it. The fingerprints are kept in
+ * a bounded table, the least recently seen one is forgotten when the table
+ * is full, and is logged in full again when it comes back.
+ */
+public class ExceptionAggregatingAppender implements EventAppender {
+    private static final String TAG = ExceptionAggregatingAppender.class.getSimpleName();
+
+    public static final int DEFAULT_FRAMES = 5;
+
+    public static final int DEFAULT_MAX_FINGERPRINTS = 256;
+
+    public static final long DEFAULT_SUMMARY_INTERVAL = 60000;
+
+    /**
+     * The number of fingerprints listed in a summary.
+     */
+    public static final int SUMMARY_SIZE = 10;
+
+    private static final String NEWLINE = System.getProperty("line.separator");
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * A fingerprint and the number of times it has been seen. The counts
+     * are guarded by the table.
+     */
+    private static final class Fingerprint {
+        final String id;
+        final String type;
+        final String frame;
+        long count;
+        long intervalCount;
+
+        Fingerprint(String id, Throwable throwable, StackTraceElement[] trace) {
+            this.id = id;
+            this.type = throwable.getClass().getName();
+            this.frame = trace.length > 0 ? trace[0].toString() : null;
+        }
+    }
+
+    private static final Comparator<Fingerprint> BY_INTERVAL_COUNT = new Comparator<Fingerprint>() {
+        public int compare(Fingerprint first, Fingerprint second) {
+            return first.intervalCount < second.intervalCount ? 1
+                    : first.intervalCount == second.intervalCount ? 0 : -1;
+        }
+    };
+
+    private final Appender appender;
+
+    private final int frames;
+
+    private final int maxFingerprints;
+
+    private final long summaryInterval;
+
+    /**
+     * The fingerprints in the order they were seen last, keyed by their hash.
+     */
+    private final LinkedHashMap<Long, Fingerprint> fingerprints;
+
+    /**
+     * The time at which the next summary is due.
+     */
+    private final AtomicLong nextSummary = new AtomicLong();
+
+    /**
+     * The client id and the times of the last event with a throwable, used
+     * for a summary that is not logged on an event. Guarded by the table.
+     */
+    private String lastClientID;
+
+    private long lastTimeNanos;
+
+    private long lastTimeMillis;
+
+    private Thread sweeper;
+
+    private volatile boolean sweeping;
+
+    /**
+     * Create an <code>ExceptionAggregatingAppender</code> with the default
+     * settings.
+     *
+     * @param appender the <code>Appender</code> that does the actual logging.
+     */
+    public ExceptionAggregatingAppender(Appender appender) {
+        this(appender, DEFAULT_FRAMES, DEFAULT_MAX_FINGERPRINTS, DEFAULT_SUMMARY_INTERVAL);
+    }
+
+    /**
+     * Create an <code>ExceptionAggregatingAppender</code>.
+     *
+     * @param appender        the <code>Appender</code> that does the actual logging.
+     * @param frames          the number of top frames in the fingerprint.
+     * @param maxFingerprints the number of fingerprints that are remembered.
+     * @param summaryInterval the time in milliseconds between the summaries.
+     * @throws IllegalArgumentException if the <code>appender</code> is <code>null</code>, or
+     *                                  <code>frames</code> is negative, or
+     *                                  <code>maxFingerprints</code> or the
+     *                                  <code>summaryInterval</code> is less than 1.
+     */
+    public ExceptionAggregatingAppender(Appender appender, int frames, final int maxFingerprints,
+                                        long summaryInterval) throws IllegalArgumentException {
+        if (appender == null) {
+            throw new IllegalArgumentException("The appender must not be null.");
+        }
+        if (frames < 0) {
+            throw new IllegalArgumentException("The number of frames must not be negative.");
+        }
+        if (maxFingerprints < 1) {
+            throw new IllegalArgumentException("The number of fingerprints must be at least 1.");
+        }
+        if (summaryInterval < 1) {
+            throw new IllegalArgumentException("The summary interval must be at least 1 ms.");
+        }
+
+        this.appender = appender;
+        this.frames = frames;
+        this.maxFingerprints = maxFingerprints;
+        this.summaryInterval = summaryInterval;
+        this.fingerprints = new LinkedHashMap<Long, Fingerprint>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Fingerprint> eldest) {
+                return size() > maxFingerprints;
+            }
+        };
+    }
+
+    /**
+     * Get the wrapped <code>Appender</code>.
+     *
+     * @return the <code>Appender</code> that does the actual logging.
+     */
+    public Appender getAppender() {
+        return appender;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public int getMaxFingerprints() {
+        return maxFingerprints;
+    }
+
+    /**
+     * Get the time between the summaries.
+     *
+     * @return the interval in milliseconds.
+     */
+    public long getSummaryInterval() {
+        return summaryInterval;
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#doLog(String, String, long,
+     * com.github.lisicnu.log4android.Level, Object, Throwable)
+     */
+    public void doLog(String clientID, String name, long time, Level level, Object message,
+                      Throwable t) {
+        LogEvent event = LogEvent.obtain(clientID, name, time, level, message, t);
+        try {
+            append(event);
+        } finally {
+            event.release();
+        }
+    }
+
+    /**
+     * Log the event in full if its throwable has not been seen, otherwise
+     * log a short line instead.
+     *
+     * @see com.github.lisicnu.log4android.appender.EventAppender#append(LogEvent)
+     */
+    public void append(LogEvent event) {
+        long now = event.getTimeMillis();
+        if (isSummaryDue(now)) {
+            appendSummary(event.getClientID(), event.getTimeNanos(), now);
+        }
+
+        Throwable throwable = event.getThrowable();
+        if (throwable == null) {
+            AbstractAppender.dispatch(appender, event);
+            return;
+        }
+
+        StackTraceElement[] trace = throwable.getStackTrace();
+        long hash = fingerprint(throwable, trace, frames);
+        Fingerprint fingerprint;
+        long count;
+        synchronized (fingerprints) {
+            lastClientID = event.getClientID();
+            lastTimeNanos = event.getTimeNanos();
+            lastTimeMillis = now;
+            Long key = Long.valueOf(hash);
+            fingerprint = fingerprints.get(key);
+            if (fingerprint == null) {
+                fingerprint = new Fingerprint(toId(hash), throwable, trace);
+                fingerprints.put(key, fingerprint);
+            }
+            count = ++fingerprint.count;
+            fingerprint.intervalCount++;
+        }
+
+        if (count == 1) {
+            AbstractAppender.dispatch(appender, event);
+            return;
+        }
+
+        Object message = event.getMessage();
+        StringBuilder buffer = new StringBuilder(128);
+        if (message != null) {
+            buffer.append(message);
+            buffer.append(' ');
+        }
+        buffer.append('[');
+        buffer.append(throwable);
+        buffer.append(" #");
+        buffer.append(fingerprint.id);
+        buffer.append(" seen ");
+        buffer.append(count);
+        buffer.append(" times]");
+
+        LogEvent shortEvent = LogEvent.obtain(event.getClientID(), event.getName(),
+                event.getTimeNanos(), now, event.getLevel(), buffer.toString(), null);
+        try {
+            AbstractAppender.dispatch(appender, shortEvent);
+        } finally {
+            shortEvent.release();
+        }
+    }
+
+    /**
+     * Check if the interval has passed, only one thread gets
+     * <code>true</code> per interval. The first call starts the first
+     * interval.
+     */
+    private boolean isSummaryDue(long now) {
+        long summary = nextSummary.get();
+        return now >= summary && nextSummary.compareAndSet(summary, now + summaryInterval)
+                && summary != 0;
+    }
+
+    /**
+     * Log the summary if it is due, at the current wall clock time and with
+     * the relative time that passed as much since the last throwable.
+     */
+    private void appendSummaryIfDue() {
+        long now = Logger.getClock().currentTimeMillis();
+        if (isSummaryDue(now)) {
+            appendSummary(now);
+        }
+    }
+
+    private void appendSummary(long now) {
+        String clientID;
+        long timeNanos;
+        synchronized (fingerprints) {
+            clientID = lastClientID;
+            timeNanos = lastTimeNanos + Math.max(0, now - lastTimeMillis) * NANOS_PER_MILLI;
+        }
+        appendSummary(clientID, timeNanos, now);
+    }
+
+    /**
+     * Compute the fingerprint of the type and the top frames.
+     */
+    static long fingerprint(Throwable throwable, StackTraceElement[] trace, int frames) {
+        long hash = throwable.getClass().getName().hashCode();
+        int count = Math.min(frames, trace.length);
+        for (int index = 0; index < count; index++) {
+            StackTraceElement element = trace[index];
+            hash = hash * 31 + element.getClassName().hashCode();
+            hash = hash * 31 + element.getMethodName().hashCode();
+            hash = hash * 31 + element.getLineNumber();
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static String toId(long hash) {
+        String id = Integer.toHexString((int) (hash ^ (hash >>> 32)));
+        return "00000000".substring(id.length()) + id;
+    }
+
+    /**
+     * Log the fingerprints that were seen most often since the last summary,
+     * if any of them was seen more than once. The counts of the interval are
+     * reset in any case.
+     */
+    private void appendSummary(String clientID, long timeNanos, long timeMillis) {
+        List<Fingerprint> seen = new ArrayList<Fingerprint>();
+        List<long[]> counts = new ArrayList<long[]>();
+        boolean repeated = false;
+        synchronized (fingerprints) {
+            for (Fingerprint fingerprint : fingerprints.values()) {
+                if (fingerprint.intervalCount > 0) {
+                    repeated |= fingerprint.count > 1;
+                    seen.add(fingerprint);
+                }
+            }
+
+            if (repeated) {
+                Collections.sort(seen, BY_INTERVAL_COUNT);
+                if (seen.size() > SUMMARY_SIZE) {
+                    seen = seen.subList(0, SUMMARY_SIZE);
+                }
+                for (Fingerprint fingerprint : seen) {
+                    counts.add(new long[]{fingerprint.intervalCount, fingerprint.count});
+                }
+            }
+            for (Fingerprint fingerprint : fingerprints.values()) {
+                fingerprint.intervalCount = 0;
+            }
+        }
+        if (!repeated) {
+            return;
+        }
+
+        StringBuilder buffer = new StringBuilder(128 * seen.size());
+        buffer.append("Most frequent exceptions since the last summary:");
+        for (int index = 0; index < seen.size(); index++) {
+            Fingerprint fingerprint = seen.get(index);
+            long[] count = counts.get(index);
+            buffer.append(NEWLINE);
+            buffer.append("\t#");
+            buffer.append(fingerprint.id);
+            buffer.append(' ');
+            buffer.append(count[0]);
+            buffer.append(" times (");
+            buffer.append(count[1]);
+            buffer.append(" in total) ");
+            buffer.append(fingerprint.type);
+            if (fingerprint.frame != null) {
+                buffer.append(" at ");
+                buffer.append(fingerprint.frame);
+            }
+        }
+
+        LogEvent summary = LogEvent.obtain(clientID, TAG, timeNanos, timeMillis, Level.WARN,
+                buffer.toString(), null);
+        try {
+            AbstractAppender.dispatch(appender, summary);
+        } finally {
+            summary.release();
+        }
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#clear()
+     */
+    public void clear() {
+        appender.clear();
+    }
+
+    /**
+     * Open the wrapped appender and start the thread that logs the summary
+     * when no event comes.
+     *
+     * @see com.github.lisicnu.log4android.appender.Appender#open()
+     */
+    public synchronized void open() throws IOException {
+        appender.open();
+
+        if (sweeper == null) {
+            sweeping = true;
+            sweeper = new Thread(new Runnable() {
+                public void run() {
+                    summarizePeriodically();
+                }
+            }, "Log4Android-" + TAG);
+            sweeper.setDaemon(true);
+            sweeper.start();
+        }
+    }
+
+    private void summarizePeriodically() {
+        while (sweeping) {
+            try {
+                Thread.sleep(summaryInterval);
+            } catch (InterruptedException e) {
+                // Checked by the loop condition.
+            }
+            if (sweeping) {
+                try {
+                    appendSummaryIfDue();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "The wrapped appender failed to log. " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the thread, log the pending summary and close the wrapped
+     * appender.
+     *
+     * @see com.github.lisicnu.log4android.appender.Appender#close()
+     */
+    public synchronized void close() throws IOException {
+        if (sweeper != null) {
+            sweeping = false;
+            sweeper.interrupt();
+            if (sweeper != Thread.currentThread()) {
+                try {
+                    sweeper.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sweeper = null;
+        }
+
+        appendSummary(Logger.getClock().currentTimeMillis());
+        appender.close();
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#isLogOpen()
+     */
+    public boolean isLogOpen() {
+        return appender.isLogOpen();
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#getLogSize()
+     */
+    public long getLogSize() {
+        return appender.getLogSize();
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#setFormatter(com.github.lisicnu.log4android.format.Formatter)
+     */
+    public void setFormatter(Formatter formatter) {
+        appender.setFormatter(formatter);
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.appender.Appender#getFormatter()
+     */
+    public Formatter getFormatter() {
+        return appender.getFormatter();
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        return TAG + '[' + appender + ']';
+    }
+}
@@ -20,11 +20,20 @@ import android.os.Environment;
 import android.util.Log;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.format.BufferedFormatter;
+import com.github.lisicnu.log4android.format.Formatter;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Random;
@@ -49,6 +58,69 @@ public class FileAppender extends AbstractAppender {
 
     private PrintWriter writer;
 
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final int BYTE_BUFFER_SIZE = 8192;
+
+    /**
+     * The size above which the line buffer of a thread is replaced after the
+     * line has been written.
+     */
+    private static final int MAX_LINE_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * The buffers a thread formats a line into in the garbage free mode. A
+     * line that is logged while the buffer is in use, e.g. by the
+     * <code>toString()</code> of a message, gets a new buffer.
+     */
+    private static final class LineBuffer {
+        final StringBuilder builder = new StringBuilder(256);
+        char[] chars = new char[256];
+        CharBuffer charBuffer = CharBuffer.wrap(chars);
+        boolean inUse;
+
+        /**
+         * Copy the builder into the reused <code>char</code> array.
+         *
+         * @return the characters of the line, ready to be encoded.
+         */
+        CharBuffer toCharBuffer() {
+            int length = builder.length();
+            if (length > chars.length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+                charBuffer = CharBuffer.wrap(chars);
+            }
+            builder.getChars(0, length, chars, 0);
+            charBuffer.clear();
+            charBuffer.limit(length);
+            return charBuffer;
+        }
+    }
+
+    private static final ThreadLocal<LineBuffer> lineBuffer = new ThreadLocal<LineBuffer>() {
+        @Override
+        protected LineBuffer initialValue() {
+            return new LineBuffer();
+        }
+    };
+
+    /**
+     * In the garbage free mode a line is formatted into a reused buffer and
+     * written through a reused encoder, so logging does not allocate.
+     */
+    private volatile boolean garbageFree = false;
+
+    private FileOutputStream outputStream;
+
+    private CharsetEncoder encoder;
+
+    private ByteBuffer byteBuffer;
+
+    /**
+     * The size of the log file, tracked in the garbage free mode.
+     */
+    private long fileSize;
+
     private File mLogFile = null;
 
     Context mContext = null;
@@ -159,6 +231,22 @@ public class FileAppender extends AbstractAppender {
 //        Log.v(TAG, wrapFormat);
     }
 
+    public boolean isGarbageFree() {
+        return garbageFree;
+    }
+
+    /**
+     * Enable or disable the garbage free mode. In this mode the formatter, if
+     * it is a {@link com.github.lisicnu.log4android.format.BufferedFormatter},
+     * formats into a per thread buffer, which is encoded into a reused byte
+     * buffer and written to the file. No objects are created per logged line.
+     *
+     * @param garbageFree <code>true</code> to enable the garbage free mode.
+     */
+    public synchronized void setGarbageFree(boolean garbageFree) {
+        this.garbageFree = garbageFree;
+    }
+
     /**
      * Create a file appender using the specified application context. Note:
      * your application must hold android.permission.WRITE_EXTERNAL_STORAGE to
@@ -205,6 +293,16 @@ public class FileAppender extends AbstractAppender {
 
         writer = new PrintWriter(fileOutputStream);
         writer.println("\r\n##########################################################\r\n");
+        writer.flush();
+
+        outputStream = fileOutputStream;
+        if (encoder == null) {
+            encoder = Charset.defaultCharset().newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            byteBuffer = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        }
+        fileSize = logFile.length();
         logOpen = true;
     }
 
@@ -230,19 +328,54 @@ public class FileAppender extends AbstractAppender {
     }
 
     @Override
-    public synchronized void doLog(String clientID, String name, long time, Level level,
-                                   Object message, Throwable throwable) {
-        if (logOpen && formatter != null && writer != null) {
-            writer.println(formatter.format(clientID, name, time, level, message, throwable));
-            writer.flush();
-
-            if (throwable != null) {
-                throwable.printStackTrace();
+    public void doLog(String clientID, String name, long time, Level level,
+                      Object message, Throwable throwable) {
+        appendEvent(clientID, name, time, level, message, throwable);
+    }
+
+    /**
+     * Format the event and write it to the file. The formatting is done
+     * without holding the lock of the appender, only the writing is
+     * serialized.
+     */
+    @Override
+    protected void doAppend(LogEvent event) {
+        Formatter currentFormatter = formatter;
+        if (currentFormatter == null) {
+            Log.e(TAG, "Please set a formatter.");
+            return;
+        }
+
+        if (garbageFree && currentFormatter instanceof BufferedFormatter) {
+            LineBuffer line = acquireLineBuffer();
+            try {
+                formatLine((BufferedFormatter) currentFormatter, event, line);
+                synchronized (this) {
+                    write(line, null);
+                }
+            } finally {
+                releaseLineBuffer(line);
+            }
+        } else {
+            String text = format(event);
+            synchronized (this) {
+                write(null, text);
+            }
+        }
+    }
+
+    private void write(LineBuffer line, String text) {
+        if (logOpen && writer != null) {
+            if (line != null) {
+                writeLine(line);
+            } else {
+                writer.println(text);
+                writer.flush();
             }
 
             if (wraper != null && wraper.isWrapFile()
                     && wraper.wrapSize != WrapFormatter.NO_WRAP
-                    && mLogFile.length() > wraper.wrapSize) {
+                    && (garbageFree ? fileSize : mLogFile.length()) > wraper.wrapSize) {
                 try {
                     close();
                 } catch (IOException e1) {
@@ -256,10 +389,75 @@ public class FileAppender extends AbstractAppender {
                 }
             }
 
-        } else if (formatter == null) {
-            Log.e(TAG, "Please set a formatter.");
         }
+    }
+
+    /**
+     * Take the line buffer of the current thread, or a new one if it is in
+     * use.
+     */
+    private static LineBuffer acquireLineBuffer() {
+        LineBuffer line = lineBuffer.get();
+        if (line.inUse) {
+            return new LineBuffer();
+        }
+        line.inUse = true;
+        return line;
+    }
+
+    /**
+     * Give the line buffer back, and replace it if a long line made it grow
+     * beyond the maximum size.
+     */
+    private static void releaseLineBuffer(LineBuffer line) {
+        if (lineBuffer.get() != line) {
+            return;
+        }
+        if (line.builder.capacity() > MAX_LINE_BUFFER_SIZE
+                || line.chars.length > MAX_LINE_BUFFER_SIZE) {
+            lineBuffer.set(new LineBuffer());
+        }
+        line.inUse = false;
+    }
+
+    /**
+     * Format the line into the buffer.
+     */
+    private static void formatLine(BufferedFormatter formatter, LogEvent event,
+                                   LineBuffer line) {
+        StringBuilder builder = line.builder;
+        builder.setLength(0);
+        formatter.format(builder, event);
+        builder.append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write the formatted line through the reused encoder.
+     */
+    private void writeLine(LineBuffer line) {
+        CharBuffer chars = line.toCharBuffer();
+        try {
+            encoder.reset();
+            CoderResult result = encoder.encode(chars, byteBuffer, true);
+            while (result.isOverflow()) {
+                writeBytes();
+                result = encoder.encode(chars, byteBuffer, true);
+            }
+            while (encoder.flush(byteBuffer).isOverflow()) {
+                writeBytes();
+            }
+            writeBytes();
+        } catch (IOException e) {
+            byteBuffer.clear();
+            Log.e(TAG, "Failed to write the log file. " + e);
+        }
+    }
 
+    private void writeBytes() throws IOException {
+        int length = byteBuffer.position();
+        outputStream.write(byteBuffer.array(), 0, length);
+        fileSize += length;
+        byteBuffer.clear();
     }
 
     public long getLogSize() {
@@ -3,6 +3,7 @@ package com.github.lisicnu.log4android.appender;
 import android.util.Log;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 import java.io.IOException;
 
@@ -16,26 +17,32 @@ public class LogCatAppender extends AbstractAppender {
 
 	@Override
 	public void doLog(String clientID, String name, long time, Level level, Object message, Throwable t) {
+		appendEvent(clientID, name, time, level, message, t);
+	}
+
+	@Override
+	protected void doAppend(LogEvent event) {
 
 		if (logOpen && formatter != null) {
+			String clientID = event.getClientID();
 						
-			switch (level) {
+			switch (event.getLevel()) {
 			case FATAL:
 			case ERROR:
-				Log.e(clientID, formatter.format(clientID, name, time, level, message, t));
+				Log.e(clientID, format(event));
 				break;
 			
 			case WARN:
-				Log.w(clientID, formatter.format(clientID, name, time, level, message, t));
+				Log.w(clientID, format(event));
 				break;
 			
 			case INFO:
-				Log.i(clientID, formatter.format(clientID, name, time, level, message, t));
+				Log.i(clientID, format(event));
 				break;
 				
 			case DEBUG:
 			case TRACE:
-				Log.d(clientID, formatter.format(clientID, name, time, level, message, t));
+				Log.d(clientID, format(event));
 				break;
 			default:
 				break;
@@ -3,7 +3,7 @@
  */
 package com.github.lisicnu.log4android.appender;
 
-import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 
 /**
@@ -24,18 +24,13 @@ public class SyslogAppender extends DatagramAppender {
 	}
 	
 	/**
-	 * Do the logging.
-	 * @param level
-	 *            the level to use for the logging.
-	 * @param message
-	 *            the message to log.
-	 * @param t
-	 *            the exception to log.
+	 * Do the logging of an event.
+	 * @param event
+	 *            the event to log.
 	 */
-	public void doLog(String clientID, String name, long time, Level level,
-			Object message, Throwable t) {
+	protected void doAppend(LogEvent event) {
 		if (logOpen && formatter != null) {
-			sendMessage(syslogMessage.createMessageData(formatter.format(clientID, name, time, level, message, t)));
+			sendMessage(syslogMessage.createMessageData(format(event), event.getTimeMillis()));
 		}
 	}
 
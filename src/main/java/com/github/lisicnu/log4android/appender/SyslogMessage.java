@@ -15,7 +15,6 @@
 package com.github.lisicnu.log4android.appender;
 
 import java.util.Calendar;
-import java.util.Date;
 import java.util.TimeZone;
 
 /**
@@ -115,6 +114,22 @@ public class SyslogMessage {
 	 *         data.
 	 */
 	public String createMessageData(String message) {
+		return createMessageData(message, System.currentTimeMillis());
+	}
+
+	/**
+	 * Create the syslog message data for a message logged at the specified
+	 * time, that is consequently wrapped in a datagram.
+	 * 
+	 * @param message
+	 *            the message to include.
+	 * @param time
+	 *            the time of the message in milliseconds, used for the
+	 *            TIMESTAMP field of the header.
+	 * @return a <code>String</code> object representing the syslog message
+	 *         data.
+	 */
+	public synchronized String createMessageData(String message, long time) {
 
 		messageStringBuffer.delete(0, messageStringBuffer.length());
 
@@ -128,8 +143,7 @@ public class SyslogMessage {
 		if (header) {
 			// Add the TIMESTAMP field of the HEADER
 			// Time format is "Mmm dd hh:mm:ss". For more info see rfc3164.
-			long currentTime = System.currentTimeMillis();
-			calendar.setTime(new Date(currentTime));
+			calendar.setTimeInMillis(time);
 
 			messageStringBuffer.append(SyslogMessage.MONTHS[calendar
 					.get(Calendar.MONTH)]);
@@ -9,9 +9,17 @@ import android.content.res.Resources;
 import android.content.res.Resources.NotFoundException;
 import android.util.Log;
 
+import com.github.lisicnu.log4android.CachedClock;
+import com.github.lisicnu.log4android.Clock;
 import com.github.lisicnu.log4android.Level;
 import com.github.lisicnu.log4android.Logger;
+import com.github.lisicnu.log4android.RateLimiter;
+import com.github.lisicnu.log4android.Sampler;
+import com.github.lisicnu.log4android.SystemTimeClock;
 import com.github.lisicnu.log4android.appender.Appender;
+import com.github.lisicnu.log4android.appender.AsyncAppender;
+import com.github.lisicnu.log4android.appender.DuplicateSuppressingAppender;
+import com.github.lisicnu.log4android.appender.ExceptionAggregatingAppender;
 import com.github.lisicnu.log4android.appender.FileAppender;
 import com.github.lisicnu.log4android.format.Formatter;
 import com.github.lisicnu.log4android.format.PatternFormatter;
@@ -23,7 +31,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
 
@@ -47,9 +57,21 @@ public class Configurator {
     public static final String ROOT_LOGGER_KEY = "microlog.rootLogger";
     public static final String MICROLOG_PREFIX = "microlog";
     /**
-     * The key for setting the logger.
+     * The key prefix for setting the level of a logger, i.e.
+     * <code>microlog.logger.[name]=[level]</code>.
      */
     public static final String LOGGER_PREFIX_KEY = "microlog.logger";
+    /**
+     * The key prefix for limiting the events per second of a part of the
+     * logger hierarchy, i.e.
+     * <code>microlog.ratelimit.[name]=[rate][,burst][,level]</code>.
+     */
+    public static final String RATE_LIMIT_PREFIX_KEY = "microlog.ratelimit";
+    /**
+     * The key prefix for sampling a part of the logger hierarchy, i.e.
+     * <code>microlog.sampling.[name]=[rate][,level][,[level]=[rate]...][,key=[context key]]</code>.
+     */
+    public static final String SAMPLING_PREFIX_KEY = "microlog.sampling";
     /**
      * The key for setting the formatter.
      */
@@ -70,6 +92,65 @@ public class Configurator {
      * The key for setting file's options.
      */
     public static final String FILE_APPENDER_WRAP_PREFIX_KEY = "microlog.appender.FileAppender.Options";
+    /**
+     * The key for enabling the garbage free mode of the FileAppender.
+     */
+    public static final String FILE_APPENDER_GARBAGE_FREE_KEY = "microlog.appender.FileAppender.GarbageFree";
+    /**
+     * The key for logging through an {@link com.github.lisicnu.log4android.appender.AsyncAppender}.
+     */
+    public static final String ASYNC_APPENDER_KEY = "microlog.appender.Async";
+    /**
+     * The key for setting the ring buffer size of the asynchronous appenders.
+     */
+    public static final String ASYNC_APPENDER_BUFFER_SIZE_KEY = "microlog.appender.Async.BufferSize";
+    /**
+     * The key for setting the overflow policy of the asynchronous appenders.
+     */
+    public static final String ASYNC_APPENDER_POLICY_KEY = "microlog.appender.Async.OverflowPolicy";
+    /**
+     * The key for setting the drop threshold of the asynchronous appenders.
+     */
+    public static final String ASYNC_APPENDER_DROP_LEVEL_KEY = "microlog.appender.Async.DropLevel";
+    /**
+     * The key for collapsing repeated events of every appender.
+     */
+    public static final String SUPPRESS_DUPLICATES_KEY = "microlog.appender.SuppressDuplicates";
+    /**
+     * The key for setting the number of recent events that are compared.
+     */
+    public static final String SUPPRESS_DUPLICATES_SLOTS_KEY = "microlog.appender.SuppressDuplicates.Slots";
+    /**
+     * The key for setting the time after which a summary of the duplicates is
+     * logged, in milliseconds.
+     */
+    public static final String SUPPRESS_DUPLICATES_WINDOW_KEY = "microlog.appender.SuppressDuplicates.Window";
+    /**
+     * The key for aggregating the repeated exceptions of every appender.
+     */
+    public static final String AGGREGATE_EXCEPTIONS_KEY = "microlog.appender.AggregateExceptions";
+    /**
+     * The key for setting the number of top frames that identify an exception.
+     */
+    public static final String AGGREGATE_EXCEPTIONS_FRAMES_KEY = "microlog.appender.AggregateExceptions.Frames";
+    /**
+     * The key for setting the number of exception fingerprints that are
+     * remembered.
+     */
+    public static final String AGGREGATE_EXCEPTIONS_MAX_KEY = "microlog.appender.AggregateExceptions.MaxFingerprints";
+    /**
+     * The key for setting the time between the exception summaries, in
+     * milliseconds.
+     */
+    public static final String AGGREGATE_EXCEPTIONS_INTERVAL_KEY = "microlog.appender.AggregateExceptions.SummaryInterval";
+    /**
+     * The key for choosing the clock of the logging events, System or Cached.
+     */
+    public static final String CLOCK_KEY = "microlog.clock";
+    /**
+     * The key for setting the resolution of the cached clock in milliseconds.
+     */
+    public static final String CLOCK_RESOLUTION_KEY = "microlog.clock.Resolution";
     /**
      * The key for setting the level.
      */
@@ -78,6 +159,10 @@ public class Configurator {
      * The key for add default logger or not.
      */
     public static final String LOG_ADD_DEFAULT_LOGGER = "microlog.addDefaultLogger";
+    /**
+     * The key for the maximum number of leaf loggers, 0 keeps all of them.
+     */
+    public static final String MAX_LOGGERS_KEY = "microlog.maxLoggers";
     /**
      * The key for setting the logging tag.
      */
@@ -86,10 +171,12 @@ public class Configurator {
     public static final String[] APPENDER_CLASS_NAMES = {
             "com.github.lisicnu.log4android.appender.LogCatAppender",
             "com.github.lisicnu.log4android.appender.FileAppender"};
-    public static final String[] FORMATTER_ALIASES = {"SimpleFormatter", "PatternFormatter"};
+    public static final String[] FORMATTER_ALIASES = {"SimpleFormatter", "PatternFormatter",
+            "JsonFormatter"};
     public static final String[] FORMATTER_CLASS_NAMES = {
             "com.github.lisicnu.log4android.format.SimpleFormatter",
-            "com.github.lisicnu.log4android.format.PatternFormatter"};
+            "com.github.lisicnu.log4android.format.PatternFormatter",
+            "com.github.lisicnu.log4android.format.JsonFormatter"};
     private static final String TAG = Configurator.class.getSimpleName();
     private static final HashMap<String, String> appenderAliases = new HashMap<String, String>(43);
     private static final HashMap<String, String> formatterAliases = new HashMap<String, String>(21);
@@ -217,6 +304,16 @@ public class Configurator {
     synchronized private void configureSimpleStyle(Properties properties) {
         setLevel(properties);
 
+        setLoggerLevels(properties);
+
+        setMaxLoggers(properties);
+
+        setRateLimiters(properties);
+
+        setSamplers(properties);
+
+        setClock(properties);
+
         String appenderString = properties.getProperty(Configurator.APPENDER_PREFIX_KEY,
                 "LogCatAppender");
 
@@ -246,6 +343,204 @@ public class Configurator {
 
     }
 
+    /**
+     * Set the level of every logger that is configured with
+     * <code>microlog.logger.[name]=[level]</code>. The name of a logger used
+     * through <code>LogManager</code> is its tag.
+     */
+    private void setLoggerLevels(Properties properties) {
+        String prefix = LOGGER_PREFIX_KEY + '.';
+        Map<String, Level> levels = new HashMap<String, Level>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(prefix) || key.length() == prefix.length()) {
+                continue;
+            }
+
+            String name = key.substring(prefix.length());
+            String levelString = properties.getProperty(key).trim();
+            try {
+                levels.put(name, stringToLevel(levelString));
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Unknown level " + levelString + " for logger " + name);
+            }
+        }
+
+        if (!levels.isEmpty()) {
+            loggerRepository.setLevels(levels);
+        }
+    }
+
+    private void setMaxLoggers(Properties properties) {
+        String maxString = properties.getProperty(MAX_LOGGERS_KEY);
+        if (maxString == null) {
+            return;
+        }
+
+        try {
+            loggerRepository.setMaxLeafLoggers(Integer.parseInt(maxString.trim()));
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid maximum number of loggers " + maxString);
+        }
+    }
+
+    /**
+     * Set the rate limiters that are configured with
+     * <code>microlog.ratelimit.[name]=[rate][,burst][,level]</code>, or
+     * <code>microlog.ratelimit=...</code> for the root logger. The burst
+     * defaults to one second worth of events, the level to all levels.
+     */
+    private void setRateLimiters(Properties properties) {
+        String prefix = RATE_LIMIT_PREFIX_KEY + '.';
+        for (String key : properties.stringPropertyNames()) {
+            String name;
+            if (key.equals(RATE_LIMIT_PREFIX_KEY)) {
+                name = "";
+            } else if (key.startsWith(prefix) && key.length() > prefix.length()) {
+                name = key.substring(prefix.length());
+            } else {
+                continue;
+            }
+
+            String limitString = properties.getProperty(key);
+            try {
+                loggerRepository.setRateLimiter(name, parseRateLimiter(limitString));
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Invalid rate limit " + limitString + " for logger " + name + ". "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    private RateLimiter parseRateLimiter(String limitString) throws IllegalArgumentException {
+        StringTokenizer tokenizer = new StringTokenizer(limitString, ",");
+        if (!tokenizer.hasMoreTokens()) {
+            throw new IllegalArgumentException("The rate is missing.");
+        }
+
+        double rate = Double.parseDouble(tokenizer.nextToken().trim());
+        int burst = (int) Math.min(Integer.MAX_VALUE, Math.ceil(rate));
+        Level level = Level.FATAL;
+        while (tokenizer.hasMoreTokens()) {
+            String token = tokenizer.nextToken().trim();
+            if (token.length() > 0 && Character.isDigit(token.charAt(0))) {
+                burst = Integer.parseInt(token);
+            } else {
+                level = stringToLevel(token);
+            }
+        }
+
+        return new RateLimiter(rate, burst, level);
+    }
+
+    /**
+     * Set the samplers that are configured with
+     * <code>microlog.sampling.[name]=[rate][,level][,key=[context key]]</code>,
+     * or <code>microlog.sampling=...</code> for the root logger. The level
+     * defaults to <code>DEBUG</code>, without a key the events are picked at
+     * random. The rates of single levels are given as
+     * <code>[level]=[rate]</code>, e.g. <code>TRACE=100,DEBUG=10</code>, and
+     * take precedence over the rate of all the levels.
+     */
+    private void setSamplers(Properties properties) {
+        String prefix = SAMPLING_PREFIX_KEY + '.';
+        for (String key : properties.stringPropertyNames()) {
+            String name;
+            if (key.equals(SAMPLING_PREFIX_KEY)) {
+                name = "";
+            } else if (key.startsWith(prefix) && key.length() > prefix.length()) {
+                name = key.substring(prefix.length());
+            } else {
+                continue;
+            }
+
+            String samplingString = properties.getProperty(key);
+            try {
+                loggerRepository.setSampler(name, parseSampler(samplingString));
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Invalid sampling " + samplingString + " for logger " + name + ". "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parse the value of a <code>microlog.sampling</code> key.
+     *
+     * @param samplingString the value.
+     * @return the sampler.
+     * @throws IllegalArgumentException if the value is invalid.
+     */
+    static Sampler parseSampler(String samplingString) throws IllegalArgumentException {
+        StringTokenizer tokenizer = new StringTokenizer(samplingString, ",");
+        int rate = 0;
+        Level level = Level.DEBUG;
+        String contextKey = null;
+        Map<Level, Integer> levelRates = new LinkedHashMap<Level, Integer>();
+        while (tokenizer.hasMoreTokens()) {
+            String token = tokenizer.nextToken().trim();
+            int separator = token.indexOf('=');
+            if (token.startsWith("key=")) {
+                contextKey = token.substring(4).trim();
+            } else if (separator > 0) {
+                levelRates.put(stringToLevel(token.substring(0, separator).trim()),
+                        Integer.valueOf(Integer.parseInt(token.substring(separator + 1).trim())));
+            } else if (token.length() > 0 && Character.isDigit(token.charAt(0))) {
+                rate = Integer.parseInt(token);
+            } else {
+                level = stringToLevel(token);
+            }
+        }
+
+        if (rate == 0 && levelRates.isEmpty()) {
+            throw new IllegalArgumentException("The rate is missing.");
+        }
+
+        Sampler sampler = rate != 0 ? new Sampler(rate, level, contextKey)
+                : new Sampler(contextKey);
+        for (Map.Entry<Level, Integer> entry : levelRates.entrySet()) {
+            sampler = sampler.withRate(entry.getKey(), entry.getValue().intValue());
+        }
+        return sampler;
+    }
+
+    private void setClock(Properties properties) {
+        String clockString = properties.getProperty(CLOCK_KEY);
+        if (clockString == null) {
+            return;
+        }
+
+        Clock clock;
+        if ("Cached".equalsIgnoreCase(clockString.trim())) {
+            long resolution = CachedClock.DEFAULT_RESOLUTION;
+            String resolutionString = properties.getProperty(CLOCK_RESOLUTION_KEY);
+            if (resolutionString != null) {
+                try {
+                    resolution = Long.parseLong(resolutionString.trim());
+                } catch (NumberFormatException e) {
+                    Log.e(TAG, "Failed to parse the clock resolution " + e);
+                }
+            }
+
+            try {
+                clock = new CachedClock(resolution);
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Invalid clock resolution " + resolution + ", using the default.");
+                clock = new CachedClock();
+            }
+        } else if ("System".equalsIgnoreCase(clockString.trim())) {
+            clock = SystemTimeClock.INSTANCE;
+        } else {
+            Log.e(TAG, "Unknown clock " + clockString);
+            return;
+        }
+
+        Clock previous = Logger.getClock();
+        Logger.setClock(clock);
+        if (previous instanceof CachedClock) {
+            ((CachedClock) previous).stop();
+        }
+    }
+
     private List<String> parseAppenderString(String appenderString) {
         StringTokenizer tokenizer = new StringTokenizer(appenderString, ";,");
         List<String> appenderList = new ArrayList<String>();
@@ -281,6 +576,15 @@ public class Configurator {
                 if (appender instanceof FileAppender)
                     setPropertiesForFileAppender(appender, properties);
 
+                if (Boolean.parseBoolean(properties.getProperty(ASYNC_APPENDER_KEY)))
+                    appender = createAsyncAppender(appender, properties);
+
+                if (Boolean.parseBoolean(properties.getProperty(AGGREGATE_EXCEPTIONS_KEY)))
+                    appender = createExceptionAggregatingAppender(appender, properties);
+
+                if (Boolean.parseBoolean(properties.getProperty(SUPPRESS_DUPLICATES_KEY)))
+                    appender = createDuplicateSuppressingAppender(appender, properties);
+
                 Log.i(TAG, "Adding appender " + appender.getClass().getName());
                 rootLogger.addAppender(appender);
             }
@@ -304,9 +608,119 @@ public class Configurator {
         // wrap format
         String append_string = properties.getProperty(FILE_APPENDER_WRAP_PREFIX_KEY, "");
         ((FileAppender) appender).setWrapFormat(append_string);
+        ((FileAppender) appender).setGarbageFree(Boolean.parseBoolean(
+                properties.getProperty(FILE_APPENDER_GARBAGE_FREE_KEY)));
         ((FileAppender) appender).setContext(context);
     }
 
+    private Appender createExceptionAggregatingAppender(Appender appender, Properties properties) {
+        int frames = ExceptionAggregatingAppender.DEFAULT_FRAMES;
+        String framesString = properties.getProperty(AGGREGATE_EXCEPTIONS_FRAMES_KEY);
+        if (framesString != null) {
+            try {
+                frames = Integer.parseInt(framesString.trim());
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Failed to parse the number of exception frames " + e);
+            }
+        }
+
+        int maxFingerprints = ExceptionAggregatingAppender.DEFAULT_MAX_FINGERPRINTS;
+        String maxString = properties.getProperty(AGGREGATE_EXCEPTIONS_MAX_KEY);
+        if (maxString != null) {
+            try {
+                maxFingerprints = Integer.parseInt(maxString.trim());
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Failed to parse the number of exception fingerprints " + e);
+            }
+        }
+
+        long interval = ExceptionAggregatingAppender.DEFAULT_SUMMARY_INTERVAL;
+        String intervalString = properties.getProperty(AGGREGATE_EXCEPTIONS_INTERVAL_KEY);
+        if (intervalString != null) {
+            try {
+                interval = Long.parseLong(intervalString.trim());
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Failed to parse the exception summary interval " + e);
+            }
+        }
+
+        try {
+            return new ExceptionAggregatingAppender(appender, frames, maxFingerprints, interval);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid exception aggregation settings, using the defaults. " + e);
+            return new ExceptionAggregatingAppender(appender);
+        }
+    }
+
+    private Appender createDuplicateSuppressingAppender(Appender appender, Properties properties) {
+        int slots = DuplicateSuppressingAppender.DEFAULT_SLOTS;
+        String slotsString = properties.getProperty(SUPPRESS_DUPLICATES_SLOTS_KEY);
+        if (slotsString != null) {
+            try {
+                slots = Integer.parseInt(slotsString.trim());
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Failed to parse the number of duplicate slots " + e);
+            }
+        }
+
+        long window = DuplicateSuppressingAppender.DEFAULT_WINDOW;
+        String windowString = properties.getProperty(SUPPRESS_DUPLICATES_WINDOW_KEY);
+        if (windowString != null) {
+            try {
+                window = Long.parseLong(windowString.trim());
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Failed to parse the duplicate window " + e);
+            }
+        }
+
+        try {
+            return new DuplicateSuppressingAppender(appender, slots, window);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid duplicate suppression settings, using the defaults. " + e);
+            return new DuplicateSuppressingAppender(appender);
+        }
+    }
+
+    private Appender createAsyncAppender(Appender appender, Properties properties) {
+        int bufferSize = AsyncAppender.DEFAULT_BUFFER_SIZE;
+        String bufferSizeString = properties.getProperty(ASYNC_APPENDER_BUFFER_SIZE_KEY);
+        if (bufferSizeString != null) {
+            try {
+                bufferSize = Integer.parseInt(bufferSizeString.trim());
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Failed to parse the async buffer size " + e);
+            }
+        }
+
+        AsyncAppender asyncAppender;
+        try {
+            asyncAppender = new AsyncAppender(appender, bufferSize);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid async buffer size " + bufferSize + ", using the default.");
+            asyncAppender = new AsyncAppender(appender);
+        }
+
+        String policyString = properties.getProperty(ASYNC_APPENDER_POLICY_KEY);
+        if (policyString != null) {
+            try {
+                asyncAppender.setOverflowPolicy(AsyncAppender.OverflowPolicy.valueOf(policyString.trim()));
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Unknown async overflow policy " + policyString);
+            }
+        }
+
+        String dropLevelString = properties.getProperty(ASYNC_APPENDER_DROP_LEVEL_KEY);
+        if (dropLevelString != null) {
+            try {
+                asyncAppender.setDropThreshold(stringToLevel(dropLevelString.trim()));
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Unknown async drop level " + dropLevelString);
+            }
+        }
+
+        return asyncAppender;
+    }
+
     private void setFormatter(Properties properties) {
 
         String formatterString = (String) properties.getProperty(FORMATTER_PREFIX_KEY,
@@ -359,7 +773,7 @@ public class Configurator {
      * @return the level that corresponds to the levelString if it was a valid
      * <code>String</code>, <code>null</code> otherwise.
      */
-    private Level stringToLevel(String levelString) {
+    private static Level stringToLevel(String levelString) {
         return Level.valueOf(levelString);
     }
 
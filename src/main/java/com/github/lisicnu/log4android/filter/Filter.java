@@ -0,0 +1,41 @@
+package com.github.lisicnu.log4android.filter;
+
+import com.github.lisicnu.log4android.LogEvent;
+
+/**
+ * A <code>Filter</code> decides whether an event is logged. Filters can be
+ * added to a <code>Logger</code> and to an <code>AbstractAppender</code>,
+ * they see the event with the raw message, before it is formatted.
+ * <p/>
+ * The filters are asked in the order they were added. The first one that
+ * returns {@link Result#ACCEPT} or {@link Result#DENY} decides, the other
+ * filters are skipped. An event that no filter accepts or denies is logged.
+ */
+public interface Filter {
+
+    /**
+     * The decision of a <code>Filter</code>.
+     */
+    enum Result {
+        /**
+         * Log the event without asking the remaining filters.
+         */
+        ACCEPT,
+        /**
+         * Drop the event without asking the remaining filters.
+         */
+        DENY,
+        /**
+         * Leave the decision to the remaining filters.
+         */
+        NEUTRAL
+    }
+
+    /**
+     * Decide whether the event is logged.
+     *
+     * @param event the event to check.
+     * @return the decision, never <code>null</code>.
+     */
+    Result decide(LogEvent event);
+}
@@ -0,0 +1,137 @@
+package com.github.lisicnu.log4android.filter;
+
+import com.github.lisicnu.log4android.LogEvent;
+
+/**
+ * An immutable list of filters. Adding or removing a filter creates a new
+ * chain, so a chain can be read by the logging threads without locking.
+ * Adjacent <code>LoggerNameFilter</code> objects are merged into one, so a
+ * growing number of name rules does not make the chain longer.
+ */
+public final class FilterChain {
+
+    public static final FilterChain EMPTY = new FilterChain(new Filter[0]);
+
+    /**
+     * The filters as they were added.
+     */
+    private final Filter[] filters;
+
+    /**
+     * The filters that are asked, with the adjacent name filters merged.
+     */
+    private final Filter[] compiled;
+
+    private FilterChain(Filter[] filters) {
+        this.filters = filters;
+        this.compiled = compile(filters);
+    }
+
+    private static Filter[] compile(Filter[] filters) {
+        Filter[] compiled = new Filter[filters.length];
+        int count = 0;
+        for (Filter filter : filters) {
+            if (count > 0 && filter instanceof LoggerNameFilter
+                    && compiled[count - 1] instanceof LoggerNameFilter) {
+                compiled[count - 1] = ((LoggerNameFilter) compiled[count - 1])
+                        .merge((LoggerNameFilter) filter);
+            } else {
+                compiled[count++] = filter;
+            }
+        }
+
+        if (count == compiled.length) {
+            return compiled;
+        }
+        Filter[] trimmed = new Filter[count];
+        System.arraycopy(compiled, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    /**
+     * Get a chain with the filter added at the end.
+     *
+     * @param filter the filter to add.
+     * @return the new chain.
+     * @throws IllegalArgumentException if the <code>filter</code> is <code>null</code>.
+     */
+    public FilterChain add(Filter filter) throws IllegalArgumentException {
+        if (filter == null) {
+            throw new IllegalArgumentException("The filter must not be null.");
+        }
+
+        Filter[] updated = new Filter[filters.length + 1];
+        System.arraycopy(filters, 0, updated, 0, filters.length);
+        updated[filters.length] = filter;
+        return new FilterChain(updated);
+    }
+
+    /**
+     * Get a chain without the filter.
+     *
+     * @param filter the filter to remove.
+     * @return the new chain, or this chain if it does not contain the filter.
+     */
+    public FilterChain remove(Filter filter) {
+        for (int index = 0; index < filters.length; index++) {
+            if (filters[index].equals(filter)) {
+                if (filters.length == 1) {
+                    return EMPTY;
+                }
+
+                Filter[] updated = new Filter[filters.length - 1];
+                System.arraycopy(filters, 0, updated, 0, index);
+                System.arraycopy(filters, index + 1, updated, index, updated.length - index);
+                return new FilterChain(updated);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Get the number of filters that were added.
+     *
+     * @return the number of filters.
+     */
+    public int size() {
+        return filters.length;
+    }
+
+    /**
+     * Get the filter with the specified index, in the order they were added.
+     *
+     * @param index the index of the filter.
+     * @return the filter.
+     */
+    public Filter get(int index) {
+        return filters[index];
+    }
+
+    /**
+     * Ask the filters in turn until one accepts or denies the event.
+     *
+     * @param event the event to check.
+     * @return the decision of the first filter that is not neutral, or
+     * {@link Filter.Result#NEUTRAL} if there is none.
+     */
+    public Filter.Result decide(LogEvent event) {
+        Filter[] current = compiled;
+        for (int index = 0; index < current.length; index++) {
+            Filter.Result result = current[index].decide(event);
+            if (result != Filter.Result.NEUTRAL) {
+                return result;
+            }
+        }
+        return Filter.Result.NEUTRAL;
+    }
+
+    /**
+     * Check if the event is dropped by the filters.
+     *
+     * @param event the event to check.
+     * @return <code>true</code> if a filter denies the event.
+     */
+    public boolean isDenied(LogEvent event) {
+        return compiled.length > 0 && decide(event) == Filter.Result.DENY;
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.lisicnu.log4android.filter;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+
+/**
+ * A <code>Filter</code> that checks whether the level of the event is within
+ * a range, e.g. to send only <code>INFO</code> and <code>WARN</code> to an
+ * appender.
+ */
+public final class LevelRangeFilter implements Filter {
+
+    private final int minimum;
+
+    private final int maximum;
+
+    private final Result onMatch;
+
+    private final Result onMismatch;
+
+    /**
+     * Create a <code>LevelRangeFilter</code> that denies the events outside
+     * of the range and leaves the others to the next filter.
+     *
+     * @param minimum the lowest level in the range.
+     * @param maximum the highest level in the range.
+     * @throws IllegalArgumentException if a level is <code>null</code> or the range is empty.
+     */
+    public LevelRangeFilter(Level minimum, Level maximum) throws IllegalArgumentException {
+        this(minimum, maximum, Result.NEUTRAL, Result.DENY);
+    }
+
+    /**
+     * Create a <code>LevelRangeFilter</code>.
+     *
+     * @param minimum    the lowest level in the range.
+     * @param maximum    the highest level in the range.
+     * @param onMatch    the result for an event within the range.
+     * @param onMismatch the result for an event outside of the range.
+     * @throws IllegalArgumentException if an argument is <code>null</code> or the range is empty.
+     */
+    public LevelRangeFilter(Level minimum, Level maximum, Result onMatch, Result onMismatch)
+            throws IllegalArgumentException {
+        if (minimum == null || maximum == null || onMatch == null || onMismatch == null) {
+            throw new IllegalArgumentException("The arguments must not be null.");
+        }
+        if (minimum.toInt() > maximum.toInt()) {
+            throw new IllegalArgumentException("The minimum level must not be above the maximum level.");
+        }
+
+        this.minimum = minimum.toInt();
+        this.maximum = maximum.toInt();
+        this.onMatch = onMatch;
+        this.onMismatch = onMismatch;
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.filter.Filter#decide(com.github.lisicnu.log4android.LogEvent)
+     */
+    public Result decide(LogEvent event) {
+        Level level = event.getLevel();
+        if (level != null && level.toInt() >= minimum && level.toInt() <= maximum) {
+            return onMatch;
+        }
+        return onMismatch;
+    }
+}
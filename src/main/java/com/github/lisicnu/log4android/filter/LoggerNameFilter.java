@@ -0,0 +1,211 @@
+package com.github.lisicnu.log4android.filter;
+
+import com.github.lisicnu.log4android.LogEvent;
+
+/**
+ * A <code>Filter</code> that matches the name of the logger against a set of
+ * prefixes. A prefix matches the logger with the same name and all of its
+ * descendants, i.e. <code>com.foo</code> matches <code>com.foo</code> and
+ * <code>com.foo.Bar</code>, but not <code>com.foobar</code>. The empty prefix
+ * matches every logger. The trailing dots of a prefix are ignored, so
+ * <code>com.foo.</code> is the same as <code>com.foo</code>.
+ * <p/>
+ * The prefixes are kept in a trie, so the cost of a lookup depends on the
+ * length of the name and not on the number of prefixes. When several
+ * <code>LoggerNameFilter</code> objects follow each other in a filter chain
+ * they are merged into a single trie, which gives the same decisions as
+ * asking them one after the other.
+ */
+public final class LoggerNameFilter implements Filter {
+
+    private static final char[] NO_KEYS = new char[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * One character of a prefix. A node that ends a prefix has a result and
+     * the position of the filter the prefix came from.
+     */
+    private static final class Node {
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        Result result;
+        int order;
+
+        Node child(char key) {
+            char[] currentKeys = keys;
+            for (int index = 0; index < currentKeys.length; index++) {
+                if (currentKeys[index] == key) {
+                    return children[index];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char key) {
+            Node child = child(key);
+            if (child == null) {
+                int length = keys.length;
+                char[] newKeys = new char[length + 1];
+                Node[] newChildren = new Node[length + 1];
+                System.arraycopy(keys, 0, newKeys, 0, length);
+                System.arraycopy(children, 0, newChildren, 0, length);
+                child = new Node();
+                newKeys[length] = key;
+                newChildren[length] = child;
+                keys = newKeys;
+                children = newChildren;
+            }
+            return child;
+        }
+    }
+
+    private final Node root = new Node();
+
+    private final String[] prefixes;
+
+    private final Result[] results;
+
+    private final int[] orders;
+
+    /**
+     * The number of original filters in this filter.
+     */
+    private final int filterCount;
+
+    /**
+     * Create a <code>LoggerNameFilter</code>.
+     *
+     * @param onMatch  the result for a logger that matches one of the prefixes.
+     *                 The other loggers are left to the next filter.
+     * @param prefixes the logger name prefixes. Trailing dots are removed.
+     * @throws IllegalArgumentException if an argument is <code>null</code>.
+     */
+    public LoggerNameFilter(Result onMatch, String... prefixes) throws IllegalArgumentException {
+        if (onMatch == null || prefixes == null) {
+            throw new IllegalArgumentException("The arguments must not be null.");
+        }
+
+        this.prefixes = new String[prefixes.length];
+        this.results = new Result[prefixes.length];
+        this.orders = new int[prefixes.length];
+        this.filterCount = 1;
+        for (int index = 0; index < prefixes.length; index++) {
+            if (prefixes[index] == null) {
+                throw new IllegalArgumentException("A prefix must not be null.");
+            }
+            this.prefixes[index] = stripTrailingDots(prefixes[index]);
+            results[index] = onMatch;
+        }
+        build();
+    }
+
+    /**
+     * Remove the trailing dots, which could never be followed by the end of
+     * a name or by the dot before a child logger.
+     */
+    private static String stripTrailingDots(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == '.') {
+            end--;
+        }
+        return prefix.substring(0, end);
+    }
+
+    private LoggerNameFilter(String[] prefixes, Result[] results, int[] orders, int filterCount) {
+        this.prefixes = prefixes;
+        this.results = results;
+        this.orders = orders;
+        this.filterCount = filterCount;
+        build();
+    }
+
+    private void build() {
+        for (int index = 0; index < prefixes.length; index++) {
+            if (results[index] == Result.NEUTRAL) {
+                continue;
+            }
+
+            String prefix = prefixes[index];
+            Node node = root;
+            for (int charIndex = 0; charIndex < prefix.length(); charIndex++) {
+                node = node.addChild(prefix.charAt(charIndex));
+            }
+
+            // The first filter with the prefix wins, like in the chain.
+            if (node.result == null || orders[index] < node.order) {
+                node.result = results[index];
+                node.order = orders[index];
+            }
+        }
+    }
+
+    /**
+     * Merge this filter with the one that follows it in a filter chain.
+     *
+     * @param next the filter after this one.
+     * @return a filter that decides like this filter followed by <code>next</code>.
+     */
+    LoggerNameFilter merge(LoggerNameFilter next) {
+        int length = prefixes.length + next.prefixes.length;
+        String[] mergedPrefixes = new String[length];
+        Result[] mergedResults = new Result[length];
+        int[] mergedOrders = new int[length];
+
+        System.arraycopy(prefixes, 0, mergedPrefixes, 0, prefixes.length);
+        System.arraycopy(results, 0, mergedResults, 0, results.length);
+        System.arraycopy(orders, 0, mergedOrders, 0, orders.length);
+        System.arraycopy(next.prefixes, 0, mergedPrefixes, prefixes.length, next.prefixes.length);
+        System.arraycopy(next.results, 0, mergedResults, prefixes.length, next.results.length);
+        for (int index = 0; index < next.orders.length; index++) {
+            mergedOrders[prefixes.length + index] = next.orders[index] + filterCount;
+        }
+
+        return new LoggerNameFilter(mergedPrefixes, mergedResults, mergedOrders,
+                filterCount + next.filterCount);
+    }
+
+    /**
+     * Find the matching prefix of the earliest filter, the longest one if
+     * that filter has several.
+     *
+     * @see com.github.lisicnu.log4android.filter.Filter#decide(com.github.lisicnu.log4android.LogEvent)
+     */
+    public Result decide(LogEvent event) {
+        String name = event.getName();
+        if (name == null) {
+            return Result.NEUTRAL;
+        }
+
+        Node best = root.result != null ? root : null;
+        Node node = root;
+        int length = name.length();
+        for (int index = 0; index < length; index++) {
+            node = node.child(name.charAt(index));
+            if (node == null) {
+                break;
+            }
+
+            if (node.result != null && (index + 1 == length || name.charAt(index + 1) == '.')
+                    && (best == null || node.order <= best.order)) {
+                best = node;
+            }
+        }
+
+        return best != null ? best.result : Result.NEUTRAL;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LoggerNameFilter[");
+        for (int index = 0; index < prefixes.length; index++) {
+            if (index > 0) {
+                builder.append(", ");
+            }
+            builder.append(prefixes[index]).append('=').append(results[index]);
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.lisicnu.log4android.filter;
+
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.format.ParameterizedMessage;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A <code>Filter</code> that matches the message of the event against a
+ * regular expression. The expression is compiled once, and every thread
+ * reuses its own <code>Matcher</code>.
+ * <p/>
+ * By default the raw message is matched, i.e. the pattern of a message with
+ * <code>{}</code> placeholders, so the message is not formatted for the
+ * filter.
+ */
+public final class RegexFilter implements Filter {
+
+    private final Pattern pattern;
+
+    private final boolean useRawMessage;
+
+    private final Result onMatch;
+
+    private final Result onMismatch;
+
+    private final ThreadLocal<Matcher> matcher = new ThreadLocal<Matcher>() {
+        @Override
+        protected Matcher initialValue() {
+            return pattern.matcher("");
+        }
+    };
+
+    /**
+     * Create a <code>RegexFilter</code> that denies the messages that match
+     * the expression and leaves the others to the next filter.
+     *
+     * @param regex the regular expression.
+     * @throws IllegalArgumentException if the <code>regex</code> is <code>null</code> or invalid.
+     */
+    public RegexFilter(String regex) throws IllegalArgumentException {
+        this(regex, true, Result.DENY, Result.NEUTRAL);
+    }
+
+    /**
+     * Create a <code>RegexFilter</code>.
+     *
+     * @param regex         the regular expression, the whole message must match.
+     * @param useRawMessage <code>true</code> to match the pattern of a
+     *                      message with placeholders, <code>false</code> to
+     *                      match the formatted message.
+     * @param onMatch       the result for a message that matches.
+     * @param onMismatch    the result for a message that does not match.
+     * @throws IllegalArgumentException if an argument is <code>null</code> or the <code>regex</code> is invalid.
+     */
+    public RegexFilter(String regex, boolean useRawMessage, Result onMatch, Result onMismatch)
+            throws IllegalArgumentException {
+        if (regex == null || onMatch == null || onMismatch == null) {
+            throw new IllegalArgumentException("The arguments must not be null.");
+        }
+
+        try {
+            this.pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid regular expression " + regex + ": "
+                    + e.getMessage());
+        }
+        this.useRawMessage = useRawMessage;
+        this.onMatch = onMatch;
+        this.onMismatch = onMismatch;
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.filter.Filter#decide(com.github.lisicnu.log4android.LogEvent)
+     */
+    public Result decide(LogEvent event) {
+        Object message = event.getMessage();
+        if (message == null) {
+            return onMismatch;
+        }
+
+        CharSequence text;
+        if (message instanceof CharSequence) {
+            text = (CharSequence) message;
+        } else if (useRawMessage && message instanceof ParameterizedMessage) {
+            text = ((ParameterizedMessage) message).getPattern();
+            if (text == null) {
+                return onMismatch;
+            }
+        } else {
+            text = message.toString();
+        }
+
+        Matcher currentMatcher = matcher.get();
+        boolean matches = currentMatcher.reset(text).matches();
+        currentMatcher.reset("");
+
+        return matches ? onMatch : onMismatch;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        return "RegexFilter[" + pattern.pattern() + ']';
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.lisicnu.log4android.format;
+
+import com.github.lisicnu.log4android.LogEvent;
+
+/**
+ * A <code>Formatter</code> that formats a <code>LogEvent</code>, using the
+ * data captured in the event, and that can append the formatted log content
+ * to a buffer supplied by the caller. An appender that reuses the buffer does
+ * not need to create a <code>String</code> for every logging event.
+ */
+public interface BufferedFormatter extends Formatter {
+
+	/**
+	 * Format the event.
+	 * 
+	 * @param event
+	 *            the event to format.
+	 * @return the formatted event.
+	 */
+	String format(LogEvent event);
+
+	/**
+	 * Format the event into the buffer.
+	 * 
+	 * @param buffer
+	 *            the buffer to append the formatted content to.
+	 * @param event
+	 *            the event to format.
+	 */
+	void format(StringBuilder buffer, LogEvent event);
+}
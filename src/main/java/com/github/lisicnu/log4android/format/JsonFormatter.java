@@ -0,0 +1,415 @@
+package com.github.lisicnu.log4android.format;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogContext;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.Logger;
+
+import java.util.Map;
+
+/**
+ * A formatter that writes every event as one JSON object on a single line,
+ * so the log can be read by a machine without parsing a pattern, e.g.
+ * <pre>
+ * {"timestamp":1286901300123,"time":42,"level":"ERROR","logger":"com.example.Main",
+ *  "thread":"main","clientId":"app","message":"Failed","context":{"request":"17"},
+ *  "throwable":[{"class":"java.io.IOException","message":"down",
+ *  "frames":["com.example.Main.run(Main.java:12)"]}]}
+ * </pre>
+ * <code>timestamp</code> is the wall clock time in milliseconds since
+ * January 1, 1970 UTC, <code>time</code> the time in milliseconds since the
+ * first logging. The fields that have no value are left out. The throwable
+ * is an array of the throwable and its causes. The frames that a cause has
+ * in common with the throwable that wraps it are counted as
+ * <code>commonFrames</code>.
+ * <p/>
+ * The keys are encoded once, and the strings are copied in runs of the
+ * characters that need no escaping. A message that is not a
+ * <code>String</code>, e.g. a {@link ParameterizedMessage}, is formatted
+ * directly into the buffer and escaped there. The formatter can be used by
+ * several threads at the same time, every thread formats into a buffer of
+ * its own.
+ */
+public final class JsonFormatter implements BufferedFormatter {
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    /**
+     * The maximum number of causes that are written, which also stops a
+     * cause chain with a cycle.
+     */
+    private static final int MAX_CAUSES = 32;
+
+    private static final char[] TIMESTAMP_KEY = "{\"timestamp\":".toCharArray();
+    private static final char[] TIME_KEY = ",\"time\":".toCharArray();
+    private static final char[] LEVEL_KEY = ",\"level\":\"".toCharArray();
+    private static final char[] LOGGER_KEY = ",\"logger\":".toCharArray();
+    private static final char[] THREAD_KEY = ",\"thread\":".toCharArray();
+    private static final char[] CLIENT_ID_KEY = ",\"clientId\":".toCharArray();
+    private static final char[] MESSAGE_KEY = ",\"message\":".toCharArray();
+    private static final char[] CONTEXT_KEY = ",\"context\":{".toCharArray();
+    private static final char[] THROWABLE_KEY = ",\"throwable\":[".toCharArray();
+    private static final char[] CLASS_KEY = "{\"class\":".toCharArray();
+    private static final char[] FRAMES_KEY = ",\"frames\":[".toCharArray();
+    private static final char[] COMMON_FRAMES_KEY = ",\"commonFrames\":".toCharArray();
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocalBuffer threadBuffer = new ThreadLocalBuffer(
+            INITIAL_BUFFER_SIZE);
+
+    /**
+     * Create a <code>JsonFormatter</code>.
+     */
+    public JsonFormatter() {
+    }
+
+    /**
+     * Format the given message and the Throwable object. The wall clock time,
+     * the thread and the context data are taken from the current thread.
+     *
+     * @see com.github.lisicnu.log4android.format.Formatter#format(String, String, long,
+     * com.github.lisicnu.log4android.Level, Object, Throwable)
+     */
+    public String format(String clientID, String name, long time, Level level, Object message,
+                         Throwable t) {
+        StringBuilder buffer = threadBuffer.acquire();
+        try {
+            format(buffer, clientID, name, time, Logger.getClock().currentTimeMillis(), level,
+                    Thread.currentThread().getName(), message, LogContext.getContext(), t);
+            return buffer.toString();
+        } finally {
+            threadBuffer.release(buffer);
+        }
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.format.BufferedFormatter#format(LogEvent)
+     */
+    public String format(LogEvent event) {
+        StringBuilder buffer = threadBuffer.acquire();
+        try {
+            format(buffer, event);
+            return buffer.toString();
+        } finally {
+            threadBuffer.release(buffer);
+        }
+    }
+
+    /**
+     * @see com.github.lisicnu.log4android.format.BufferedFormatter#format(StringBuilder,
+     * LogEvent)
+     */
+    public void format(StringBuilder buffer, LogEvent event) {
+        format(buffer, event.getClientID(), event.getName(), event.getTime(),
+                event.getTimeMillis(), event.getLevel(), event.getThreadName(),
+                event.getMessage(), event.getContextData(), event.getThrowable());
+    }
+
+    private static void format(StringBuilder buffer, String clientID, String name, long time,
+                               long timeMillis, Level level, String threadName, Object message,
+                               Map<String, String> contextData, Throwable t) {
+        buffer.append(TIMESTAMP_KEY);
+        buffer.append(timeMillis);
+        buffer.append(TIME_KEY);
+        buffer.append(time);
+
+        if (level != null) {
+            // The level names need no escaping.
+            buffer.append(LEVEL_KEY);
+            buffer.append(level.name());
+            buffer.append('"');
+        }
+        if (name != null) {
+            buffer.append(LOGGER_KEY);
+            appendString(buffer, name);
+        }
+        if (threadName != null) {
+            buffer.append(THREAD_KEY);
+            appendString(buffer, threadName);
+        }
+        if (clientID != null) {
+            buffer.append(CLIENT_ID_KEY);
+            appendString(buffer, clientID);
+        }
+        if (message instanceof String) {
+            buffer.append(MESSAGE_KEY);
+            appendString(buffer, (String) message);
+        } else if (message != null) {
+            // Format the message into the buffer and escape it there, without
+            // creating the String of the message.
+            buffer.append(MESSAGE_KEY);
+            buffer.append('"');
+            int start = buffer.length();
+            if (message instanceof ParameterizedMessage) {
+                ((ParameterizedMessage) message).formatTo(buffer);
+            } else if (message instanceof CharSequence) {
+                buffer.append((CharSequence) message);
+            } else {
+                buffer.append(message);
+            }
+            escape(buffer, start);
+            buffer.append('"');
+        }
+
+        if (contextData != null && !contextData.isEmpty()) {
+            buffer.append(CONTEXT_KEY);
+            boolean first = true;
+            for (Map.Entry<String, String> entry : contextData.entrySet()) {
+                if (!first) {
+                    buffer.append(',');
+                }
+                first = false;
+                appendString(buffer, entry.getKey());
+                buffer.append(':');
+                appendString(buffer, entry.getValue());
+            }
+            buffer.append('}');
+        }
+
+        if (t != null) {
+            buffer.append(THROWABLE_KEY);
+            appendThrowable(buffer, t);
+            buffer.append(']');
+        }
+
+        buffer.append('}');
+    }
+
+    /**
+     * Append the throwable and its causes as objects of an array.
+     */
+    private static void appendThrowable(StringBuilder buffer, Throwable throwable) {
+        StackTraceElement[] enclosingTrace = null;
+        Throwable current = throwable;
+
+        for (int causes = 0; current != null && causes <= MAX_CAUSES; causes++) {
+            if (causes > 0) {
+                buffer.append(',');
+            }
+            buffer.append(CLASS_KEY);
+            appendString(buffer, current.getClass().getName());
+            String message = current.getMessage();
+            if (message != null) {
+                buffer.append(MESSAGE_KEY);
+                appendString(buffer, message);
+            }
+
+            StackTraceElement[] trace = current.getStackTrace();
+            int last = trace.length - 1;
+            if (enclosingTrace != null) {
+                int enclosingLast = enclosingTrace.length - 1;
+                while (last >= 0 && enclosingLast >= 0
+                        && trace[last].equals(enclosingTrace[enclosingLast])) {
+                    last--;
+                    enclosingLast--;
+                }
+            }
+
+            buffer.append(FRAMES_KEY);
+            for (int index = 0; index <= last; index++) {
+                if (index > 0) {
+                    buffer.append(',');
+                }
+                appendFrame(buffer, trace[index]);
+            }
+            buffer.append(']');
+
+            int common = trace.length - 1 - last;
+            if (common > 0) {
+                buffer.append(COMMON_FRAMES_KEY);
+                buffer.append(common);
+            }
+            buffer.append('}');
+
+            enclosingTrace = trace;
+            current = current.getCause();
+        }
+    }
+
+    /**
+     * Append the frame as a string, like <code>StackTraceElement.toString()</code>.
+     */
+    private static void appendFrame(StringBuilder buffer, StackTraceElement element) {
+        buffer.append('"');
+        appendEscaped(buffer, element.getClassName());
+        buffer.append('.');
+        appendEscaped(buffer, element.getMethodName());
+        buffer.append('(');
+
+        String fileName = element.getFileName();
+        int lineNumber = element.getLineNumber();
+        if (element.isNativeMethod()) {
+            buffer.append("Native Method");
+        } else if (fileName == null) {
+            buffer.append("Unknown Source");
+        } else {
+            appendEscaped(buffer, fileName);
+            if (lineNumber >= 0) {
+                buffer.append(':');
+                buffer.append(lineNumber);
+            }
+        }
+        buffer.append(")\"");
+    }
+
+    /**
+     * Append the string in quotes, escaped.
+     */
+    private static void appendString(StringBuilder buffer, String value) {
+        buffer.append('"');
+        appendEscaped(buffer, value);
+        buffer.append('"');
+    }
+
+    /**
+     * Escape the quotes, the backslashes and the control characters. The runs
+     * of the other characters are copied at once.
+     */
+    static void appendEscaped(StringBuilder buffer, String value) {
+        int length = value.length();
+        int start = 0;
+        for (int index = 0; index < length; index++) {
+            char c = value.charAt(index);
+            if (!needsEscape(c)) {
+                continue;
+            }
+
+            if (index > start) {
+                buffer.append(value, start, index);
+            }
+            start = index + 1;
+
+            buffer.append('\\');
+            switch (c) {
+                case '"':
+                    buffer.append('"');
+                    break;
+                case '\\':
+                    buffer.append('\\');
+                    break;
+                case '\n':
+                    buffer.append('n');
+                    break;
+                case '\r':
+                    buffer.append('r');
+                    break;
+                case '\t':
+                    buffer.append('t');
+                    break;
+                case '\b':
+                    buffer.append('b');
+                    break;
+                case '\f':
+                    buffer.append('f');
+                    break;
+                default:
+                    buffer.append('u');
+                    buffer.append(HEX_DIGITS[c >> 12 & 0xf]);
+                    buffer.append(HEX_DIGITS[c >> 8 & 0xf]);
+                    buffer.append(HEX_DIGITS[c >> 4 & 0xf]);
+                    buffer.append(HEX_DIGITS[c & 0xf]);
+                    break;
+            }
+        }
+
+        if (start == 0) {
+            buffer.append(value);
+        } else if (start < length) {
+            buffer.append(value, start, length);
+        }
+    }
+
+    /**
+     * Escape the characters of the buffer from the start index on, in place.
+     * The length of the escaped text is counted first, then the characters
+     * are moved to their place from the end, so nothing is allocated.
+     */
+    static void escape(StringBuilder buffer, int start) {
+        int length = buffer.length();
+        int extra = 0;
+        for (int index = start; index < length; index++) {
+            char c = buffer.charAt(index);
+            if (needsEscape(c)) {
+                extra += escapedLength(c) - 1;
+            }
+        }
+        if (extra == 0) {
+            return;
+        }
+
+        buffer.setLength(length + extra);
+        int write = length + extra - 1;
+        for (int read = length - 1; read >= start; read--) {
+            char c = buffer.charAt(read);
+            if (!needsEscape(c)) {
+                buffer.setCharAt(write--, c);
+                continue;
+            }
+
+            switch (c) {
+                case '"':
+                    buffer.setCharAt(write--, '"');
+                    break;
+                case '\\':
+                    buffer.setCharAt(write--, '\\');
+                    break;
+                case '\n':
+                    buffer.setCharAt(write--, 'n');
+                    break;
+                case '\r':
+                    buffer.setCharAt(write--, 'r');
+                    break;
+                case '\t':
+                    buffer.setCharAt(write--, 't');
+                    break;
+                case '\b':
+                    buffer.setCharAt(write--, 'b');
+                    break;
+                case '\f':
+                    buffer.setCharAt(write--, 'f');
+                    break;
+                default:
+                    buffer.setCharAt(write--, HEX_DIGITS[c & 0xf]);
+                    buffer.setCharAt(write--, HEX_DIGITS[c >> 4 & 0xf]);
+                    buffer.setCharAt(write--, HEX_DIGITS[c >> 8 & 0xf]);
+                    buffer.setCharAt(write--, HEX_DIGITS[c >> 12 & 0xf]);
+                    buffer.setCharAt(write--, 'u');
+                    break;
+            }
+            buffer.setCharAt(write--, '\\');
+        }
+    }
+
+    private static boolean needsEscape(char c) {
+        return c < 0x20 || c == '"' || c == '\\' || c == 0x2028 || c == 0x2029;
+    }
+
+    /**
+     * Get the length of the escape sequence of a character that needs
+     * escaping.
+     */
+    private static int escapedLength(char c) {
+        switch (c) {
+            case '"':
+            case '\\':
+            case '\n':
+            case '\r':
+            case '\t':
+            case '\b':
+            case '\f':
+                return 2;
+            default:
+                return 6;
+        }
+    }
+
+    public String[] getPropertyNames() {
+        // We have no properties that can be set.
+        return null;
+    }
+
+    public void setProperty(String name, String value) {
+        // We have no properties that can be set.
+    }
+}
@@ -0,0 +1,211 @@
+package com.github.lisicnu.log4android.format;
+
+import java.util.Arrays;
+
+/**
+ * A message with <code>{}</code> placeholders that are replaced by the
+ * arguments when the message is formatted, e.g.
+ * <code>logger.debug("user {} loaded {} items", id, n)</code>. Nothing is
+ * substituted until the message is formatted, which only happens if the
+ * level is enabled. A placeholder is printed as is when it is escaped with a
+ * backslash, i.e. <code>\{}</code>.
+ * <p/>
+ * If the last argument is a <code>Throwable</code> and there is no
+ * placeholder left for it, it is logged as the <code>Throwable</code> of the
+ * logging event.
+ */
+public final class ParameterizedMessage {
+
+    private static final char DELIMITER_START = '{';
+    private static final char DELIMITER_STOP = '}';
+    private static final char ESCAPE_CHAR = '\\';
+
+    private final String pattern;
+
+    private final Object[] arguments;
+
+    private final int argumentCount;
+
+    private final Throwable throwable;
+
+    private String formattedMessage;
+
+    /**
+     * Create a message with one argument.
+     *
+     * @param pattern  the message pattern.
+     * @param argument the argument.
+     */
+    public ParameterizedMessage(String pattern, Object argument) {
+        this(pattern, new Object[]{argument});
+    }
+
+    /**
+     * Create a message with two arguments.
+     *
+     * @param pattern   the message pattern.
+     * @param argument1 the first argument.
+     * @param argument2 the second argument.
+     */
+    public ParameterizedMessage(String pattern, Object argument1, Object argument2) {
+        this(pattern, new Object[]{argument1, argument2});
+    }
+
+    /**
+     * Create a message with any number of arguments. The array is used as is,
+     * it is not copied.
+     *
+     * @param pattern   the message pattern.
+     * @param arguments the arguments.
+     */
+    public ParameterizedMessage(String pattern, Object[] arguments) {
+        this.pattern = pattern;
+        this.arguments = arguments;
+
+        int count = arguments == null ? 0 : arguments.length;
+        Throwable lastThrowable = null;
+        if (count > 0 && arguments[count - 1] instanceof Throwable
+                && countPlaceholders(pattern) < count) {
+            lastThrowable = (Throwable) arguments[count - 1];
+            count--;
+        }
+
+        this.argumentCount = count;
+        this.throwable = lastThrowable;
+    }
+
+    /**
+     * Get the message pattern.
+     *
+     * @return the pattern.
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Get the <code>Throwable</code> given as the last argument.
+     *
+     * @return the <code>Throwable</code> or <code>null</code> if there is none.
+     */
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /**
+     * Append the formatted message to the buffer. Nothing but the arguments
+     * themselves are converted to intermediate <code>String</code> objects.
+     *
+     * @param buffer the buffer to append to.
+     */
+    public void formatTo(StringBuilder buffer) {
+        String formatted = formattedMessage;
+        if (formatted != null) {
+            buffer.append(formatted);
+            return;
+        }
+
+        if (pattern == null) {
+            buffer.append((String) null);
+            return;
+        }
+
+        int length = pattern.length();
+        int argumentIndex = 0;
+        int segmentStart = 0;
+        for (int index = 0; index < length - 1; index++) {
+            char currentChar = pattern.charAt(index);
+            if (currentChar == ESCAPE_CHAR && pattern.charAt(index + 1) == DELIMITER_START
+                    && index + 2 < length && pattern.charAt(index + 2) == DELIMITER_STOP) {
+                // Escaped placeholder, skip the backslash.
+                buffer.append(pattern, segmentStart, index);
+                segmentStart = index + 1;
+                index += 2;
+            } else if (currentChar == DELIMITER_START
+                    && pattern.charAt(index + 1) == DELIMITER_STOP
+                    && argumentIndex < argumentCount) {
+                buffer.append(pattern, segmentStart, index);
+                appendArgument(buffer, arguments[argumentIndex++]);
+                segmentStart = index + 2;
+                index++;
+            }
+        }
+        buffer.append(pattern, segmentStart, length);
+    }
+
+    private static void appendArgument(StringBuilder buffer, Object argument) {
+        if (argument instanceof String) {
+            buffer.append((String) argument);
+        } else if (argument instanceof Integer) {
+            buffer.append(((Integer) argument).intValue());
+        } else if (argument instanceof Long) {
+            buffer.append(((Long) argument).longValue());
+        } else if (argument instanceof Object[]) {
+            buffer.append(Arrays.deepToString((Object[]) argument));
+        } else {
+            buffer.append(argument);
+        }
+    }
+
+    private static int countPlaceholders(String pattern) {
+        if (pattern == null) {
+            return 0;
+        }
+
+        int count = 0;
+        int index = pattern.indexOf(DELIMITER_START);
+        while (index != -1 && index < pattern.length() - 1) {
+            if (pattern.charAt(index + 1) == DELIMITER_STOP
+                    && (index == 0 || pattern.charAt(index - 1) != ESCAPE_CHAR)) {
+                count++;
+            }
+            index = pattern.indexOf(DELIMITER_START, index + 1);
+        }
+
+        return count;
+    }
+
+    /**
+     * Two messages are equal if they have the same pattern and equal
+     * arguments, so a repeated log call can be recognized without formatting
+     * the messages.
+     *
+     * @see Object#equals(Object)
+     */
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ParameterizedMessage)) {
+            return false;
+        }
+
+        ParameterizedMessage message = (ParameterizedMessage) other;
+        return (pattern == null ? message.pattern == null : pattern.equals(message.pattern))
+                && Arrays.equals(arguments, message.arguments);
+    }
+
+    /**
+     * @see Object#hashCode()
+     */
+    public int hashCode() {
+        return 31 * (pattern == null ? 0 : pattern.hashCode()) + Arrays.hashCode(arguments);
+    }
+
+    /**
+     * Get the formatted message. The result is kept, so formatting the same
+     * message for several appenders is done once.
+     *
+     * @see Object#toString()
+     */
+    public String toString() {
+        String formatted = formattedMessage;
+        if (formatted == null) {
+            StringBuilder buffer = new StringBuilder(pattern == null ? 16 : pattern.length() + 32);
+            formatTo(buffer);
+            formatted = buffer.toString();
+            formattedMessage = formatted;
+        }
+        return formatted;
+    }
+}
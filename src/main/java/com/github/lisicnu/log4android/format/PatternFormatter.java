@@ -18,6 +18,7 @@ package com.github.lisicnu.log4android.format;
 import android.util.Log;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 import com.github.lisicnu.log4android.format.command.CategoryFormatCommand;
 import com.github.lisicnu.log4android.format.command.ClientIdFormatCommand;
 import com.github.lisicnu.log4android.format.command.DateFormatCommand;
@@ -49,19 +50,28 @@ import java.util.Vector;
  *  The available pattern conversions are:
  *  %i : the client id
  *  %c : prints the name of the Logger
- *  %d : prints the date (absolute time)
+ *       %c{2} prints the last two components of the name, %c{1.} shortens
+ *       the packages to one character, e.g. c.g.l.l.Logger.
+ *  %d : prints the date (ISO8601 format)
+ *       %d{ABSOLUTE}, %d{DATE} and %d{ISO8601} print the predefined formats,
+ *       %d{HH:mm:ss.SSS} prints the date with a SimpleDateFormat like pattern.
+ *       %d{HH:mm:ss.SSS}{UTC} prints it in a time zone, UTC, an offset like
+ *       +05:30 or a time zone id.
  *  %m : prints the logged message
  *  %P : prints the priority, i.e. Level of the message.
  *  %r : prints the relative time of the logging. (The first logging is done at time 0.)
+ *       %r{us} prints it with microsecond precision.
  *  %t : prints the thread name.
- *  %T : prints the Throwable object.
+ *  %T : prints the Throwable object, with its stack trace and causes.
+ *       %T{10} prints at most 10 frames per throwable, %T{full}{android.os.}
+ *       prints all frames except those of the listed packages.
  *  %% : prints the '%' sign.
  * </pre>
  * 
  * @author Johan Karlsson (johan.karlsson@jayway.se)
  * @since 0.6
  */
-public class PatternFormatter implements Formatter {
+public class PatternFormatter implements BufferedFormatter {
 	private static final String TAG = PatternFormatter.class.getSimpleName();
 
 	public static final String PATTERN_PROPERTY = "pattern";
@@ -88,45 +98,77 @@ public class PatternFormatter implements Formatter {
 
 	private static final String[] PROPERTY_NAMES = { PatternFormatter.PATTERN_PROPERTY };
 
-	private String pattern = DEFAULT_CONVERSION_PATTERN;
-	private FormatCommandInterface[] commandArray;
+	private volatile String pattern = DEFAULT_CONVERSION_PATTERN;
 
-	private boolean patternParsed;
+	/**
+	 * The compiled pattern. The array is never modified after it has been
+	 * published, so formatting needs no locking.
+	 */
+	private volatile FormatCommandInterface[] commandArray;
+
+	/**
+	 * The buffer of each thread, reused by every call to
+	 * {@link #format(LogEvent)} that is not nested in another one.
+	 */
+	private static final ThreadLocalBuffer threadBuffer = new ThreadLocalBuffer(256);
 
 	/**
 	 * Create a <code>PatternFormatter</code> with the default pattern.
 	 */
 	public PatternFormatter() {
-		patternParsed = false;
 	}
 
 	/**
-	 * Format the input parameters.
+	 * Format the input parameters. The date and the thread name are taken
+	 * when this method is called.
 	 * 
 	 * @see com.github.lisicnu.log4android.format.Formatter#format(String, String, long,
 	 *      com.github.lisicnu.log4android.Level, Object, Throwable)
 	 */
 	public String format(String clientID, String name, long time, Level level, Object message,
 	        Throwable t){
-
-		if (!patternParsed && pattern != null) {
-			parsePattern(pattern);
+		LogEvent event = LogEvent.obtain(clientID, name, time, level, message, t);
+		try {
+			return format(event);
+		} finally {
+			event.release();
 		}
+	}
 
-		StringBuffer formattedStringBuffer = new StringBuffer(64);
-		if (commandArray != null) {
-			int length = commandArray.length;
+	/**
+	 * @see com.github.lisicnu.log4android.format.BufferedFormatter#format(LogEvent)
+	 */
+	public String format(LogEvent event){
+		StringBuilder formattedStringBuffer = threadBuffer.acquire();
+		try {
+			format(formattedStringBuffer, event);
+			return formattedStringBuffer.toString();
+		} finally {
+			threadBuffer.release(formattedStringBuffer);
+		}
+	}
 
-			for (int index = 0; index < length; index++) {
-				FormatCommandInterface currentConverter = commandArray[index];
-				if (currentConverter != null) {
-					formattedStringBuffer.append(currentConverter.execute(clientID, name, time,
-					        level, message, t));
-				}
-			}
+	/**
+	 * Format the event into the buffer. Every command appends its output
+	 * directly, so nothing is allocated for the formatting itself.
+	 * 
+	 * @see com.github.lisicnu.log4android.format.BufferedFormatter#format(StringBuilder,
+	 *      LogEvent)
+	 */
+	public void format(StringBuilder buffer, LogEvent event){
+
+		FormatCommandInterface[] commands = commandArray;
+		if (commands == null) {
+			// Two threads may both parse the default pattern, with the same
+			// result.
+			commands = parsePattern(pattern);
+			commandArray = commands;
 		}
 
-		return formattedStringBuffer.toString();
+		int length = commands.length;
+		for (int index = 0; index < length; index++) {
+			commands[index].appendTo(buffer, event);
+		}
 	}
 
 	/**
@@ -152,28 +194,36 @@ public class PatternFormatter implements Formatter {
 		}
 
 		this.pattern = pattern;
-		parsePattern(this.pattern);
+		commandArray = parsePattern(pattern);
 	}
 
 	/**
 	 * Parse the pattern.
 	 *
 	 * This creates a command array that is executed when formatting the log
-	 * message.
+	 * message. The text between the conversions, including <code>%%</code>,
+	 * is merged into a single literal command per run, so the array holds
+	 * one command for every conversion and every run of text.
+	 * 
+	 * @return the commands.
 	 */
-	private void parsePattern(String pattern){
+	private FormatCommandInterface[] parsePattern(String pattern){
 
 		int currentIndex = 0;
 		int patternLength = pattern.length();
 		Vector<FormatCommandInterface> converterVector = new Vector<FormatCommandInterface>(20);
+		StringBuilder literal = new StringBuilder();
 
 		while (currentIndex < patternLength) {
 			char currentChar = pattern.charAt(currentIndex);
 
-			if (currentChar == '%') {
+			if (currentChar == '%' && currentIndex + 1 < patternLength) {
 
 				currentIndex++;
 				currentChar = pattern.charAt(currentIndex);
+				if (currentChar != PERCENT_CONVERSION_CHAR) {
+					addLiteral(converterVector, literal);
+				}
 
 				switch (currentChar) {
 					case CLIENT_ID_CONVERSION_CHAR:
@@ -196,6 +246,12 @@ public class PatternFormatter implements Formatter {
 						if (specifierLength > 0) {
 							formatCommand.init(specifier);
 							currentIndex = currentIndex + specifierLength + 2;
+
+							String timeZone = extraxtSpecifier(pattern, currentIndex);
+							if (timeZone.length() > 0) {
+								formatCommand.setTimeZone(timeZone);
+								currentIndex = currentIndex + timeZone.length() + 2;
+							}
 						}
 						converterVector.addElement(formatCommand);
 						break;
@@ -208,7 +264,14 @@ public class PatternFormatter implements Formatter {
 						break;
 
 					case RELATIVE_TIME_CONVERSION_CHAR:
-						converterVector.addElement(new TimeFormatCommand());
+						TimeFormatCommand timeFormatCommand = new TimeFormatCommand();
+						specifier = extraxtSpecifier(pattern, currentIndex);
+						specifierLength = specifier.length();
+						if (specifierLength > 0) {
+							timeFormatCommand.init(specifier);
+							currentIndex = currentIndex + specifierLength + 2;
+						}
+						converterVector.addElement(timeFormatCommand);
 						break;
 
 					case THREAD_CONVERSION_CHAR:
@@ -216,13 +279,24 @@ public class PatternFormatter implements Formatter {
 						break;
 
 					case THROWABLE_CONVERSION_CHAR:
-						converterVector.addElement(new ThrowableFormatCommand());
+						ThrowableFormatCommand throwableFormatCommand = new ThrowableFormatCommand();
+						specifier = extraxtSpecifier(pattern, currentIndex);
+						specifierLength = specifier.length();
+						if (specifierLength > 0) {
+							throwableFormatCommand.init(specifier);
+							currentIndex = currentIndex + specifierLength + 2;
+
+							String packages = extraxtSpecifier(pattern, currentIndex);
+							if (packages.length() > 0) {
+								throwableFormatCommand.setFilteredPackages(packages);
+								currentIndex = currentIndex + packages.length() + 2;
+							}
+						}
+						converterVector.addElement(throwableFormatCommand);
 						break;
 
 					case PERCENT_CONVERSION_CHAR:
-						NoFormatCommand noFormatCommand = new NoFormatCommand();
-						noFormatCommand.init("%");
-						converterVector.addElement(noFormatCommand);
+						literal.append('%');
 						break;
 
 					default:
@@ -234,36 +308,49 @@ public class PatternFormatter implements Formatter {
 
 			} else {
 
-				int percentIndex = pattern.indexOf("%", currentIndex);
-				String noFormatString = "";
-				if (percentIndex != -1) {
-					noFormatString = pattern.substring(currentIndex, percentIndex);
-				} else {
-					noFormatString = pattern.substring(currentIndex, patternLength);
+				// A '%' at the end of the pattern is taken literally.
+				int percentIndex = pattern.indexOf('%', currentIndex + 1);
+				if (percentIndex == -1) {
+					percentIndex = patternLength;
 				}
 
-				NoFormatCommand noFormatCommand = new NoFormatCommand();
-				noFormatCommand.init(noFormatString);
-				converterVector.addElement(noFormatCommand);
-
-				currentIndex = currentIndex + noFormatString.length();
+				literal.append(pattern, currentIndex, percentIndex);
+				currentIndex = percentIndex;
 			}
 
 		}
+		addLiteral(converterVector, literal);
 
-		commandArray = new FormatCommandInterface[converterVector.size()];
-		converterVector.copyInto(commandArray);
+		FormatCommandInterface[] commands = new FormatCommandInterface[converterVector.size()];
+		converterVector.copyInto(commands);
 
-		patternParsed = true;
+		return commands;
 	}
 
+	private static void addLiteral(Vector<FormatCommandInterface> converterVector,
+	        StringBuilder literal){
+		if (literal.length() > 0) {
+			NoFormatCommand noFormatCommand = new NoFormatCommand();
+			noFormatCommand.init(literal.toString());
+			converterVector.addElement(noFormatCommand);
+			literal.setLength(0);
+		}
+	}
+
+	/**
+	 * Get the specifier that directly follows the conversion character at
+	 * the index, e.g. <code>1</code> for <code>%c{1}</code>.
+	 */
 	String extraxtSpecifier(String pattern, int index){
 		String specifier = "";
 
-		int beginIndex = pattern.indexOf('{', index);
-		int endIndex = pattern.indexOf('}', index);
+		int beginIndex = index + 1;
+		if (beginIndex >= pattern.length() || pattern.charAt(beginIndex) != '{') {
+			return specifier;
+		}
+		int endIndex = pattern.indexOf('}', beginIndex);
 
-		if (beginIndex > 0 && endIndex > beginIndex) {
+		if (endIndex > beginIndex) {
 			specifier = pattern.substring(beginIndex + 1, endIndex);
 		}
 
@@ -15,23 +15,28 @@
 package com.github.lisicnu.log4android.format;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 /**
  * A simple formatter that only outputs the level, the message and the Throwable
  * object if available.
  * 
+ * The formatter can be used by several threads at the same time, every thread
+ * formats into a buffer of its own.
+ * 
  * @author Johan Karlsson (johan.karlsson@jayway.se)
  * @since 0.1
  */
-public final class SimpleFormatter implements Formatter {
+public final class SimpleFormatter implements BufferedFormatter {
 
 	public static final String DEFAULT_DELIMITER = "-";
 
 	private static final int INITIAL_BUFFER_SIZE = 256;
 
-	StringBuffer buffer = new StringBuffer(INITIAL_BUFFER_SIZE);
+	private static final ThreadLocalBuffer threadBuffer = new ThreadLocalBuffer(
+	        INITIAL_BUFFER_SIZE);
 
-	private String delimiter = DEFAULT_DELIMITER;
+	private volatile String delimiter = DEFAULT_DELIMITER;
 
 	/**
 	 * Create a SimpleFormatter.
@@ -72,9 +77,40 @@ public final class SimpleFormatter implements Formatter {
 	 */
 	public String format(String clientID, String name, long time, Level level,
 	        Object message, Throwable t){
-		if (buffer.length() > 0) {
-			buffer.delete(0, buffer.length());
+		StringBuilder buffer = threadBuffer.acquire();
+		try {
+			format(buffer, clientID, time, level, message, t);
+			return buffer.toString();
+		} finally {
+			threadBuffer.release(buffer);
 		}
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.format.BufferedFormatter#format(LogEvent)
+	 */
+	public String format(LogEvent event){
+		StringBuilder buffer = threadBuffer.acquire();
+		try {
+			format(buffer, event);
+			return buffer.toString();
+		} finally {
+			threadBuffer.release(buffer);
+		}
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.format.BufferedFormatter#format(StringBuilder,
+	 *      LogEvent)
+	 */
+	public void format(StringBuilder buffer, LogEvent event){
+		format(buffer, event.getClientID(), event.getTime(), event.getLevel(),
+		        event.getMessage(), event.getThrowable());
+	}
+
+	private void format(StringBuilder buffer, String clientID, long time, Level level,
+	        Object message, Throwable t){
+		String delimiter = this.delimiter;
 
 		if (clientID != null) {
 			buffer.append(clientID);
@@ -99,8 +135,6 @@ public final class SimpleFormatter implements Formatter {
 			buffer.append(delimiter);
 			buffer.append(t);
 		}
-
-		return buffer.toString();
 	}
 
 	public String[] getPropertyNames(){
@@ -0,0 +1,80 @@
+package com.github.lisicnu.log4android.format;
+
+/**
+ * A <code>StringBuilder</code> per thread that the formatters reuse for every
+ * line. The buffer is taken with {@link #acquire()} and given back with
+ * {@link #release(StringBuilder)}. When the buffer of the thread is already
+ * taken, e.g. because the <code>toString()</code> of a message logs another
+ * line, a new builder is returned, so the outer line is not overwritten. A
+ * buffer that has grown beyond the maximum capacity, e.g. for a long stack
+ * trace, is replaced when it is given back, so a single long line does not
+ * keep its memory for the lifetime of the thread.
+ */
+final class ThreadLocalBuffer {
+
+    /**
+     * The capacity above which the buffer is replaced when it is given back.
+     */
+    static final int MAX_CAPACITY = 8 * 1024;
+
+    private static final class Slot {
+        StringBuilder builder;
+        boolean inUse;
+    }
+
+    private final int initialCapacity;
+
+    private final ThreadLocal<Slot> slots = new ThreadLocal<Slot>() {
+        @Override
+        protected Slot initialValue() {
+            Slot slot = new Slot();
+            slot.builder = new StringBuilder(initialCapacity);
+            return slot;
+        }
+    };
+
+    /**
+     * Create a <code>ThreadLocalBuffer</code>.
+     *
+     * @param initialCapacity the capacity of a new buffer.
+     */
+    ThreadLocalBuffer(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+    }
+
+    /**
+     * Take the empty buffer of the current thread, or a new one if it is in
+     * use.
+     *
+     * @return the buffer.
+     */
+    StringBuilder acquire() {
+        Slot slot = slots.get();
+        if (slot.inUse) {
+            return new StringBuilder(initialCapacity);
+        }
+
+        slot.inUse = true;
+        StringBuilder builder = slot.builder;
+        builder.setLength(0);
+        return builder;
+    }
+
+    /**
+     * Give the buffer back. A buffer that was not the one of the thread is
+     * left to the garbage collector.
+     *
+     * @param builder the buffer returned by {@link #acquire()}.
+     */
+    void release(StringBuilder builder) {
+        Slot slot = slots.get();
+        if (slot.builder != builder) {
+            return;
+        }
+
+        if (builder.capacity() > MAX_CAPACITY) {
+            slot.builder = new StringBuilder(initialCapacity);
+        }
+        slot.inUse = false;
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.lisicnu.log4android.format;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Renders a <code>Throwable</code> with its stack trace and its causes, like
+ * <code>Throwable.printStackTrace()</code>, directly into a buffer.
+ * <p/>
+ * The frames of a cause that it has in common with the throwable that
+ * wraps it are left out and counted as "... N more". The number of frames
+ * per throwable can be limited, and frames of classes in filtered packages,
+ * e.g. <code>java.lang.reflect.</code>, can be left out.
+ * <p/>
+ * The last few traces are cached by the identity of the throwable, so a
+ * throwable that is logged to several appenders is rendered once. The
+ * renderers with the same settings are shared, see
+ * {@link #getInstance(int, String[])}.
+ */
+public final class ThrowableRenderer {
+
+    public static final int UNLIMITED_DEPTH = -1;
+
+    private static final String NEWLINE = System.getProperty("line.separator");
+
+    private static final String CAUSED_BY = "Caused by: ";
+
+    /**
+     * The maximum number of causes that are rendered, which also stops a
+     * cause chain with a cycle.
+     */
+    private static final int MAX_CAUSES = 32;
+
+    private static final int CACHE_SLOTS = 8;
+
+    public static final ThrowableRenderer DEFAULT = new ThrowableRenderer(UNLIMITED_DEPTH,
+            new String[0]);
+
+    private static final ConcurrentHashMap<String, ThrowableRenderer> instances = new ConcurrentHashMap<String, ThrowableRenderer>();
+
+    /**
+     * A rendered trace. The throwable is weakly referenced, so the cache
+     * does not keep it alive.
+     */
+    private static final class Entry extends WeakReference<Throwable> {
+        final String trace;
+
+        Entry(Throwable throwable, String trace) {
+            super(throwable);
+            this.trace = trace;
+        }
+    }
+
+    private final int maxDepth;
+
+    private final String[] filteredPackages;
+
+    private final AtomicReferenceArray<Entry> cache = new AtomicReferenceArray<Entry>(CACHE_SLOTS);
+
+    /**
+     * Create a <code>ThrowableRenderer</code>.
+     *
+     * @param maxDepth         the maximum number of frames per throwable, or
+     *                         <code>UNLIMITED_DEPTH</code>.
+     * @param filteredPackages the prefixes of the class names whose frames
+     *                         are left out.
+     * @throws IllegalArgumentException if the <code>filteredPackages</code> are <code>null</code>.
+     */
+    public ThrowableRenderer(int maxDepth, String[] filteredPackages)
+            throws IllegalArgumentException {
+        if (filteredPackages == null) {
+            throw new IllegalArgumentException("The filtered packages must not be null.");
+        }
+
+        this.maxDepth = maxDepth < 0 ? UNLIMITED_DEPTH : maxDepth;
+        this.filteredPackages = filteredPackages.clone();
+    }
+
+    /**
+     * Get the shared renderer with the specified settings.
+     *
+     * @param maxDepth         the maximum number of frames per throwable, or
+     *                         <code>UNLIMITED_DEPTH</code>.
+     * @param filteredPackages the prefixes of the class names whose frames
+     *                         are left out.
+     * @return the renderer.
+     * @throws IllegalArgumentException if the <code>filteredPackages</code> are <code>null</code>.
+     */
+    public static ThrowableRenderer getInstance(int maxDepth, String[] filteredPackages)
+            throws IllegalArgumentException {
+        ThrowableRenderer created = new ThrowableRenderer(maxDepth, filteredPackages);
+        if (created.maxDepth == UNLIMITED_DEPTH && filteredPackages.length == 0) {
+            return DEFAULT;
+        }
+
+        ThrowableRenderer renderer = instances.putIfAbsent(created.toString(), created);
+        return renderer != null ? renderer : created;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public String[] getFilteredPackages() {
+        return filteredPackages.clone();
+    }
+
+    /**
+     * Render the throwable.
+     *
+     * @param throwable the throwable to render.
+     * @return the trace.
+     */
+    public String render(Throwable throwable) {
+        StringBuilder buffer = new StringBuilder(512);
+        appendTo(buffer, throwable);
+        return buffer.toString();
+    }
+
+    /**
+     * Append the throwable and its causes to the buffer. Nothing is
+     * appended if the <code>throwable</code> is <code>null</code>.
+     *
+     * @param buffer    the buffer to append to.
+     * @param throwable the throwable to render.
+     */
+    public void appendTo(StringBuilder buffer, Throwable throwable) {
+        if (throwable == null) {
+            return;
+        }
+
+        int slot = System.identityHashCode(throwable) & (CACHE_SLOTS - 1);
+        Entry entry = cache.get(slot);
+        if (entry != null && entry.get() == throwable) {
+            buffer.append(entry.trace);
+            return;
+        }
+
+        int start = buffer.length();
+        appendTrace(buffer, throwable);
+        cache.set(slot, new Entry(throwable, buffer.substring(start)));
+    }
+
+    private void appendTrace(StringBuilder buffer, Throwable throwable) {
+        StackTraceElement[] enclosingTrace = null;
+        Throwable current = throwable;
+
+        for (int causes = 0; current != null && causes <= MAX_CAUSES; causes++) {
+            if (causes > 0) {
+                buffer.append(NEWLINE);
+                buffer.append(CAUSED_BY);
+            }
+            buffer.append(current.toString());
+
+            StackTraceElement[] trace = current.getStackTrace();
+            int last = trace.length - 1;
+            if (enclosingTrace != null) {
+                int enclosingLast = enclosingTrace.length - 1;
+                while (last >= 0 && enclosingLast >= 0
+                        && trace[last].equals(enclosingTrace[enclosingLast])) {
+                    last--;
+                    enclosingLast--;
+                }
+            }
+
+            int written = 0;
+            int filtered = 0;
+            int index = 0;
+            for (; index <= last; index++) {
+                StackTraceElement element = trace[index];
+                if (isFiltered(element)) {
+                    filtered++;
+                    continue;
+                }
+                if (maxDepth != UNLIMITED_DEPTH && written >= maxDepth) {
+                    break;
+                }
+                buffer.append(NEWLINE);
+                buffer.append("\tat ");
+                appendFrame(buffer, element);
+                written++;
+            }
+
+            if (filtered > 0) {
+                buffer.append(NEWLINE);
+                buffer.append("\t... ");
+                buffer.append(filtered);
+                buffer.append(" filtered");
+            }
+            int more = trace.length - index;
+            if (more > 0) {
+                buffer.append(NEWLINE);
+                buffer.append("\t... ");
+                buffer.append(more);
+                buffer.append(" more");
+            }
+
+            enclosingTrace = trace;
+            current = current.getCause();
+        }
+    }
+
+    private boolean isFiltered(StackTraceElement element) {
+        String className = element.getClassName();
+        for (String filteredPackage : filteredPackages) {
+            if (className.startsWith(filteredPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Append the frame like <code>StackTraceElement.toString()</code> does,
+     * without creating the <code>String</code>.
+     */
+    private static void appendFrame(StringBuilder buffer, StackTraceElement element) {
+        buffer.append(element.getClassName());
+        buffer.append('.');
+        buffer.append(element.getMethodName());
+        buffer.append('(');
+
+        String fileName = element.getFileName();
+        int lineNumber = element.getLineNumber();
+        if (element.isNativeMethod()) {
+            buffer.append("Native Method");
+        } else if (fileName == null) {
+            buffer.append("Unknown Source");
+        } else {
+            buffer.append(fileName);
+            if (lineNumber >= 0) {
+                buffer.append(':');
+                buffer.append(lineNumber);
+            }
+        }
+        buffer.append(')');
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        StringBuilder buffer = new StringBuilder("ThrowableRenderer[");
+        buffer.append(maxDepth == UNLIMITED_DEPTH ? "full" : String.valueOf(maxDepth));
+        for (String filteredPackage : filteredPackages) {
+            buffer.append(',');
+            buffer.append(filteredPackage);
+        }
+        buffer.append(']');
+        return buffer.toString();
+    }
+}
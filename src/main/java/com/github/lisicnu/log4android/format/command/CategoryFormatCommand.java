@@ -18,11 +18,20 @@ package com.github.lisicnu.log4android.format.command;
 import android.util.Log;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The <code>CategoryFormatCommand</code> is used for printing the category,
  * i.e. the name of the logging class.
  * 
+ * The specifier <code>%c{n}</code> prints the last <code>n</code> components
+ * of the name, <code>%c{n.}</code> shortens every package component to
+ * <code>n</code> characters, e.g. <code>%c{1.}</code> prints
+ * <code>c.g.l.l.Logger</code>. The shortened name is computed once per
+ * logger name and cached.
+ * 
  * @author Johan Karlsson (johan.karlsson@jayway.se)
  * 
  * @since 1.0
@@ -34,7 +43,24 @@ public class CategoryFormatCommand implements FormatCommandInterface {
 
 	public static final int DEFAULT_PRECISION_SPECIFIER = 1;
 
-	private int precisionSpecifier = DEFAULT_PRECISION_SPECIFIER;
+	public static final int NO_ABBREVIATION = 0;
+
+	/**
+	 * The maximum number of shortened names that are cached. The cache is
+	 * emptied when it is full, so an application that creates loggers with
+	 * generated names does not make it grow without bound.
+	 */
+	public static final int MAX_CACHED_NAMES = 1024;
+
+	private volatile int precisionSpecifier = DEFAULT_PRECISION_SPECIFIER;
+
+	private volatile int abbreviationLength = NO_ABBREVIATION;
+
+	/**
+	 * The shortened names, keyed by the logger name. It is replaced when the
+	 * precision or the abbreviation is changed.
+	 */
+	private volatile ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<String, String>();
 
 	/**
 	 * 
@@ -48,19 +74,92 @@ public class CategoryFormatCommand implements FormatCommandInterface {
 		String convertedData = "";
 
 		if (name != null) {
-			if (precisionSpecifier == FULL_CLASS_NAME_SPECIFIER) {
-				convertedData = name;
-			} else {
-				convertedData = extractPartialClassName(name, precisionSpecifier);
-			}
+			convertedData = getCategory(name);
 		}
 
 		return convertedData;
 	}
 
+	/**
+	 * Append the category, i.e. the logger name shortened to the precision.
+	 * 
+	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#appendTo(StringBuilder,
+	 *      com.github.lisicnu.log4android.LogEvent)
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event){
+		String name = event.getName();
+		if (name != null) {
+			buffer.append(getCategory(name));
+		}
+	}
+
+	/**
+	 * Get the shortened name from the cache, or compute and cache it.
+	 */
+	private String getCategory(String name){
+		// The cache is read first, the settings are written before it.
+		ConcurrentHashMap<String, String> current = cache;
+		int precision = precisionSpecifier;
+		int abbreviation = abbreviationLength;
+		if (precision == FULL_CLASS_NAME_SPECIFIER && abbreviation == NO_ABBREVIATION) {
+			return name;
+		}
+
+		String category = current.get(name);
+		if (category == null) {
+			category = name;
+			if (precision != FULL_CLASS_NAME_SPECIFIER) {
+				category = extractPartialClassName(category, precision);
+			}
+			if (abbreviation != NO_ABBREVIATION) {
+				category = abbreviatePackages(category, abbreviation);
+			}
+
+			if (current.size() >= MAX_CACHED_NAMES) {
+				current.clear();
+			}
+			current.put(name, category);
+		}
+		return category;
+	}
+
+	/**
+	 * Shorten every component but the last to at most <code>length</code>
+	 * characters, like Log4j does for <code>%c{1.}</code>.
+	 * 
+	 * @param className
+	 *            the name to shorten.
+	 * @param length
+	 *            the number of characters that are kept of each package.
+	 * @return the shortened name.
+	 */
+	public static String abbreviatePackages(String className, int length){
+		int lastDot = className.lastIndexOf('.');
+		if (lastDot < 0) {
+			return className;
+		}
+
+		StringBuilder buffer = new StringBuilder(className.length());
+		int start = 0;
+		while (start <= lastDot) {
+			int dot = className.indexOf('.', start);
+			buffer.append(className, start, Math.min(dot, start + length));
+			buffer.append('.');
+			start = dot + 1;
+		}
+		buffer.append(className, start, className.length());
+		return buffer.toString();
+	}
+
     public static String extractPartialClassName(String className, int parts) {
-        String partialCategoryName = className;
+        return className.substring(partialClassNameIndex(className, parts));
+    }
 
+    /**
+     * Get the index where the last <code>parts</code> components of the class
+     * name start.
+     */
+    static int partialClassNameIndex(String className, int parts) {
         int nofDots = 0;
         int dotIndex = className.lastIndexOf('.');
         if (dotIndex != -1) {
@@ -76,10 +175,10 @@ public class CategoryFormatCommand implements FormatCommandInterface {
         }
 
         if (dotIndex > -1 && nofDots <= parts) {
-            partialCategoryName = className.substring(dotIndex + 1);
+            return dotIndex + 1;
         }
 
-        return partialCategoryName;
+        return 0;
     }
 
 	/**
@@ -88,8 +187,18 @@ public class CategoryFormatCommand implements FormatCommandInterface {
 	 */
 	public void init(String initString){
 		try {
-			precisionSpecifier = Integer.parseInt(initString);
-			System.out.println("Precision specifier for %c is " + precisionSpecifier);
+			if (initString.endsWith(".")) {
+				int length = Integer.parseInt(initString.substring(0, initString.length() - 1));
+				if (length < 1) {
+					throw new NumberFormatException("The abbreviation must be at least 1");
+				}
+				precisionSpecifier = FULL_CLASS_NAME_SPECIFIER;
+				abbreviationLength = length;
+			} else {
+				precisionSpecifier = Integer.parseInt(initString);
+				abbreviationLength = NO_ABBREVIATION;
+			}
+			cache = new ConcurrentHashMap<String, String>();
 		} catch (NumberFormatException e) {
 			Log.e(TAG, "Failed to parse the specifier for the %c pattern " + e);
 		}
@@ -112,6 +221,28 @@ public class CategoryFormatCommand implements FormatCommandInterface {
 	 */
 	public void setPrecisionSpecifier(int precisionSpecifier){
 		this.precisionSpecifier = precisionSpecifier;
+		this.cache = new ConcurrentHashMap<String, String>();
+	}
+
+	/**
+	 * Get the number of characters that are kept of each package.
+	 * 
+	 * @return the abbreviation length, or <code>NO_ABBREVIATION</code>.
+	 */
+	public int getAbbreviationLength(){
+		return abbreviationLength;
+	}
+
+	/**
+	 * Set the number of characters that are kept of each package.
+	 * 
+	 * @param abbreviationLength
+	 *            the abbreviation length, or <code>NO_ABBREVIATION</code> to
+	 *            print the packages in full.
+	 */
+	public void setAbbreviationLength(int abbreviationLength){
+		this.abbreviationLength = abbreviationLength;
+		this.cache = new ConcurrentHashMap<String, String>();
 	}
 
 }
@@ -15,6 +15,7 @@
 package com.github.lisicnu.log4android.format.command;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 /**
  * The <code>ClientIdFormatCommand</code> formats the client id.
@@ -32,6 +33,14 @@ public class ClientIdFormatCommand implements FormatCommandInterface {
 			Object message, Throwable throwable) {
 		return clientID;
 	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#appendTo(StringBuilder,
+	 *      com.github.lisicnu.log4android.LogEvent)
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event) {
+		buffer.append(event.getClientID());
+	}
 	
 	/**
 	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#init(String)
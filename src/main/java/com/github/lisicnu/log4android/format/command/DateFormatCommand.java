@@ -17,13 +17,19 @@ package com.github.lisicnu.log4android.format.command;
 import android.util.Log;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.Logger;
 
-import java.util.Calendar;
-import java.util.Date;
+import java.util.TimeZone;
 
 /**
  * This class is used for formatting dates.
  * 
+ * The format is either one of the names ABSOLUTE, DATE and ISO8601, or a
+ * user defined pattern like <code>HH:mm:ss.SSS</code>, see
+ * {@link DatePattern}. The date is shown in the default time zone, unless a
+ * time zone is set, e.g. <code>UTC</code> or <code>+05:30</code>.
+ * 
  * Minimum requirements; CLDC 1.0
  * 
  * @author Johan Karlsson (johan.karlsson@jayway.se)
@@ -46,12 +52,25 @@ public class DateFormatCommand implements FormatCommandInterface {
 
 	public final static String ISO_8601_FORMAT_STRING = "ISO8601";
 
-	final static String[] MONTH_ARRAY = { "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG",
-	        "SEP", "OCT", "NOV", "DEC" };
+	final static String[] MONTH_ARRAY = DatePattern.MONTH_ARRAY;
+
+	final static String ABSOLUTE_PATTERN = "HH:mm:ss,SSS";
+
+	final static String DATE_PATTERN = "dd MMM yyyy HH:mm:ss,SSS";
+
+	final static String ISO_8601_PATTERN = "yyyy-MM-dd HH:mm:ss,SSS";
+
+	private static final DatePattern ABSOLUTE_DATE_PATTERN = new DatePattern(ABSOLUTE_PATTERN);
+
+	private static final DatePattern DATE_DATE_PATTERN = new DatePattern(DATE_PATTERN);
+
+	private static final DatePattern ISO_8601_DATE_PATTERN = new DatePattern(ISO_8601_PATTERN);
+
+	volatile int format = ISO_8601_FORMAT;
 
-	private final Calendar calendar = Calendar.getInstance();
+	private volatile DatePattern datePattern = ISO_8601_DATE_PATTERN;
 
-	int format = ISO_8601_FORMAT;
+	private volatile TimeZone timeZone;
 
 	/**
 	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#execute(String,
@@ -60,144 +79,101 @@ public class DateFormatCommand implements FormatCommandInterface {
 	 */
 	public String execute(String clientID, String name, long time, Level level, Object message,
 	        Throwable throwable){
+		return datePattern.format(Logger.getClock().currentTimeMillis());
+	}
 
-		String dateString = "";
-		long currentTime = System.currentTimeMillis();
-
-		switch (format) {
-			case ABSOLUTE_FORMAT:
-				dateString = toAbsoluteFormat(currentTime);
-				break;
-
-			case DATE_FORMAT:
-				dateString = toDateFormat(currentTime);
-				break;
-
-			case ISO_8601_FORMAT:
-				dateString = toISO8601Format(currentTime);
-				break;
-
-			default:
-				Log.e(TAG, "Unrecognized format, using default format.");
-				dateString = toAbsoluteFormat(System.currentTimeMillis());
-				break;
-		}
-
-		return dateString;
+	/**
+	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#appendTo(StringBuilder,
+	 *      com.github.lisicnu.log4android.LogEvent)
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event){
+		datePattern.appendTo(buffer, event.getTimeMillis());
 	}
 
 	/**
+	 * Set the format, either one of the format names or a date pattern. The
+	 * pattern is compiled here, not when a date is formatted.
+	 * 
 	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#init(String)
 	 */
 	public void init(String initString){
+		String pattern;
 		if (initString.equals(ABSOLUTE_FORMAT_STRING)) {
 			format = ABSOLUTE_FORMAT;
+			pattern = ABSOLUTE_PATTERN;
 		} else if (initString.equals(DATE_FORMAT_STRING)) {
 			format = DATE_FORMAT;
+			pattern = DATE_PATTERN;
 		} else if (initString.equals(ISO_8601_FORMAT_STRING)) {
 			format = ISO_8601_FORMAT;
+			pattern = ISO_8601_PATTERN;
+		} else {
+			format = USER_FORMAT;
+			pattern = initString;
 		}
+		datePattern = createPattern(pattern, format, timeZone);
 	}
 
 	/**
-	 * Format as an absolute date time format, that is
+	 * Set the time zone the date is shown in.
 	 * 
-	 * @param time
-	 *            the time to format.
-	 * @return the formatted <code>String</code>.
+	 * @param option
+	 *            <code>UTC</code>, an offset like <code>+05:30</code> or a
+	 *            time zone id.
 	 */
-	String toAbsoluteFormat(long time){
-
-		calendar.setTime(new Date(time));
-		long hours = calendar.get(Calendar.HOUR_OF_DAY);
-		StringBuffer buffer = new StringBuffer();
-
-		if (hours < 10) {
-			buffer.append('0');
-		}
-		buffer.append(hours);
-
-		buffer.append(':');
-
-		long minutes = calendar.get(Calendar.MINUTE);
-		if (minutes < 10) {
-			buffer.append('0');
-		}
-		buffer.append(minutes);
-
-		buffer.append(':');
-
-		long seconds = calendar.get(Calendar.SECOND);
-		if (seconds < 10) {
-			buffer.append('0');
+	public void setTimeZone(String option){
+		try {
+			TimeZone zone = DatePattern.parseTimeZone(option);
+			timeZone = zone;
+			datePattern = createPattern(datePattern.getPattern(), format, zone);
+		} catch (IllegalArgumentException e) {
+			Log.e(TAG, "Failed to set the time zone, using the default time zone. " + e);
 		}
-		buffer.append(seconds);
+	}
 
-		buffer.append(',');
+	/**
+	 * Get the compiled pattern.
+	 * 
+	 * @return the pattern that formats the dates.
+	 */
+	public DatePattern getDatePattern(){
+		return datePattern;
+	}
 
-		long milliseconds = calendar.get(Calendar.MILLISECOND);
-		if (milliseconds < 10) {
-			buffer.append('0');
+	private static DatePattern createPattern(String pattern, int format, TimeZone timeZone){
+		if (timeZone == null) {
+			switch (format) {
+				case ABSOLUTE_FORMAT:
+					return ABSOLUTE_DATE_PATTERN;
+				case DATE_FORMAT:
+					return DATE_DATE_PATTERN;
+				case ISO_8601_FORMAT:
+					return ISO_8601_DATE_PATTERN;
+				default:
+					return new DatePattern(pattern);
+			}
 		}
-		buffer.append(milliseconds);
-
-		return buffer.toString();
+		return new DatePattern(pattern, timeZone);
+	}
 
+	/**
+	 * Format as an absolute date time format, that is
+	 * <code>HH:mm:ss,SSS</code>.
+	 * 
+	 * @param time
+	 *            the time to format.
+	 * @return the formatted <code>String</code>.
+	 */
+	String toAbsoluteFormat(long time){
+		return ABSOLUTE_DATE_PATTERN.format(time);
 	}
 
 	String toDateFormat(long time){
-
-		calendar.setTime(new Date(time));
-		StringBuffer buffer = new StringBuffer();
-
-		int day = calendar.get(Calendar.DAY_OF_MONTH);
-		if (day < 10) {
-			buffer.append('0');
-		}
-		buffer.append(day);
-		buffer.append(' ');
-
-		int month = calendar.get(Calendar.MONTH);
-		buffer.append(MONTH_ARRAY[month]);
-		buffer.append(' ');
-
-		int year = calendar.get(Calendar.YEAR);
-		buffer.append(year);
-		buffer.append(' ');
-
-		String absoluteTimeString = toAbsoluteFormat(time);
-		buffer.append(absoluteTimeString);
-
-		return buffer.toString();
+		return DATE_DATE_PATTERN.format(time);
 	}
 
 	String toISO8601Format(long time){
-
-		calendar.setTime(new Date(time));
-		StringBuffer buffer = new StringBuffer();
-
-		int year = calendar.get(Calendar.YEAR);
-		buffer.append(year);
-		buffer.append('-');
-
-		int month = calendar.get(Calendar.MONTH) + 1;
-		if (month < 10) {
-			buffer.append('0');
-		}
-		buffer.append(month);
-		buffer.append('-');
-
-		int day = calendar.get(Calendar.DAY_OF_MONTH);
-		if (day < 10) {
-			buffer.append('0');
-		}
-		buffer.append(day);
-		buffer.append(' ');
-
-		String absoluteTimeString = toAbsoluteFormat(time);
-		buffer.append(absoluteTimeString);
-
-		return buffer.toString();
+		return ISO_8601_DATE_PATTERN.format(time);
 	}
 
 }
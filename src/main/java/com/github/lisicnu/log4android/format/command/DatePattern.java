@@ -0,0 +1,441 @@
+package com.github.lisicnu.log4android.format.command;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * A date pattern, compiled into a fixed sequence of fields that append the
+ * date to a buffer. The letters are those of <code>SimpleDateFormat</code>:
+ *
+ * <pre>
+ *  y   : year, yy for the last two digits.
+ *  M   : month, MMM for the abbreviated name, e.g. JAN.
+ *  d   : day of the month.
+ *  E   : abbreviated day of the week, e.g. MON.
+ *  H   : hour of the day (0-23).
+ *  h   : hour in am/pm (1-12).
+ *  a   : AM or PM.
+ *  m   : minute.
+ *  s   : second.
+ *  S   : millisecond, like in <code>SimpleDateFormat</code> a number
+ *        zero-padded to the number of letters, e.g. 7 for S, 007 for SSS
+ *        and 0007 for SSSS.
+ *  Z   : the offset from UTC, e.g. +0100.
+ *  'x' : quoted text, '' for a single quote.
+ * </pre>
+ *
+ * The number of letters is the minimum number of digits. Any other character
+ * is copied.
+ * <p/>
+ * Everything but the milliseconds is rendered once per second per thread
+ * into a template. For every date the parts of the template are copied and
+ * only the milliseconds are formatted in between. This is much faster than
+ * <code>SimpleDateFormat</code>, and a pattern can be used by several
+ * threads at once.
+ */
+public final class DatePattern {
+    private static final String TAG = DatePattern.class.getSimpleName();
+
+    private static final int MILLIS_PER_SECOND = 1000;
+
+    private static final int MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+
+    static final String[] MONTH_ARRAY = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG",
+            "SEP", "OCT", "NOV", "DEC"};
+
+    static final String[] DAY_ARRAY = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+
+    private static final int LITERAL = 0;
+    private static final int YEAR = 1;
+    private static final int MONTH = 2;
+    private static final int DAY = 3;
+    private static final int DAY_OF_WEEK = 4;
+    private static final int HOUR_OF_DAY = 5;
+    private static final int HOUR = 6;
+    private static final int AM_PM = 7;
+    private static final int MINUTE = 8;
+    private static final int SECOND = 9;
+    private static final int MILLISECOND = 10;
+    private static final int ZONE = 11;
+
+    /**
+     * One field of the pattern.
+     */
+    private static final class Field {
+        final int type;
+        final int width;
+        final char[] text;
+
+        Field(int type, int width, String text) {
+            this.type = type;
+            this.width = width;
+            this.text = text != null ? text.toCharArray() : null;
+        }
+    }
+
+    /**
+     * The date of the second that was formatted last by a thread, without
+     * the milliseconds, and the positions where they belong.
+     */
+    private static final class Template {
+        final Calendar calendar;
+        final StringBuilder builder = new StringBuilder(32);
+        final int[] millisecondIndexes;
+        char[] chars = new char[32];
+        int length;
+        long second = Long.MIN_VALUE;
+
+        Template(TimeZone timeZone, int millisecondCount) {
+            calendar = Calendar.getInstance(timeZone);
+            millisecondIndexes = new int[millisecondCount];
+        }
+    }
+
+    private final String pattern;
+
+    private final TimeZone timeZone;
+
+    private final Field[] fields;
+
+    /**
+     * The millisecond fields, in the order of
+     * <code>Template.millisecondIndexes</code>.
+     */
+    private final Field[] milliseconds;
+
+    private final ThreadLocal<Template> threadTemplate = new ThreadLocal<Template>() {
+        @Override
+        protected Template initialValue() {
+            return new Template(timeZone, milliseconds.length);
+        }
+    };
+
+    /**
+     * Compile a pattern for the default time zone.
+     *
+     * @param pattern the pattern.
+     * @throws IllegalArgumentException if the <code>pattern</code> is <code>null</code>.
+     */
+    public DatePattern(String pattern) throws IllegalArgumentException {
+        this(pattern, TimeZone.getDefault());
+    }
+
+    /**
+     * Compile a pattern.
+     *
+     * @param pattern  the pattern.
+     * @param timeZone the time zone the date is shown in.
+     * @throws IllegalArgumentException if an argument is <code>null</code>.
+     */
+    public DatePattern(String pattern, TimeZone timeZone) throws IllegalArgumentException {
+        if (pattern == null || timeZone == null) {
+            throw new IllegalArgumentException("The pattern and the time zone must not be null.");
+        }
+
+        this.pattern = pattern;
+        this.timeZone = timeZone;
+        this.fields = compile(pattern);
+
+        List<Field> millisecondList = new ArrayList<Field>(1);
+        for (Field field : fields) {
+            if (field.type == MILLISECOND) {
+                millisecondList.add(field);
+            }
+        }
+        this.milliseconds = millisecondList.toArray(new Field[millisecondList.size()]);
+    }
+
+    /**
+     * Parse a time zone option, i.e. <code>UTC</code>, an offset like
+     * <code>+05:30</code> or <code>-0800</code>, or a time zone id.
+     *
+     * @param option the option.
+     * @return the time zone.
+     * @throws IllegalArgumentException if the option is not a known time zone.
+     */
+    public static TimeZone parseTimeZone(String option) throws IllegalArgumentException {
+        String id = option.trim();
+        if (id.equalsIgnoreCase("UTC")) {
+            return TimeZone.getTimeZone("UTC");
+        }
+        if (id.startsWith("+") || id.startsWith("-")) {
+            id = "GMT" + id;
+        }
+
+        TimeZone timeZone = TimeZone.getTimeZone(id);
+        // An unknown id gives GMT.
+        if (timeZone.getID().equals("GMT") && !id.equals("GMT")) {
+            throw new IllegalArgumentException("Unknown time zone " + option);
+        }
+        return timeZone;
+    }
+
+    private static Field[] compile(String pattern) {
+        List<Field> fields = new ArrayList<Field>();
+        StringBuilder literal = new StringBuilder();
+        int length = pattern.length();
+        int index = 0;
+
+        while (index < length) {
+            char c = pattern.charAt(index);
+
+            if (c == '\'') {
+                index = appendQuoted(pattern, index, literal);
+                continue;
+            }
+
+            int count = 1;
+            while (index + count < length && pattern.charAt(index + count) == c) {
+                count++;
+            }
+
+            int type = fieldType(c);
+            if (type == LITERAL) {
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    Log.e(TAG, "Unsupported date pattern letter " + c);
+                }
+                literal.append(pattern, index, index + count);
+            } else {
+                addLiteral(fields, literal);
+                fields.add(new Field(type, count, null));
+            }
+            index += count;
+        }
+        addLiteral(fields, literal);
+
+        return fields.toArray(new Field[fields.size()]);
+    }
+
+    /**
+     * Append the quoted text that starts at the index to the literal. Two
+     * quotes, inside or outside of the quoted text, stand for one quote.
+     *
+     * @return the index after the quoted text.
+     */
+    private static int appendQuoted(String pattern, int index, StringBuilder literal) {
+        int length = pattern.length();
+        if (index + 1 < length && pattern.charAt(index + 1) == '\'') {
+            literal.append('\'');
+            return index + 2;
+        }
+
+        index++;
+        while (index < length) {
+            char c = pattern.charAt(index);
+            if (c == '\'') {
+                if (index + 1 < length && pattern.charAt(index + 1) == '\'') {
+                    literal.append('\'');
+                    index += 2;
+                    continue;
+                }
+                return index + 1;
+            }
+            literal.append(c);
+            index++;
+        }
+        return index;
+    }
+
+    private static void addLiteral(List<Field> fields, StringBuilder literal) {
+        if (literal.length() > 0) {
+            fields.add(new Field(LITERAL, 0, literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    private static int fieldType(char c) {
+        switch (c) {
+            case 'y':
+                return YEAR;
+            case 'M':
+                return MONTH;
+            case 'd':
+                return DAY;
+            case 'E':
+                return DAY_OF_WEEK;
+            case 'H':
+                return HOUR_OF_DAY;
+            case 'h':
+                return HOUR;
+            case 'a':
+                return AM_PM;
+            case 'm':
+                return MINUTE;
+            case 's':
+                return SECOND;
+            case 'S':
+                return MILLISECOND;
+            case 'Z':
+                return ZONE;
+            default:
+                return LITERAL;
+        }
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    /**
+     * Append the date to the buffer.
+     *
+     * @param buffer the buffer to append to.
+     * @param time   the time in milliseconds since January 1, 1970 UTC.
+     */
+    public void appendTo(StringBuilder buffer, long time) {
+        long second = time >= 0 ? time / MILLIS_PER_SECOND
+                : (time - (MILLIS_PER_SECOND - 1)) / MILLIS_PER_SECOND;
+
+        Template template = threadTemplate.get();
+        if (template.second != second) {
+            render(template, second);
+        }
+
+        char[] chars = template.chars;
+        int millis = (int) (time - second * MILLIS_PER_SECOND);
+        int start = 0;
+        for (int index = 0; index < milliseconds.length; index++) {
+            int position = template.millisecondIndexes[index];
+            buffer.append(chars, start, position - start);
+            appendMillis(buffer, millis, milliseconds[index].width);
+            start = position;
+        }
+        buffer.append(chars, start, template.length - start);
+    }
+
+    /**
+     * Append the milliseconds, zero-padded to the width, without creating a
+     * <code>String</code>.
+     */
+    private static void appendMillis(StringBuilder buffer, int millis, int width) {
+        int digits = millis >= 100 ? 3 : millis >= 10 ? 2 : 1;
+        for (int padding = digits; padding < width; padding++) {
+            buffer.append('0');
+        }
+        if (digits == 3) {
+            buffer.append((char) ('0' + millis / 100));
+        }
+        if (digits >= 2) {
+            buffer.append((char) ('0' + millis / 10 % 10));
+        }
+        buffer.append((char) ('0' + millis % 10));
+    }
+
+    /**
+     * Format the date.
+     *
+     * @param time the time in milliseconds since January 1, 1970 UTC.
+     * @return the formatted date.
+     */
+    public String format(long time) {
+        StringBuilder buffer = new StringBuilder(32);
+        appendTo(buffer, time);
+        return buffer.toString();
+    }
+
+    private void render(Template template, long second) {
+        Calendar calendar = template.calendar;
+        calendar.setTimeInMillis(second * MILLIS_PER_SECOND);
+        StringBuilder builder = template.builder;
+        builder.setLength(0);
+
+        int millisecondIndex = 0;
+        for (Field field : fields) {
+            if (field.type == MILLISECOND) {
+                template.millisecondIndexes[millisecondIndex++] = builder.length();
+            } else {
+                appendField(builder, field, calendar);
+            }
+        }
+
+        int length = builder.length();
+        if (length > template.chars.length) {
+            template.chars = new char[length];
+        }
+        builder.getChars(0, length, template.chars, 0);
+        template.length = length;
+        template.second = second;
+    }
+
+    private static void appendField(StringBuilder builder, Field field, Calendar calendar) {
+        switch (field.type) {
+            case LITERAL:
+                builder.append(field.text);
+                break;
+            case YEAR:
+                int year = calendar.get(Calendar.YEAR);
+                if (field.width == 2) {
+                    appendNumber(builder, year % 100, 2);
+                } else {
+                    appendNumber(builder, year, field.width);
+                }
+                break;
+            case MONTH:
+                int month = calendar.get(Calendar.MONTH);
+                if (field.width >= 3) {
+                    builder.append(MONTH_ARRAY[month]);
+                } else {
+                    appendNumber(builder, month + 1, field.width);
+                }
+                break;
+            case DAY:
+                appendNumber(builder, calendar.get(Calendar.DAY_OF_MONTH), field.width);
+                break;
+            case DAY_OF_WEEK:
+                builder.append(DAY_ARRAY[calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY]);
+                break;
+            case HOUR_OF_DAY:
+                appendNumber(builder, calendar.get(Calendar.HOUR_OF_DAY), field.width);
+                break;
+            case HOUR:
+                int hour = calendar.get(Calendar.HOUR);
+                appendNumber(builder, hour == 0 ? 12 : hour, field.width);
+                break;
+            case AM_PM:
+                builder.append(calendar.get(Calendar.AM_PM) == Calendar.AM ? "AM" : "PM");
+                break;
+            case MINUTE:
+                appendNumber(builder, calendar.get(Calendar.MINUTE), field.width);
+                break;
+            case SECOND:
+                appendNumber(builder, calendar.get(Calendar.SECOND), field.width);
+                break;
+            case ZONE:
+                int offset = (calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET))
+                        / MILLIS_PER_MINUTE;
+                builder.append(offset < 0 ? '-' : '+');
+                offset = Math.abs(offset);
+                appendNumber(builder, offset / 60, 2);
+                appendNumber(builder, offset % 60, 2);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void appendNumber(StringBuilder builder, int value, int width) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (; digits < width; digits++) {
+            builder.append('0');
+        }
+        builder.append(value);
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString() {
+        return pattern + '{' + timeZone.getID() + '}';
+    }
+}
@@ -16,6 +16,7 @@
 package com.github.lisicnu.log4android.format.command;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 /**
  * An interface for (pattern) format command objects.
@@ -52,4 +53,16 @@ public interface FormatCommandInterface {
 	 */
 	public String execute(String clientID, String name, long time, Level level,
                           Object message, Throwable throwable);
+
+	/**
+	 * Append the converted log data of the event to the buffer, without
+	 * creating an intermediate <code>String</code>. The data is taken from
+	 * the event, so the result is the same on any thread and at any time.
+	 * 
+	 * @param buffer
+	 *            the buffer to append to.
+	 * @param event
+	 *            the logging event.
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event);
 }
@@ -16,6 +16,8 @@
 package com.github.lisicnu.log4android.format.command;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.format.ParameterizedMessage;
 
 /**
  * Convert the logged message.
@@ -47,4 +49,29 @@ public class MessageFormatCommand implements FormatCommandInterface {
 		return convertedData;
 	}
 
+	/**
+	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#appendTo(StringBuilder,
+	 *      com.github.lisicnu.log4android.LogEvent)
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event){
+		appendMessage(buffer, event.getMessage());
+	}
+
+	/**
+	 * Append the logged message to the buffer. A
+	 * <code>ParameterizedMessage</code> is formatted directly into the buffer.
+	 * 
+	 * @param buffer
+	 *            the buffer to append to.
+	 * @param message
+	 *            the log message.
+	 */
+	public void appendMessage(StringBuilder buffer, Object message){
+		if (message instanceof ParameterizedMessage) {
+			((ParameterizedMessage) message).formatTo(buffer);
+		} else if (message != null) {
+			buffer.append(message);
+		}
+	}
+
 }
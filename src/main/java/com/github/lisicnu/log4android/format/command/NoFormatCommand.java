@@ -16,10 +16,12 @@
 package com.github.lisicnu.log4android.format.command;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 /**
  * This command does not do any formatting. It just stores the
- * <code>preFormatString</code> and returns it.
+ * <code>preFormatString</code> and returns it. The string is also kept as a
+ * <code>char[]</code>, which is appended to a buffer with a single copy.
  * 
  * @author Johan Karlsson (johan.karlsson@jayway.se)
  */
@@ -27,11 +29,14 @@ public class NoFormatCommand implements FormatCommandInterface {
 
 	private String preFormatString = "";
 
+	private char[] preFormatChars = new char[0];
+
 	/**
 	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#init(String)
 	 */
 	public void init(String preFormatString){
 		this.preFormatString = preFormatString;
+		this.preFormatChars = preFormatString.toCharArray();
 	}
 
 	/**
@@ -46,4 +51,12 @@ public class NoFormatCommand implements FormatCommandInterface {
 		return preFormatString;
 	}
 
+	/**
+	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#appendTo(StringBuilder,
+	 *      com.github.lisicnu.log4android.LogEvent)
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event){
+		buffer.append(preFormatChars);
+	}
+
 }
@@ -16,6 +16,7 @@
 package com.github.lisicnu.log4android.format.command;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 /**
  * Convert the <code>Level</code> to message.
@@ -47,4 +48,15 @@ public class PriorityFormatCommand implements FormatCommandInterface {
 		return levelString;
 	}
 
+	/**
+	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#appendTo(StringBuilder,
+	 *      com.github.lisicnu.log4android.LogEvent)
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event){
+		Level level = event.getLevel();
+		if (level != null) {
+			buffer.append(level.toString());
+		}
+	}
+
 }
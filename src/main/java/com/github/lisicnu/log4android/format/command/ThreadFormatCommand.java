@@ -16,6 +16,7 @@
 package com.github.lisicnu.log4android.format.command;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 /**
  * A converter that is used for printing the current thread name.
@@ -41,4 +42,12 @@ public class ThreadFormatCommand implements FormatCommandInterface {
 		return Thread.currentThread().getName();
 	}
 
+	/**
+	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#appendTo(StringBuilder,
+	 *      com.github.lisicnu.log4android.LogEvent)
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event){
+		buffer.append(event.getThreadName());
+	}
+
 }
@@ -15,20 +15,76 @@
 
 package com.github.lisicnu.log4android.format.command;
 
+import android.util.Log;
+
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.format.ThrowableRenderer;
 
 /**
- * Converts the <code>Throwable</code> to a message.
+ * Converts the <code>Throwable</code> to a message, with its stack trace and
+ * its causes.
+ * 
+ * The specifier <code>%T{n}</code> limits the number of frames per
+ * throwable, <code>%T{full}</code> prints all of them. A second specifier
+ * lists the packages whose frames are left out, e.g.
+ * <code>%T{full}{android.os.,java.lang.reflect.}</code>.
  * 
  * @author Johan Karlsson (johan.karlsson@jayway.se)
  */
 public class ThrowableFormatCommand implements FormatCommandInterface {
+	private static final String TAG = ThrowableFormatCommand.class.getSimpleName();
+
+	public static final String FULL_DEPTH_STRING = "full";
+
+	private volatile ThrowableRenderer renderer = ThrowableRenderer.DEFAULT;
 
 	/**
+	 * Set the maximum number of frames per throwable.
+	 * 
 	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#init(String)
 	 */
 	public void init(String initString){
-		// Do nothing.
+		int maxDepth = ThrowableRenderer.UNLIMITED_DEPTH;
+		if (!initString.equals(FULL_DEPTH_STRING)) {
+			try {
+				maxDepth = Integer.parseInt(initString.trim());
+			} catch (NumberFormatException e) {
+				Log.e(TAG, "Failed to parse the specifier for the %T pattern " + e);
+				return;
+			}
+		}
+		renderer = ThrowableRenderer.getInstance(maxDepth, renderer.getFilteredPackages());
+	}
+
+	/**
+	 * Set the packages whose frames are left out.
+	 * 
+	 * @param packages
+	 *            a comma separated list of package prefixes.
+	 */
+	public void setFilteredPackages(String packages){
+		String[] prefixes = packages.split(",");
+		int count = 0;
+		for (int index = 0; index < prefixes.length; index++) {
+			String prefix = prefixes[index].trim();
+			if (prefix.length() > 0) {
+				prefixes[count++] = prefix;
+			}
+		}
+
+		String[] filteredPackages = new String[count];
+		System.arraycopy(prefixes, 0, filteredPackages, 0, count);
+		renderer = ThrowableRenderer.getInstance(renderer.getMaxDepth(), filteredPackages);
+	}
+
+	/**
+	 * Get the renderer of the throwables.
+	 * 
+	 * @return the renderer.
+	 */
+	public ThrowableRenderer getRenderer(){
+		return renderer;
 	}
 
 	/**
@@ -39,21 +95,19 @@ public class ThrowableFormatCommand implements FormatCommandInterface {
 	 */
 	public String execute(String clientID, String name, long time, Level level,
 	        Object message, Throwable throwable){
-
-		StringBuilder sb = new StringBuilder();
-		if (throwable != null) {
-			sb.append(throwable.toString());
-			String newline = System.getProperty("line.separator");
-			StackTraceElement[] stackTrace = throwable.getStackTrace();
-			for (int i = 0; i < stackTrace.length; i++) {
-				StackTraceElement element = stackTrace[i];
-				sb.append(newline);
-				sb.append("\tat ");
-				sb.append(element.toString());
-			}
+		if (throwable == null) {
+			return "";
 		}
 
-		return sb.toString();
+		return renderer.render(throwable);
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#appendTo(StringBuilder,
+	 *      com.github.lisicnu.log4android.LogEvent)
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event){
+		renderer.appendTo(buffer, event.getThrowable());
 	}
 
 }
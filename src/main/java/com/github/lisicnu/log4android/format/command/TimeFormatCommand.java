@@ -16,19 +16,43 @@
 package com.github.lisicnu.log4android.format.command;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
 
 /**
+ * Prints the relative time of the logging event in milliseconds. With the
+ * <code>us</code> specifier, i.e. <code>%r{us}</code>, the time is printed
+ * with microsecond precision, e.g. <code>1234.567</code>.
  * 
  * @author Johan Karlsson (johan.karlsson@jayway.se)
  */
 public class TimeFormatCommand implements FormatCommandInterface {
 
+	public static final String MILLISECONDS_SPECIFIER = "ms";
+
+	public static final String MICROSECONDS_SPECIFIER = "us";
+
+	private static final long NANOS_PER_MICRO = 1000L;
+
+	private static final long MICROS_PER_MILLI = 1000L;
+
+	private boolean microseconds;
+
 	/**
+	 * Set the precision, <code>ms</code> or <code>us</code>.
 	 * 
 	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#init(String)
 	 */
 	public void init(String preFormatString) {
-		// Do nothing.
+		microseconds = MICROSECONDS_SPECIFIER.equals(preFormatString);
+	}
+
+	/**
+	 * Check if the time is printed with microsecond precision.
+	 * 
+	 * @return <code>true</code> for microsecond precision.
+	 */
+	public boolean isMicroseconds() {
+		return microseconds;
 	}
 
 	/**
@@ -40,4 +64,27 @@ public class TimeFormatCommand implements FormatCommandInterface {
 		return String.valueOf(time);
 	}
 
+	/**
+	 * @see com.github.lisicnu.log4android.format.command.FormatCommandInterface#appendTo(StringBuilder,
+	 *      com.github.lisicnu.log4android.LogEvent)
+	 */
+	public void appendTo(StringBuilder buffer, LogEvent event) {
+		if (!microseconds) {
+			buffer.append(event.getTime());
+			return;
+		}
+
+		long micros = event.getTimeNanos() / NANOS_PER_MICRO;
+		buffer.append(micros / MICROS_PER_MILLI);
+		buffer.append('.');
+		long fraction = micros % MICROS_PER_MILLI;
+		if (fraction < 100) {
+			buffer.append('0');
+		}
+		if (fraction < 10) {
+			buffer.append('0');
+		}
+		buffer.append(fraction);
+	}
+
 }
@@ -1,6 +1,9 @@
 package com.github.lisicnu.log4android.repository;
 
 import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.Logger;
+import com.github.lisicnu.log4android.RateLimiter;
+import com.github.lisicnu.log4android.Sampler;
 
 public interface CommonLoggerRepository {
 	/**
@@ -11,4 +14,60 @@ public interface CommonLoggerRepository {
 	 * @return the effective <code>Level</code>
 	 */
 	public Level getEffectiveLevel(String loggerName);
+
+	/**
+	 * Get the level generation of the repository. The generation changes every
+	 * time a level in the repository is changed, which lets a
+	 * <code>Logger</code> cache its effective level until the next change.
+	 * 
+	 * @return the current level generation.
+	 */
+	public int getLevelGeneration();
+
+	/**
+	 * Notify the repository that the level of one of its loggers has changed.
+	 * This starts a new level generation.
+	 */
+	public void levelChanged();
+
+	/**
+	 * Notify the repository that a level, a rate limiter, a sampler or a
+	 * filter has been set on one of its loggers. The repository must keep
+	 * that logger, so the setting is found again by its name.
+	 * 
+	 * @param logger
+	 *            the configured <code>Logger</code>.
+	 */
+	public void loggerConfigured(Logger logger);
+
+	/**
+	 * Get the lowest level value that is enabled for any of the loggers in
+	 * the repository. A message below this value is not logged by any
+	 * logger.
+	 * 
+	 * @return the lowest enabled level value, or
+	 *         <code>Integer.MAX_VALUE</code> if all loggers are turned off.
+	 */
+	public int getLowestEnabledLevel();
+
+	/**
+	 * Get the rate limiters of the specified logger and of all its parents,
+	 * the closest first. An event has to pass all of them. A change of a
+	 * limiter starts a new level generation, so the result can be cached
+	 * like the effective level.
+	 * 
+	 * @return the <code>RateLimiter</code> objects, an empty array if there
+	 *         are none.
+	 */
+	public RateLimiter[] getRateLimiters(String loggerName);
+
+	/**
+	 * Get the sampler of the specified logger, i.e. the one of the closest
+	 * logger in the hierarchy that has a sampler. A change of a sampler
+	 * starts a new level generation.
+	 * 
+	 * @return the effective <code>Sampler</code>, or <code>null</code> if
+	 *         there is none.
+	 */
+	public Sampler getEffectiveSampler(String loggerName);
 }
@@ -18,10 +18,18 @@ import android.util.Log;
 
 import com.github.lisicnu.log4android.Level;
 import com.github.lisicnu.log4android.Logger;
+import com.github.lisicnu.log4android.RateLimiter;
+import com.github.lisicnu.log4android.Sampler;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The <code>LoggerRepository</code> creates and contains all
@@ -37,8 +45,31 @@ public enum DefaultLoggerRepository implements LoggerRepository, CommonLoggerRep
 
 	private static final String TAG = DefaultLoggerRepository.class.getSimpleName();
 	private MicrologRepositoryNode rootNode;
-	private Hashtable<String, MicrologRepositoryNode> leafNodeHashtable = new Hashtable<String, MicrologRepositoryNode>(
+	/**
+	 * The nodes of the loggers that have been asked for, by name. A logger
+	 * that already exists is found here without any locking.
+	 */
+	private final ConcurrentHashMap<String, MicrologRepositoryNode> leafNodes = new ConcurrentHashMap<String, MicrologRepositoryNode>(
 	        43);
+	private final AtomicInteger levelGeneration = new AtomicInteger();
+	private volatile int lowestEnabledLevel = Level.TRACE_INT;
+	/**
+	 * Set while <code>setLevels</code> applies all but the last level, so
+	 * the tree is walked only once for the lowest enabled level.
+	 */
+	private volatile boolean deferLevelUpdate;
+	/**
+	 * The number of leaf loggers above which unused ones are evicted, 0 if
+	 * the loggers are kept forever.
+	 */
+	private volatile int maxLeafLoggers;
+	/**
+	 * The number of leaf loggers above which the next eviction starts. It is
+	 * above the maximum while released loggers are still reachable, so the
+	 * loggers are not scanned again for every new one.
+	 */
+	private volatile int nextEviction;
+	private final AtomicBoolean evicting = new AtomicBoolean();
 
 	/**
 	 * Create a <code>LoggerRepository</code>.
@@ -47,6 +78,7 @@ public enum DefaultLoggerRepository implements LoggerRepository, CommonLoggerRep
 		Logger rootLogger = new Logger("", this);
 		rootLogger.setLevel(Level.DEBUG);
 		rootNode = new MicrologRepositoryNode("", rootLogger);
+		updateLowestEnabledLevel();
 	}
 
 	/**
@@ -57,86 +89,277 @@ public enum DefaultLoggerRepository implements LoggerRepository, CommonLoggerRep
 	}
 
 	/**
+	 * Get the logger with the specified name. The lookup of an existing
+	 * logger takes no lock. A new logger is added to the tree with
+	 * put-if-absent on every level, so threads that ask for the same name at
+	 * the same time all get the same <code>Logger</code>.
+	 * 
 	 * @see com.github.lisicnu.log4android.repository.LoggerRepository#getLogger(String)
 	 */
-	public synchronized Logger getLogger(String name){
-		MicrologRepositoryNode node = leafNodeHashtable.get(name);
+	public Logger getLogger(String name){
+		MicrologRepositoryNode node = leafNodes.get(name);
 
-		final Logger logger;
 		if (node == null) {
-			logger = new Logger(name, this);
-			addLogger(logger);
-		} else {
-			logger = node.getLogger();
+			node = getLeafNode(name);
+		} else if (maxLeafLoggers > 0 && !node.isReferenced()) {
+			node.setReferenced(true);
 		}
 
+		Logger logger = node.getLogger();
+		while (node.isRemoved()) {
+			// The released logger was collected and the node evicted meanwhile.
+			node = getLeafNode(name);
+			logger = node.getLogger();
+		}
 		return logger;
 	}
 
+	private MicrologRepositoryNode getLeafNode(String name){
+		while (true) {
+			MicrologRepositoryNode node = getOrCreateNode(name);
+			MicrologRepositoryNode existing = leafNodes.putIfAbsent(name, node);
+			if (existing != null) {
+				node = existing;
+			}
+
+			if (node.isRemoved()) {
+				// Evicted meanwhile, add it again.
+				leafNodes.remove(name, node);
+				continue;
+			}
+
+			int max = maxLeafLoggers;
+			if (existing == null && max > 0 && leafNodes.size() > Math.max(max, nextEviction)) {
+				evictUnused(max);
+			}
+			return node;
+		}
+	}
+
 	/**
-	 * Adds the specified <code>Logger</code> to the tree.
+	 * Get the node with the specified name, the missing nodes of the path are
+	 * added to the tree. An existing node is reused, so a level set on a part
+	 * of the hierarchy belongs to the <code>Logger</code> with that name. When
+	 * two threads add the same node, the one that is added first is used by
+	 * both.
 	 *
-	 * @param logger
-	 *            the <code>Logger</code> to add.
+	 * @param name
+	 *            the name of the node.
+	 * @return the node.
 	 */
-	void addLogger(Logger logger){
-		String loggerName = logger.getName();
+	private MicrologRepositoryNode getOrCreateNode(String name){
+		if (name.length() == 0) {
+			return rootNode;
+		}
 
-		MicrologRepositoryNode currentNode = rootNode;
-		String[] pathComponents = LoggerNamesUtil.getLoggerNameComponents(loggerName);
-		for (String pathComponent : pathComponents) {
-			MicrologRepositoryNode child = currentNode.getChildNode(pathComponent);
+		String[] pathComponents = LoggerNamesUtil.getLoggerNameComponents(name);
+		retry: while (true) {
+			MicrologRepositoryNode currentNode = rootNode;
+			int pathLength = 0;
+			for (String pathComponent : pathComponents) {
+				pathLength += pathComponent.length();
+				MicrologRepositoryNode child = currentNode.getChildNode(pathComponent);
 
-			if (child == null) {
-				// No child => add the child
-				currentNode = createNewChildNode(pathComponent, currentNode);
+				if (child == null) {
+					// No child => add the child. The logger of a node in the
+					// middle of the path is created when it is needed.
+					Logger logger = pathLength == name.length() ? new Logger(name, this) : null;
+					child = currentNode.addChildIfAbsent(new MicrologRepositoryNode(
+					        pathComponent.intern(), logger, currentNode));
+					if (child == null) {
+						// The node has been evicted, start over.
+						continue retry;
+					}
+				}
+
+				currentNode = child;
+				pathLength++;
+			}
+
+			if (currentNode.isRemoved()) {
+				continue;
 			}
+			return currentNode;
+		}
+	}
+
+	/**
+	 * Release the leaf loggers that have not been asked for since the last
+	 * eviction and have nothing configured on them, until the number of
+	 * leaf loggers is a bit below the maximum. Every logger gets a second
+	 * chance, like in the clock algorithm, so the loggers in use stay if
+	 * there are enough unused ones.
+	 * <p/>
+	 * A released logger is only weakly referenced by its node. The node is
+	 * removed by a later eviction once the logger has been collected, so a
+	 * logger that is still held, e.g. in a <code>static final</code> field,
+	 * keeps its place in the tree and is returned again for its name. A
+	 * package node without a logger is removed with its last child.
+	 */
+	private void evictUnused(int max){
+		if (!evicting.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			synchronized (this) {
+				int excess = leafNodes.size() - (max - max / 8);
+				for (int pass = 0; pass < 2 && excess > 0; pass++) {
+					Iterator<Map.Entry<String, MicrologRepositoryNode>> entries = leafNodes
+					        .entrySet().iterator();
+					while (excess > 0 && entries.hasNext()) {
+						Map.Entry<String, MicrologRepositoryNode> entry = entries.next();
+						MicrologRepositoryNode node = entry.getValue();
+						if (node.isLoggerReleased()) {
+							if (pass == 0) {
+								// Removed if the logger has been collected.
+								evict(entry.getKey(), node);
+								excess--;
+							}
+						} else if (pass == 0 && node.isReferenced()) {
+							node.setReferenced(false);
+						} else if (node != rootNode && isUnconfigured(node.peekLogger())) {
+							node.releaseLogger();
+							excess--;
+						}
+					}
+				}
+				nextEviction = leafNodes.size() + max / 8;
+			}
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	private void evict(String name, MicrologRepositoryNode node){
+		if (!node.markRemoved()) {
+			return;
+		}
+
+		MicrologRepositoryNode parent = node.getParent();
+		parent.removeChild(node);
+		leafNodes.remove(name, node);
+
+		while (parent != rootNode && parent.markRemoved()) {
+			parent.getParent().removeChild(parent);
+			parent = parent.getParent();
+		}
+	}
+
+	/**
+	 * Keep a released logger again once something is configured on it, so
+	 * the setting is not lost when the caller drops the logger.
+	 * 
+	 * @see com.github.lisicnu.log4android.repository.CommonLoggerRepository#loggerConfigured(com.github.lisicnu.log4android.Logger)
+	 */
+	public synchronized void loggerConfigured(Logger logger){
+		MicrologRepositoryNode node = leafNodes.get(logger.getName());
+		if (node == null && rootNode != null) {
+			node = findNode(logger.getName());
+		}
+		if (node != null) {
+			node.keepLogger(logger);
+		}
+	}
+
+	private static boolean isUnconfigured(Logger logger){
+		return logger == null
+		        || (logger.getLevel() == null && logger.getRateLimiter() == null
+		                && logger.getSampler() == null && logger.getFilterChain().size() == 0);
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.repository.LoggerRepository#setMaxLeafLoggers(int)
+	 */
+	public void setMaxLeafLoggers(int maxLeafLoggers){
+		if (maxLeafLoggers < 0) {
+			throw new IllegalArgumentException("The maximum must not be negative.");
+		}
+
+		this.maxLeafLoggers = maxLeafLoggers;
+		nextEviction = 0;
+		if (maxLeafLoggers > 0 && leafNodes.size() > maxLeafLoggers) {
+			evictUnused(maxLeafLoggers);
+		}
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.repository.LoggerRepository#getMaxLeafLoggers()
+	 */
+	public int getMaxLeafLoggers(){
+		return maxLeafLoggers;
+	}
+
+	/**
+	 * Find the node with the specified name, without changing the tree. If
+	 * the node does not exist, e.g. because its logger has been evicted, the
+	 * closest node above it is returned, which has the same inherited
+	 * settings.
+	 *
+	 * @return the node or its closest existing parent.
+	 */
+	private MicrologRepositoryNode findNode(String name){
+		MicrologRepositoryNode currentNode = leafNodes.get(name);
+		if (currentNode != null || name.length() == 0) {
+			return currentNode != null ? currentNode : rootNode;
 		}
 
-		// Add the leaf node
-		if (pathComponents.length > 0) {
-			String leafName = LoggerNamesUtil.getClassName(pathComponents);
-			MicrologRepositoryNode leafNode = new MicrologRepositoryNode(leafName, logger,
-			        currentNode);
-			currentNode.addChild(leafNode);
-			leafNodeHashtable.put(loggerName, leafNode);
+		currentNode = rootNode;
+		String[] pathComponents = LoggerNamesUtil.getLoggerNameComponents(name);
+		for (int index = 0; index < pathComponents.length; index++) {
+			MicrologRepositoryNode child = currentNode.getChildNode(pathComponents[index]);
+			if (child == null) {
+				break;
+			}
+			currentNode = child;
 		}
+
+		return currentNode;
 	}
 
 	/**
 	 * @see com.github.lisicnu.log4android.repository.LoggerRepository#setLevel(String,
 	 *      com.github.lisicnu.log4android.Level)
 	 */
-	public void setLevel(String name, Level level){
-		// Check if name the name is a leaf node
-		MicrologRepositoryNode leafNode = leafNodeHashtable.get(name);
-
-		if (leafNode != null) {
-			leafNode.getLogger().setLevel(level);
-		} else {
-			MicrologRepositoryNode currentNode = rootNode;
-			String[] pathComponents = LoggerNamesUtil.getLoggerNameComponents(name);
-			for (String pathComponent : pathComponents) {
-				MicrologRepositoryNode child = currentNode.getChildNode(pathComponent);
+	public synchronized void setLevel(String name, Level level){
+		getOrCreateNode(name).getLogger().setLevel(level);
+	}
 
-				if (child == null) {
-					// No child => add the child
-					currentNode = createNewChildNode(pathComponent, currentNode);
-				}
+	/**
+	 * @see com.github.lisicnu.log4android.repository.LoggerRepository#setLevels(java.util.Map)
+	 */
+	public synchronized void setLevels(Map<String, Level> levels){
+		for (Map.Entry<String, Level> entry : levels.entrySet()) {
+			if (entry.getKey() == null || entry.getValue() == null) {
+				throw new IllegalArgumentException("The names and levels must not be null.");
 			}
+		}
 
-			if (currentNode != null) {
-				currentNode.getLogger().setLevel(level);
+		int remaining = levels.size();
+		try {
+			for (Map.Entry<String, Level> entry : levels.entrySet()) {
+				deferLevelUpdate = --remaining > 0;
+				getOrCreateNode(entry.getKey()).getLogger().setLevel(entry.getValue());
 			}
+		} finally {
+			deferLevelUpdate = false;
 		}
 	}
 
-	private MicrologRepositoryNode createNewChildNode(final String pathComponent,
-	        final MicrologRepositoryNode currentNode){
-		MicrologRepositoryNode newChild = new MicrologRepositoryNode(pathComponent, currentNode);
-		currentNode.addChild(newChild);
+	/**
+	 * @see com.github.lisicnu.log4android.repository.LoggerRepository#setRateLimiter(String,
+	 *      com.github.lisicnu.log4android.RateLimiter)
+	 */
+	public synchronized void setRateLimiter(String name, RateLimiter rateLimiter){
+		getOrCreateNode(name).getLogger().setRateLimiter(rateLimiter);
+	}
 
-		return newChild;
+	/**
+	 * @see com.github.lisicnu.log4android.repository.LoggerRepository#setSampler(String,
+	 *      com.github.lisicnu.log4android.Sampler)
+	 */
+	public synchronized void setSampler(String name, Sampler sampler){
+		getOrCreateNode(name).getLogger().setSampler(sampler);
 	}
 
 	/**
@@ -144,28 +367,120 @@ public enum DefaultLoggerRepository implements LoggerRepository, CommonLoggerRep
 	 */
 	public Level getEffectiveLevel(String loggerName){
 		Level effectiveLevel = null;
-		MicrologRepositoryNode currentNode = leafNodeHashtable.get(loggerName);
+		MicrologRepositoryNode currentNode = findNode(loggerName);
 
 		while (effectiveLevel == null && currentNode != null) {
-			effectiveLevel = currentNode.getLogger().getLevel();
+			Logger logger = currentNode.peekLogger();
+			effectiveLevel = logger != null ? logger.getLevel() : null;
 			currentNode = currentNode.getParent();
 		}
 
 		return effectiveLevel;
 	}
 
+	/**
+	 * @see com.github.lisicnu.log4android.repository.CommonLoggerRepository#getRateLimiters(String)
+	 */
+	public RateLimiter[] getRateLimiters(String loggerName){
+		List<RateLimiter> rateLimiters = new ArrayList<RateLimiter>(2);
+		MicrologRepositoryNode currentNode = findNode(loggerName);
+
+		while (currentNode != null) {
+			Logger logger = currentNode.peekLogger();
+			RateLimiter rateLimiter = logger != null ? logger.getRateLimiter() : null;
+			if (rateLimiter != null) {
+				rateLimiters.add(rateLimiter);
+			}
+			currentNode = currentNode.getParent();
+		}
+
+		return rateLimiters.toArray(new RateLimiter[rateLimiters.size()]);
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.repository.CommonLoggerRepository#getEffectiveSampler(String)
+	 */
+	public Sampler getEffectiveSampler(String loggerName){
+		Sampler sampler = null;
+		MicrologRepositoryNode currentNode = findNode(loggerName);
+
+		while (sampler == null && currentNode != null) {
+			Logger logger = currentNode.peekLogger();
+			sampler = logger != null ? logger.getSampler() : null;
+			currentNode = currentNode.getParent();
+		}
+
+		return sampler;
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.repository.CommonLoggerRepository#getLevelGeneration()
+	 */
+	public int getLevelGeneration(){
+		return levelGeneration.get();
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.repository.CommonLoggerRepository#levelChanged()
+	 */
+	public void levelChanged(){
+		levelGeneration.incrementAndGet();
+		if (!deferLevelUpdate) {
+			updateLowestEnabledLevel();
+		}
+	}
+
+	/**
+	 * @see com.github.lisicnu.log4android.repository.CommonLoggerRepository#getLowestEnabledLevel()
+	 */
+	public int getLowestEnabledLevel(){
+		return lowestEnabledLevel;
+	}
+
+	/**
+	 * Find the lowest level that is set on any logger in the tree. A logger
+	 * without a level inherits it, so it can not enable anything lower.
+	 */
+	private synchronized void updateLowestEnabledLevel(){
+		if (rootNode == null) {
+			// The root logger is being created.
+			return;
+		}
+
+		int lowest = Integer.MAX_VALUE;
+		if (rootNode.getLogger().getLevel() == null) {
+			lowest = Logger.DEFAULT_LOG_LEVEL.toInt();
+		}
+		lowestEnabledLevel = lowestEnabledLevel(rootNode, lowest);
+	}
+
+	private static int lowestEnabledLevel(MicrologRepositoryNode node, int lowest){
+		Logger logger = node.peekLogger();
+		Level level = logger != null ? logger.getLevel() : null;
+		if (level != null && level != Level.OFF && level.toInt() < lowest) {
+			lowest = level.toInt();
+		}
+
+		Enumeration<MicrologRepositoryNode> children = node.getChildren();
+		while (children.hasMoreElements()) {
+			lowest = lowestEnabledLevel(children.nextElement(), lowest);
+		}
+
+		return lowest;
+	}
+
 	/**
 	 * @see com.github.lisicnu.log4android.repository.LoggerRepository#contains(String)
 	 */
 	public boolean contains(String name){
-		return leafNodeHashtable.containsKey(name);
+		return leafNodes.containsKey(name);
 	}
 
 	/**
 	 * @see com.github.lisicnu.log4android.repository.LoggerRepository#numberOfLeafNodes()
 	 */
 	public int numberOfLeafNodes(){
-		return leafNodeHashtable.size();
+		return leafNodes.size();
 	}
 
 	/**
@@ -173,7 +488,8 @@ public enum DefaultLoggerRepository implements LoggerRepository, CommonLoggerRep
 	 */
 	public void reset(){
 		rootNode.resetLogger();
-		leafNodeHashtable.clear();
+		leafNodes.clear();
+		levelChanged();
 	}
 
 	/**
@@ -181,11 +497,11 @@ public enum DefaultLoggerRepository implements LoggerRepository, CommonLoggerRep
 	 * resources.
 	 */
 	public void shutdown(){
-		Enumeration<MicrologRepositoryNode> leafNodes = leafNodeHashtable.elements();
+		Enumeration<MicrologRepositoryNode> nodes = leafNodes.elements();
 
-		while (leafNodes.hasMoreElements()) {
-			MicrologRepositoryNode node = leafNodes.nextElement();
-			Logger logger = node.getLogger();
+		while (nodes.hasMoreElements()) {
+			MicrologRepositoryNode node = nodes.nextElement();
+			Logger logger = node.peekLogger();
 
 			if (logger != null) {
 				try {
@@ -5,8 +5,45 @@ public enum LoggerNamesUtil {
 
 	private static final String EMPTY = "";
 
+	private static final String[] NO_COMPONENTS = new String[0];
+
+	/**
+	 * Split the logger name at the dots, like <code>split("\\.")</code>
+	 * but without a regular expression, i.e. trailing empty components are
+	 * left out.
+	 */
 	public static String[] getLoggerNameComponents(final String loggerName){
-		return loggerName.split("\\.");
+		final int length = loggerName.length();
+		if (length == 0) {
+			return new String[] { loggerName };
+		}
+
+		int end = length;
+		while (end > 0 && loggerName.charAt(end - 1) == '.') {
+			end--;
+		}
+		if (end == 0) {
+			return NO_COMPONENTS;
+		}
+
+		int count = 1;
+		for (int index = 0; index < end; index++) {
+			if (loggerName.charAt(index) == '.') {
+				count++;
+			}
+		}
+
+		final String[] components = new String[count];
+		int start = 0;
+		for (int component = 0; component < count; component++) {
+			int dot = loggerName.indexOf('.', start);
+			if (dot < 0 || dot > end) {
+				dot = end;
+			}
+			components[component] = loggerName.substring(start, dot);
+			start = dot + 1;
+		}
+		return components;
 	}
 
 	public static String getClassName(final String[] pathComponents){
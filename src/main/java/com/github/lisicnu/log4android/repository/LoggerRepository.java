@@ -16,6 +16,10 @@ package com.github.lisicnu.log4android.repository;
 
 import com.github.lisicnu.log4android.Level;
 import com.github.lisicnu.log4android.Logger;
+import com.github.lisicnu.log4android.RateLimiter;
+import com.github.lisicnu.log4android.Sampler;
+
+import java.util.Map;
 
 public interface LoggerRepository {
 
@@ -44,6 +48,68 @@ public interface LoggerRepository {
 	 */
 	public void setLevel(String name, Level level);
 
+	/**
+	 * Set the levels of many parts of the logging hierarchy at once. The
+	 * levels are applied in one pass, which is cheaper than calling
+	 * <code>setLevel</code> for each of them.
+	 * 
+	 * @param levels
+	 *            the levels by the name of the logging hierarchy to set
+	 *            them on.
+	 * @throws IllegalArgumentException
+	 *             if a name or a level is <code>null</code>.
+	 */
+	public void setLevels(Map<String, Level> levels) throws IllegalArgumentException;
+
+	/**
+	 * Set the rate limiter on the specified part of the logging hierarchy.
+	 * The limiter is shared by all the loggers of that part that have no
+	 * limiter of their own.
+	 * 
+	 * @param name
+	 *            the name of the logging hierarchy to set the limiter on.
+	 * @param rateLimiter
+	 *            the limiter to set, <code>null</code> removes it.
+	 */
+	public void setRateLimiter(String name, RateLimiter rateLimiter);
+
+	/**
+	 * Set the sampler on the specified part of the logging hierarchy. The
+	 * sampler is shared by all the loggers of that part that have no sampler
+	 * of their own.
+	 * 
+	 * @param name
+	 *            the name of the logging hierarchy to set the sampler on.
+	 * @param sampler
+	 *            the sampler to set, <code>null</code> removes it.
+	 */
+	public void setSampler(String name, Sampler sampler);
+
+	/**
+	 * Bound the number of leaf loggers, for applications that create loggers
+	 * with names built at runtime. When there are more, the loggers that
+	 * have not been asked for recently and have no level, rate limiter,
+	 * sampler or filter of their own are removed. The next
+	 * <code>getLogger</code> with such a name creates a new
+	 * <code>Logger</code>. A removed <code>Logger</code> that is still used
+	 * keeps inheriting the settings of its parents, but settings made on it
+	 * directly are not seen by the repository.
+	 * 
+	 * @param maxLeafLoggers
+	 *            the maximum number of leaf loggers, or 0 to keep all of
+	 *            them.
+	 * @throws IllegalArgumentException
+	 *             if <code>maxLeafLoggers</code> is negative.
+	 */
+	public void setMaxLeafLoggers(int maxLeafLoggers) throws IllegalArgumentException;
+
+	/**
+	 * Get the maximum number of leaf loggers.
+	 * 
+	 * @return the maximum, or 0 if there is no limit.
+	 */
+	public int getMaxLeafLoggers();
+
 	/**
 	 * Check if the <code>LoggerRepository</code> contains the specified
 	 * <code>Logger</code> object.
@@ -18,19 +18,66 @@ package com.github.lisicnu.log4android.repository;
 import com.github.lisicnu.log4android.Level;
 import com.github.lisicnu.log4android.Logger;
 
-import java.util.Hashtable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * A node of the logger tree. The node of a package that has no logger of its
+ * own only creates its <code>Logger</code> when it is asked for, e.g. to set
+ * a level on it.
+ * <p/>
+ * A few children are kept in an array sorted by name, more children in a
+ * hash map. Both are read without locking, so a lookup of an existing logger
+ * never blocks.
+ * <p/>
+ * The logger of an unused node can be released, after that the node only
+ * keeps a weak reference to it. The node stays in the tree as long as the
+ * logger is reachable, e.g. from a <code>static final</code> field, and the
+ * logger is kept again when it is asked for or configured.
+ * 
  * @author Johan Karlsson (johan.karlsson@jayway.se)
  * 
  */
 public class MicrologRepositoryNode extends AbstractRepositoryNode {
+	/**
+	 * The number of children above which they are kept in a hash map.
+	 */
+	static final int MAX_ARRAY_CHILDREN = 8;
+
+	private static final MicrologRepositoryNode[] NO_CHILDREN = new MicrologRepositoryNode[0];
+
 	private MicrologRepositoryNode parent = null;
 
-	private Hashtable<String, MicrologRepositoryNode> children = new Hashtable<String, MicrologRepositoryNode>(
-	        17);
+	/**
+	 * The children sorted by name, replaced by a new array on every change.
+	 * It is not used anymore once <code>childMap</code> is set.
+	 */
+	private volatile MicrologRepositoryNode[] childArray = NO_CHILDREN;
+
+	private volatile ConcurrentHashMap<String, MicrologRepositoryNode> childMap;
+
+	private volatile Logger logger;
 
-	private Logger logger;
+	/**
+	 * The logger after it has been released, <code>null</code> while the
+	 * node keeps it.
+	 */
+	private volatile WeakReference<Logger> releasedLogger;
+
+	/**
+	 * Set when the node has been taken out of the tree, no children can be
+	 * added to it after that.
+	 */
+	private volatile boolean removed;
+
+	/**
+	 * Set when the logger of the node is asked for, cleared by the eviction
+	 * of unused loggers.
+	 */
+	private volatile boolean referenced = true;
 
 	/**
 	 * Create a <code>TreeNode</code> with the specified name and the associated
@@ -54,6 +101,18 @@ public class MicrologRepositoryNode extends AbstractRepositoryNode {
 		logger.setCommonRepository(DefaultLoggerRepository.INSTANCE);
 	}
 
+	/**
+	 * Create a <code>TreeNode</code> below the specified parent.
+	 * 
+	 * @param name
+	 *            the name of the <code>TreeNode</code>, i.e. the last
+	 *            component of the logger name.
+	 * @param logger
+	 *            the <code>Logger</code> of the node, or <code>null</code> to
+	 *            create it when it is first asked for.
+	 * @param parent
+	 *            the parent node.
+	 */
 	public MicrologRepositoryNode(String name, Logger logger,
 	        MicrologRepositoryNode parent) {
 		this.name = name;
@@ -61,28 +120,263 @@ public class MicrologRepositoryNode extends AbstractRepositoryNode {
 		this.parent = parent;
 	}
 
+	/**
+	 * Add the child, a child with the same name is replaced.
+	 */
 	public void addChild(MicrologRepositoryNode child){
-		children.put(child.getName(), child);
+		insertChild(child, true);
+	}
+
+	/**
+	 * Add the child, unless there already is a child with the same name.
+	 * 
+	 * @param child
+	 *            the child to add.
+	 * @return the child with the name of <code>child</code> that is in the
+	 *         tree, i.e. <code>child</code> or the existing one, or
+	 *         <code>null</code> if this node has been removed from the tree.
+	 */
+	public MicrologRepositoryNode addChildIfAbsent(MicrologRepositoryNode child){
+		MicrologRepositoryNode existing = getChildNode(child.getName());
+		return existing != null ? existing : insertChild(child, false);
+	}
+
+	private synchronized MicrologRepositoryNode insertChild(MicrologRepositoryNode child,
+	        boolean replace){
+		if (removed && !replace) {
+			return null;
+		}
+
+		ConcurrentHashMap<String, MicrologRepositoryNode> map = childMap;
+		if (map != null) {
+			if (replace) {
+				map.put(child.getName(), child);
+				return child;
+			}
+			MicrologRepositoryNode existing = map.putIfAbsent(child.getName(), child);
+			return existing != null ? existing : child;
+		}
+
+		MicrologRepositoryNode[] children = childArray;
+		int index = indexOf(children, child.getName());
+		if (index >= 0) {
+			if (!replace) {
+				return children[index];
+			}
+			MicrologRepositoryNode[] updated = children.clone();
+			updated[index] = child;
+			childArray = updated;
+			return child;
+		}
+
+		if (children.length < MAX_ARRAY_CHILDREN) {
+			int insertion = -(index + 1);
+			MicrologRepositoryNode[] updated = new MicrologRepositoryNode[children.length + 1];
+			System.arraycopy(children, 0, updated, 0, insertion);
+			updated[insertion] = child;
+			System.arraycopy(children, insertion, updated, insertion + 1, children.length
+			        - insertion);
+			childArray = updated;
+		} else {
+			map = new ConcurrentHashMap<String, MicrologRepositoryNode>(children.length * 2 + 2);
+			for (MicrologRepositoryNode existing : children) {
+				map.put(existing.getName(), existing);
+			}
+			map.put(child.getName(), child);
+			// The map is published first, a reader that still sees the old
+			// array finds all the children that existed before this one.
+			childMap = map;
+			childArray = NO_CHILDREN;
+		}
+		return child;
+	}
+
+	/**
+	 * Remove the child, if it is still the child with its name.
+	 */
+	synchronized void removeChild(MicrologRepositoryNode child){
+		ConcurrentHashMap<String, MicrologRepositoryNode> map = childMap;
+		if (map != null) {
+			map.remove(child.getName(), child);
+			return;
+		}
+
+		MicrologRepositoryNode[] children = childArray;
+		int index = indexOf(children, child.getName());
+		if (index >= 0 && children[index] == child) {
+			MicrologRepositoryNode[] updated = new MicrologRepositoryNode[children.length - 1];
+			System.arraycopy(children, 0, updated, 0, index);
+			System.arraycopy(children, index + 1, updated, index, updated.length - index);
+			childArray = updated.length == 0 ? NO_CHILDREN : updated;
+		}
+	}
+
+	/**
+	 * Mark the node as removed, unless it has children or a logger that is
+	 * still reachable.
+	 * 
+	 * @return <code>true</code> if the node is marked.
+	 */
+	synchronized boolean markRemoved(){
+		ConcurrentHashMap<String, MicrologRepositoryNode> map = childMap;
+		if (map != null ? !map.isEmpty() : childArray.length > 0) {
+			return false;
+		}
+		if (peekLogger() != null) {
+			return false;
+		}
+		removed = true;
+		return true;
 	}
 
 	/**
+	 * Keep only a weak reference to the logger, so the node can be removed
+	 * once the logger is not reachable anymore.
+	 */
+	synchronized void releaseLogger(){
+		Logger current = logger;
+		if (current != null) {
+			releasedLogger = new WeakReference<Logger>(current);
+			logger = null;
+		}
+	}
+
+	/**
+	 * Keep the logger again, if it is the released logger of this node.
+	 * 
+	 * @param released
+	 *            the logger to keep.
+	 */
+	synchronized void keepLogger(Logger released){
+		WeakReference<Logger> reference = releasedLogger;
+		if (logger == null && reference != null && reference.get() == released) {
+			logger = released;
+			releasedLogger = null;
+		}
+	}
+
+	/**
+	 * Check if the logger has been released.
+	 * 
+	 * @return <code>true</code> if the node only has a weak reference to its
+	 *         logger.
+	 */
+	boolean isLoggerReleased(){
+		return releasedLogger != null;
+	}
+
+	boolean isRemoved(){
+		return removed;
+	}
+
+	boolean isReferenced(){
+		return referenced;
+	}
+
+	void setReferenced(boolean referenced){
+		this.referenced = referenced;
+	}
+
+	private static int indexOf(MicrologRepositoryNode[] children, String name){
+		int low = 0;
+		int high = children.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = children[middle].getName().compareTo(name);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Get the logger of this node, it is created if it does not exist yet. A
+	 * released logger that is still reachable is kept again.
+	 * 
 	 * @return the logger
 	 */
 	public Logger getLogger(){
-		return logger;
+		Logger current = logger;
+		if (current == null) {
+			synchronized (this) {
+				current = peekLogger();
+				if (current == null) {
+					current = new Logger(getFullName(), DefaultLoggerRepository.INSTANCE);
+				}
+				logger = current;
+				releasedLogger = null;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Get the logger of this node without creating it. A node without a
+	 * logger has no level of its own.
+	 * 
+	 * @return the logger, or <code>null</code> if it has not been created or
+	 *         it has been released and collected.
+	 */
+	public Logger peekLogger(){
+		Logger current = logger;
+		if (current != null) {
+			return current;
+		}
+		WeakReference<Logger> reference = releasedLogger;
+		return reference != null ? reference.get() : null;
+	}
+
+	/**
+	 * @return the name of the logger of this node, i.e. the names of the
+	 *         nodes from the root down to this one.
+	 */
+	private String getFullName(){
+		if (parent == null || parent.getParent() == null) {
+			return name;
+		}
+		return parent.getFullName() + '.' + name;
 	}
 
 	public MicrologRepositoryNode getChildNode(String name){
-		return children.get(name);
+		// The array must be read before the map, see insertChild.
+		MicrologRepositoryNode[] children = childArray;
+		ConcurrentHashMap<String, MicrologRepositoryNode> map = childMap;
+		if (map != null) {
+			return map.get(name);
+		}
+
+		int index = indexOf(children, name);
+		return index >= 0 ? children[index] : null;
+	}
+
+	/**
+	 * @return the children of this node.
+	 */
+	public Enumeration<MicrologRepositoryNode> getChildren(){
+		MicrologRepositoryNode[] children = childArray;
+		ConcurrentHashMap<String, MicrologRepositoryNode> map = childMap;
+		if (map != null) {
+			return map.elements();
+		}
+		return Collections.enumeration(Arrays.asList(children));
 	}
 
 	/**
 	 * Remove all the children.
 	 */
 	public void resetLogger(){
-		children.clear();
-		logger.resetLogger();
-		logger.setLevel(Level.DEBUG);
+		synchronized (this) {
+			childMap = null;
+			childArray = NO_CHILDREN;
+		}
+		Logger current = getLogger();
+		current.resetLogger();
+		current.setLevel(Level.DEBUG);
 	}
 
 	/**
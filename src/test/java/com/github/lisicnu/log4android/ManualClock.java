@@ -0,0 +1,54 @@
+package com.github.lisicnu.log4android;
+
+/**
+ * A <code>Clock</code> for the tests that only moves when it is told to. Its
+ * monotonic time has an origin of its own, far from the one of
+ * <code>System.nanoTime()</code>.
+ */
+public final class ManualClock implements Clock {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private volatile long millis;
+
+    private volatile long nanos;
+
+    /**
+     * Create a <code>ManualClock</code>.
+     *
+     * @param millis the wall clock time to start at.
+     * @param nanos  the monotonic time to start at.
+     */
+    public ManualClock(long millis, long nanos) {
+        this.millis = millis;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Move both times forward.
+     *
+     * @param millis the milliseconds to add.
+     */
+    public void advanceMillis(long millis) {
+        advanceNanos(millis * NANOS_PER_MILLI);
+    }
+
+    /**
+     * Move both times forward, the wall clock time to the whole milliseconds.
+     *
+     * @param nanos the nanoseconds to add.
+     */
+    public synchronized void advanceNanos(long nanos) {
+        long before = this.nanos;
+        this.nanos = before + nanos;
+        millis += (before + nanos) / NANOS_PER_MILLI - before / NANOS_PER_MILLI;
+    }
+
+    public long currentTimeMillis() {
+        return millis;
+    }
+
+    public long nanoTime() {
+        return nanos;
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.lisicnu.log4android;
+
+import com.github.lisicnu.log4android.appender.LogCatAppender;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the token buckets of the <code>RateLimiter</code> with a clock that
+ * only moves when the test moves it.
+ */
+public class RateLimiterTest {
+
+    private static final long START_NANOS = -7000000000000L;
+
+    private final ManualClock clock = new ManualClock(1286901300000L, START_NANOS);
+
+    @After
+    public void tearDown() {
+        Logger.setClock(SystemTimeClock.INSTANCE);
+    }
+
+    @Test
+    public void theBurstIsLoggedAndThenTheRate() {
+        Logger.setClock(clock);
+        RateLimiter limiter = new RateLimiter(10, 3, Level.FATAL);
+
+        assertEquals(3, acquire(limiter, Level.INFO_INT, 10));
+        assertEquals(7, limiter.getThrottledCount());
+
+        // One token is refilled every 100 ms.
+        clock.advanceMillis(99);
+        assertFalse(limiter.tryAcquire(Level.INFO_INT));
+        clock.advanceMillis(1);
+        assertTrue(limiter.tryAcquire(Level.INFO_INT));
+        assertFalse(limiter.tryAcquire(Level.INFO_INT));
+
+        // A long pause refills no more than the burst.
+        clock.advanceMillis(10000);
+        assertEquals(3, acquire(limiter, Level.INFO_INT, 10));
+        assertEquals(16, limiter.resetThrottledCount());
+        assertEquals(0, limiter.getThrottledCount());
+    }
+
+    @Test
+    public void everyLevelHasABucketOfItsOwn() {
+        Logger.setClock(clock);
+        RateLimiter limiter = new RateLimiter(1, 2, Level.FATAL);
+
+        assertEquals(2, acquire(limiter, Level.DEBUG_INT, 100));
+        assertEquals(2, acquire(limiter, Level.ERROR_INT, 100));
+        assertEquals(2, acquire(limiter, Level.TRACE_INT, 100));
+    }
+
+    @Test
+    public void levelsAboveTheLimitedLevelAreNotLimited() {
+        Logger.setClock(clock);
+        RateLimiter limiter = new RateLimiter(1, 1, Level.WARN);
+
+        assertEquals(1, acquire(limiter, Level.WARN_INT, 10));
+        assertEquals(10, acquire(limiter, Level.ERROR_INT, 10));
+    }
+
+    @Test
+    public void theTimeCanBePassedIn() {
+        RateLimiter limiter = new RateLimiter(1000, 1, Level.FATAL);
+        long now = 42000000000L;
+
+        assertTrue(limiter.tryAcquire(Level.INFO_INT, now));
+        assertFalse(limiter.tryAcquire(Level.INFO_INT, now + 999999));
+        assertTrue(limiter.tryAcquire(Level.INFO_INT, now + 1000000));
+    }
+
+    @Test
+    public void aClockOfAnotherOriginStartsWithFullBuckets() {
+        RateLimiter limiter = new RateLimiter(1, 2, Level.FATAL);
+        assertEquals(2, acquire(limiter, Level.INFO_INT, 10));
+
+        // The manual clock is far behind System.nanoTime().
+        Logger.setClock(clock);
+        assertEquals(2, acquire(limiter, Level.INFO_INT, 10));
+    }
+
+    @Test
+    public void theLoggerReadsTheTimeFromItsClock() {
+        Logger.setClock(clock);
+        Logger logger = new Logger("com.example.Limited");
+        logger.setLevel(Level.INFO);
+        RateLimiter limiter = new RateLimiter(10, 1, Level.FATAL);
+        logger.setRateLimiter(limiter);
+        logger.setAddDefaultLogger(false);
+        logger.addAppender(new LogCatAppender());
+        try {
+            logger.info("first");
+            logger.info("throttled");
+            clock.advanceMillis(100);
+            logger.info("second");
+            assertEquals(1, limiter.getThrottledCount());
+        } finally {
+            logger.removeAllAppenders();
+            logger.resetLogger();
+        }
+    }
+
+    private static int acquire(RateLimiter limiter, int levelValue, int count) {
+        int acquired = 0;
+        for (int index = 0; index < count; index++) {
+            if (limiter.tryAcquire(levelValue)) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+}
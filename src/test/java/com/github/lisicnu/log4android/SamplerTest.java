@@ -0,0 +1,101 @@
+package com.github.lisicnu.log4android;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the rates of the levels of a <code>Sampler</code>.
+ */
+public class SamplerTest {
+
+    private static final int EVENTS = 200000;
+
+    @After
+    public void tearDown() {
+        LogContext.clear();
+    }
+
+    @Test
+    public void everyLevelIsSampledWithItsOwnRate() {
+        Sampler sampler = new Sampler(null).withRate(Level.TRACE, 100).withRate(Level.DEBUG, 10);
+
+        assertEquals(100, sampler.getRate(Level.TRACE));
+        assertEquals(10, sampler.getRate(Level.DEBUG));
+        assertEquals(1, sampler.getRate(Level.INFO));
+        assertRate(100, sampler, Level.TRACE);
+        assertRate(10, sampler, Level.DEBUG);
+        assertEquals(EVENTS, kept(sampler, Level.INFO));
+        assertEquals(EVENTS, kept(sampler, Level.FATAL));
+    }
+
+    @Test
+    public void oneRateAppliesToAllTheLevelsUpToTheLevel() {
+        Sampler sampler = new Sampler(20, Level.INFO);
+
+        assertEquals(20, sampler.getRate(Level.TRACE));
+        assertEquals(20, sampler.getRate(Level.DEBUG));
+        assertEquals(20, sampler.getRate(Level.INFO));
+        assertEquals(1, sampler.getRate(Level.WARN));
+        assertEquals(EVENTS, kept(sampler, Level.WARN));
+    }
+
+    @Test
+    public void withRateLeavesTheSamplerUnchanged() {
+        Sampler sampler = new Sampler(20, Level.DEBUG, "requestId");
+        Sampler changed = sampler.withRate(Level.TRACE, 1000);
+
+        assertEquals(20, sampler.getRate(Level.TRACE));
+        assertEquals(1000, changed.getRate(Level.TRACE));
+        assertEquals(20, changed.getRate(Level.DEBUG));
+        assertSame("requestId", changed.getKey());
+    }
+
+    @Test
+    public void theLevelsOfOneContextValueAreKeptTogether() {
+        Sampler sampler = new Sampler("requestId").withRate(Level.TRACE, 7)
+                .withRate(Level.DEBUG, 7);
+        int together = 0;
+        for (int request = 0; request < 1000; request++) {
+            LogContext.put("requestId", "request-" + request);
+            boolean trace = sampler.isSampled(Level.TRACE_INT);
+            assertEquals(trace, sampler.isSampled(Level.DEBUG_INT));
+            assertEquals(trace, sampler.isSampled(Level.TRACE_INT));
+            together += trace ? 1 : 0;
+        }
+        assertTrue("Kept " + together, together > 100 && together < 200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aRateBelowOneIsRejected() {
+        new Sampler(null).withRate(Level.DEBUG, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void offCannotBeSampled() {
+        new Sampler(null).withRate(Level.OFF, 10);
+    }
+
+    private static int kept(Sampler sampler, Level level) {
+        int kept = 0;
+        for (int index = 0; index < EVENTS; index++) {
+            if (sampler.isSampled(level.toInt())) {
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Check the number of kept events within a tolerance of 20 percent.
+     */
+    private static void assertRate(int rate, Sampler sampler, Level level) {
+        int kept = kept(sampler, level);
+        int expected = EVENTS / rate;
+        assertTrue(level + " kept " + kept + ", expected about " + expected,
+                Math.abs(kept - expected) < expected / 5);
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.lisicnu.log4android;
+
+import com.github.lisicnu.log4android.appender.AbstractAppender;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the relative time of the events is measured with the clock of
+ * the <code>Logger</code>.
+ */
+public class StopWatchTest {
+
+    private static final long START_NANOS = -5000000000000L;
+
+    private static final long START_MILLIS = 1286901300000L;
+
+    private final Logger logger = new Logger("com.example.Clock");
+
+    private final List<Long> times = new ArrayList<Long>();
+
+    /**
+     * Keeps the relative time of every event.
+     */
+    private final class TimeAppender extends AbstractAppender {
+        @Override
+        public void doLog(String clientID, String name, long time, Level level, Object message,
+                          Throwable t) {
+            appendEvent(clientID, name, time, level, message, t);
+        }
+
+        @Override
+        protected void doAppend(LogEvent event) {
+            times.add(Long.valueOf(event.getTimeNanos()));
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public void open() {
+            logOpen = true;
+        }
+
+        @Override
+        public void close() {
+            logOpen = false;
+        }
+
+        public long getLogSize() {
+            return SIZE_UNDEFINED;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        logger.removeAllAppenders();
+        logger.resetLogger();
+        Logger.setClock(SystemTimeClock.INSTANCE);
+    }
+
+    @Test
+    public void stopWatchMeasuresWithItsClock() {
+        ManualClock clock = new ManualClock(START_MILLIS, START_NANOS);
+        StopWatch watch = new StopWatch(clock);
+        assertEquals(0, watch.getCurrentTimeNanos());
+
+        clock.advanceNanos(3500000);
+        assertEquals(3500000, watch.getCurrentTimeNanos());
+        assertEquals(3, watch.getCurrentTime());
+        assertEquals(0, watch.getTimeNanos(START_NANOS - 1));
+    }
+
+    @Test
+    public void stopWatchGoesOnWithTheElapsedTime() {
+        ManualClock clock = new ManualClock(START_MILLIS, START_NANOS);
+        StopWatch watch = new StopWatch(clock, 7000);
+        clock.advanceNanos(1000);
+        assertEquals(8000, watch.getCurrentTimeNanos());
+    }
+
+    @Test
+    public void loggerTakesTheRelativeTimeFromItsClock() {
+        ManualClock clock = new ManualClock(START_MILLIS, START_NANOS);
+        Logger.setClock(clock);
+        logger.setLevel(Level.INFO);
+        logger.resetLogger();
+        logger.addAppender(new TimeAppender());
+
+        // The first event starts the time.
+        logger.info("first");
+        clock.advanceMillis(5);
+        logger.info("second");
+        clock.advanceNanos(250);
+        logger.info("third");
+
+        List<Long> expected = new ArrayList<Long>();
+        expected.add(Long.valueOf(0));
+        expected.add(Long.valueOf(5000000));
+        expected.add(Long.valueOf(5000250));
+        assertEquals(expected, times);
+    }
+
+    @Test
+    public void changingTheClockKeepsTheRelativeTime() {
+        ManualClock clock = new ManualClock(START_MILLIS, START_NANOS);
+        Logger.setClock(clock);
+        logger.setLevel(Level.INFO);
+        logger.resetLogger();
+        logger.addAppender(new TimeAppender());
+
+        logger.info("first");
+        clock.advanceMillis(2);
+
+        ManualClock other = new ManualClock(START_MILLIS, -START_NANOS);
+        Logger.setClock(other);
+        other.advanceMillis(1);
+        logger.info("second");
+
+        assertEquals(Long.valueOf(3000000), times.get(1));
+    }
+}
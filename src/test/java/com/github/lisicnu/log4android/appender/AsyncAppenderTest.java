@@ -0,0 +1,181 @@
+package com.github.lisicnu.log4android.appender;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the overflow policies of the <code>AsyncAppender</code> with a
+ * wrapped appender that is held up until the test lets it continue.
+ */
+public class AsyncAppenderTest {
+
+    private static final int BUFFER_SIZE = 4;
+
+    private RecordingAppender recorder;
+
+    private AsyncAppender appender;
+
+    @Before
+    public void setUp() throws IOException {
+        recorder = new RecordingAppender();
+        appender = new AsyncAppender(recorder, BUFFER_SIZE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        recorder.openGate();
+        appender.close();
+    }
+
+    @Test
+    public void blockWaitsForRoomAndLosesNothing() throws Exception {
+        appender.setOverflowPolicy(AsyncAppender.OverflowPolicy.BLOCK);
+        appender.open();
+        recorder.closeGate();
+
+        Thread logger = startLogging(Level.DEBUG, "event", 20);
+        logger.join(200);
+        assertTrue("The logging thread must wait for room", logger.isAlive());
+
+        recorder.openGate();
+        logger.join(10000);
+        assertFalse(logger.isAlive());
+        appender.close();
+
+        assertEquals(numbered("event", 20), recorder.getMessages());
+        assertEquals(0, appender.getDroppedEvents());
+    }
+
+    @Test
+    public void dropNewestDropsWhenFullAndWritesAMarker() throws Exception {
+        appender.setOverflowPolicy(AsyncAppender.OverflowPolicy.DROP_NEWEST);
+        appender.open();
+        recorder.closeGate();
+
+        // The slots are only freed after the wrapped appender has logged
+        // them, so exactly the size of the buffer is accepted.
+        log(Level.DEBUG, "event", 10);
+        assertEquals(6, appender.getDroppedEvents());
+
+        recorder.openGate();
+        appender.close();
+
+        List<String> expected = numbered("event", BUFFER_SIZE);
+        expected.add("6 events dropped");
+        assertEquals(expected, recorder.getMessages());
+        RecordingAppender.Entry marker = recorder.getEntries().get(BUFFER_SIZE);
+        assertEquals(Level.WARN, marker.level);
+    }
+
+    @Test
+    public void dropBelowLevelDropsOnlyTheLowLevels() throws Exception {
+        appender.setOverflowPolicy(AsyncAppender.OverflowPolicy.DROP_BELOW_LEVEL);
+        appender.setDropThreshold(Level.WARN);
+        appender.open();
+        recorder.closeGate();
+
+        log(Level.INFO, "info", BUFFER_SIZE);
+        log(Level.DEBUG, "dropped", 3);
+        assertEquals(3, appender.getDroppedEvents());
+
+        Thread logger = startLogging(Level.ERROR, "error", 1);
+        logger.join(200);
+        assertTrue("An event at the threshold must wait for room", logger.isAlive());
+
+        recorder.openGate();
+        logger.join(10000);
+        assertFalse(logger.isAlive());
+        appender.close();
+
+        List<String> messages = recorder.getMessages();
+        assertEquals(numbered("info", BUFFER_SIZE), messages.subList(0, BUFFER_SIZE));
+        assertTrue(messages.toString(), messages.contains("error0"));
+        assertTrue(messages.toString(), messages.contains("3 events dropped"));
+        assertEquals(BUFFER_SIZE + 2, messages.size());
+        assertEquals(3, appender.getDroppedEvents());
+    }
+
+    @Test
+    public void dropMarkerHasTheTimeOfTheLastDrop() throws Exception {
+        appender.setOverflowPolicy(AsyncAppender.OverflowPolicy.DROP_NEWEST);
+        appender.open();
+        recorder.closeGate();
+
+        log(Level.DEBUG, "event", BUFFER_SIZE);
+        LogEvent dropped = LogEvent.obtain("client", "test", 7000000L, 123456789L, Level.DEBUG,
+                "dropped", null);
+        appender.append(dropped);
+        dropped.release();
+
+        recorder.openGate();
+        appender.close();
+
+        RecordingAppender.Entry marker = recorder.getEntries().get(BUFFER_SIZE);
+        assertEquals("1 events dropped", marker.message);
+        assertEquals(7000000L, marker.timeNanos);
+        assertEquals(123456789L, marker.timeMillis);
+    }
+
+    @Test
+    public void closeWritesTheQueuedEvents() throws Exception {
+        appender = new AsyncAppender(recorder, 64);
+        appender.open();
+        recorder.setDelayMillis(2);
+
+        log(Level.INFO, "event", 50);
+        appender.close();
+
+        assertEquals(numbered("event", 50), recorder.getMessages());
+        assertFalse(appender.isLogOpen());
+    }
+
+    @Test
+    public void eventsAfterCloseAreIgnored() throws Exception {
+        appender.open();
+        appender.close();
+
+        log(Level.INFO, "event", 3);
+        assertTrue(recorder.getMessages().isEmpty());
+    }
+
+    private void log(Level level, String prefix, int count) {
+        for (int index = 0; index < count; index++) {
+            LogEvent event = LogEvent.obtain("client", "test", index, level, prefix + index, null);
+            try {
+                appender.append(event);
+            } finally {
+                event.release();
+            }
+        }
+    }
+
+    private Thread startLogging(final Level level, final String prefix, final int count) {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                log(level, prefix, count);
+            }
+        }, "logging");
+        thread.start();
+        return thread;
+    }
+
+    private static List<String> numbered(String prefix, int count) {
+        List<String> messages = new ArrayList<String>();
+        for (int index = 0; index < count; index++) {
+            messages.add(prefix + index);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.lisicnu.log4android.appender;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the suppression, the repeat count and the summaries of the
+ * <code>DuplicateSuppressingAppender</code>.
+ */
+public class DuplicateSuppressingAppenderTest {
+
+    private static final long WINDOW = 1000;
+
+    private static final long START_MILLIS = 1286901300000L;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static final Pattern SUMMARY = Pattern.compile(
+            "Last message repeated (\\d+) times in (\\d+) ms");
+
+    private RecordingAppender recorder;
+
+    private DuplicateSuppressingAppender appender;
+
+    @Before
+    public void setUp() throws IOException {
+        recorder = new RecordingAppender();
+        appender = new DuplicateSuppressingAppender(recorder, 1, WINDOW);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        appender.close();
+    }
+
+    @Test
+    public void consecutiveDuplicatesAreCountedAndSummarized() {
+        log("com.example.A", Level.WARN, "disk full", null, 0);
+        log("com.example.A", Level.WARN, "disk full", null, 10);
+        log("com.example.A", Level.WARN, "disk full", null, 20);
+        log("com.example.A", Level.WARN, "disk full", null, 30);
+        log("com.example.A", Level.WARN, "disk ok", null, 45);
+
+        assertEquals(Arrays.asList("disk full", "Last message repeated 3 times in 45 ms",
+                "disk ok"), recorder.getMessages());
+        RecordingAppender.Entry summary = recorder.getEntries().get(1);
+        assertEquals(Level.WARN, summary.level);
+        assertEquals("com.example.A", summary.name);
+    }
+
+    @Test
+    public void theSummaryHasTheTimesOfOneInstant() {
+        log("com.example.A", Level.INFO, "tick", null, 0);
+        log("com.example.A", Level.INFO, "tick", null, 5);
+        log("com.example.A", Level.INFO, "tock", null, 40);
+
+        RecordingAppender.Entry summary = recorder.getEntries().get(1);
+        RecordingAppender.Entry next = recorder.getEntries().get(2);
+        assertEquals(next.timeNanos, summary.timeNanos);
+        assertEquals(next.timeMillis, summary.timeMillis);
+    }
+
+    @Test
+    public void aRepetitionLongerThanTheWindowIsSummarizedAndLoggedAgain() {
+        log("com.example.A", Level.INFO, "tick", null, 0);
+        log("com.example.A", Level.INFO, "tick", null, 500);
+        log("com.example.A", Level.INFO, "tick", null, WINDOW + 1);
+
+        assertEquals(Arrays.asList("tick", "Last message repeated 1 times in 1001 ms", "tick"),
+                recorder.getMessages());
+    }
+
+    @Test
+    public void theLevelAndTheLoggerAreCompared() {
+        log("com.example.A", Level.INFO, "tick", null, 0);
+        log("com.example.A", Level.WARN, "tick", null, 1);
+        log("com.example.B", Level.WARN, "tick", null, 2);
+
+        assertEquals(Arrays.asList("tick", "tick", "tick"), recorder.getMessages());
+    }
+
+    @Test
+    public void throwablesOfTheSameClassAndPlaceAreDuplicates() {
+        List<Throwable> sameplace = new ArrayList<Throwable>();
+        for (int index = 0; index < 3; index++) {
+            sameplace.add(new IllegalStateException("failed " + index));
+        }
+
+        log("com.example.A", Level.ERROR, "failed", sameplace.get(0), 0);
+        log("com.example.A", Level.ERROR, "failed", sameplace.get(1), 1);
+        log("com.example.A", Level.ERROR, "failed", sameplace.get(2), 2);
+        log("com.example.A", Level.ERROR, "failed", new IllegalArgumentException(), 3);
+        log("com.example.A", Level.ERROR, "failed", otherPlace(), 4);
+        log("com.example.A", Level.ERROR, "failed", null, 5);
+
+        assertEquals(Arrays.asList("failed", "Last message repeated 2 times in 3 ms", "failed",
+                "failed", "failed"), recorder.getMessages());
+    }
+
+    @Test
+    public void interleavedDuplicatesAreCollapsedWithSeveralSlots() throws IOException {
+        appender = new DuplicateSuppressingAppender(recorder, 64, WINDOW);
+        for (int index = 0; index < 4; index++) {
+            log("com.example.A", Level.INFO, "first", null, index);
+            log("com.example.A", Level.INFO, "second", null, index);
+        }
+        assertEquals(Arrays.asList("first", "second"), recorder.getMessages());
+
+        appender.flush();
+        List<String> messages = recorder.getMessages();
+        assertEquals(4, messages.size());
+        assertEquals(3, count(messages.get(2)));
+        assertEquals(3, count(messages.get(3)));
+    }
+
+    @Test
+    public void closeLogsThePendingSummaries() throws IOException {
+        log("com.example.A", Level.INFO, "tick", null, 0);
+        log("com.example.A", Level.INFO, "tick", null, 1);
+        appender.close();
+
+        List<String> messages = recorder.getMessages();
+        assertEquals(2, messages.size());
+        assertEquals(1, count(messages.get(1)));
+    }
+
+    @Test
+    public void theSweeperLogsTheSummaryAfterABurst() throws Exception {
+        appender = new DuplicateSuppressingAppender(recorder, 1, 50);
+        appender.open();
+        for (int index = 0; index < 5; index++) {
+            LogEvent event = LogEvent.obtain("client", "com.example.A", 0, Level.INFO, "burst",
+                    null);
+            appender.append(event);
+            event.release();
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.getMessages().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        List<RecordingAppender.Entry> entries = recorder.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals(4, count(entries.get(1).message));
+
+        // The relative time moved on as much as the wall clock time.
+        RecordingAppender.Entry first = entries.get(0);
+        RecordingAppender.Entry summary = entries.get(1);
+        assertTrue(summary.timeMillis >= first.timeMillis + 50);
+        assertEquals((summary.timeMillis - first.timeMillis) * NANOS_PER_MILLI,
+                summary.timeNanos - first.timeNanos);
+    }
+
+    @Test
+    public void concurrentDuplicatesAreAllCounted() throws Exception {
+        final int threads = 8;
+        final int events = 20000;
+        appender = new DuplicateSuppressingAppender(recorder, 1, Long.MAX_VALUE / 2);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> loggers = new ArrayList<Thread>();
+        for (int thread = 0; thread < threads; thread++) {
+            final String message = thread % 2 == 0 ? "even" : "odd";
+            Thread logger = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int index = 0; index < events; index++) {
+                        log("com.example.A", Level.INFO, message, null, 0);
+                    }
+                }
+            });
+            logger.start();
+            loggers.add(logger);
+        }
+
+        start.countDown();
+        for (Thread logger : loggers) {
+            logger.join(60000);
+            assertFalse(logger.isAlive());
+        }
+        appender.flush();
+
+        long total = 0;
+        for (String message : recorder.getMessages()) {
+            total += SUMMARY.matcher(message).matches() ? count(message) : 1;
+        }
+        assertEquals((long) threads * events, total);
+    }
+
+    private void log(String name, Level level, String message, Throwable t, long offsetMillis) {
+        LogEvent event = LogEvent.obtain("client", name, offsetMillis * NANOS_PER_MILLI,
+                START_MILLIS + offsetMillis, level, message, t);
+        try {
+            appender.append(event);
+        } finally {
+            event.release();
+        }
+    }
+
+    private static Throwable otherPlace() {
+        return new IllegalStateException("failed elsewhere");
+    }
+
+    private static int count(String summary) {
+        Matcher matcher = SUMMARY.matcher(summary);
+        assertTrue(summary, matcher.matches());
+        return Integer.parseInt(matcher.group(1));
+    }
+}
@@ -0,0 +1,203 @@
+package com.github.lisicnu.log4android.appender;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the fingerprints, the short repeat line, the eviction of the least
+ * recently seen fingerprint and the summaries of the
+ * <code>ExceptionAggregatingAppender</code>.
+ */
+public class ExceptionAggregatingAppenderTest {
+
+    private static final long INTERVAL = 1000;
+
+    private static final long START_MILLIS = 1286901300000L;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static final Pattern REPEAT = Pattern.compile(
+            "failed \\[(.+) #([0-9a-f]{8}) seen (\\d+) times\\]");
+
+    private static final Pattern SUMMARY_LINE = Pattern.compile(
+            "\t#[0-9a-f]{8} (\\d+) times \\((\\d+) in total\\) (\\S+) at .+");
+
+    private RecordingAppender recorder;
+
+    private ExceptionAggregatingAppender appender;
+
+    @Before
+    public void setUp() {
+        recorder = new RecordingAppender();
+        appender = new ExceptionAggregatingAppender(recorder, 2, 16, INTERVAL);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        appender.close();
+    }
+
+    @Test
+    public void theFingerprintIsTheTypeAndTheTopFrames() {
+        Throwable first = createdByFirstCaller();
+        Throwable second = createdBySecondCaller();
+
+        // The top frame is the same, the one below it is not.
+        assertEquals(fingerprint(first, 1), fingerprint(second, 1));
+        assertFalse(fingerprint(first, 2) == fingerprint(second, 2));
+        assertEquals(fingerprint(first, 2), fingerprint(createdByFirstCaller(), 2));
+
+        Throwable other = new IllegalArgumentException("boom");
+        other.setStackTrace(first.getStackTrace());
+        assertFalse(fingerprint(first, 5) == fingerprint(other, 5));
+
+        Throwable message = new IllegalStateException("another message");
+        message.setStackTrace(first.getStackTrace());
+        assertEquals(fingerprint(first, 5), fingerprint(message, 5));
+    }
+
+    @Test
+    public void aRepeatedThrowableIsLoggedAsAShortLine() {
+        log(createdByFirstCaller(), 0);
+        log(createdByFirstCaller(), 1);
+        log(createdByFirstCaller(), 2);
+
+        List<RecordingAppender.Entry> entries = recorder.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals("failed", entries.get(0).message);
+        assertNotNull(entries.get(0).throwable);
+
+        for (int index = 1; index < 3; index++) {
+            RecordingAppender.Entry entry = entries.get(index);
+            assertNull(entry.throwable);
+            assertEquals(Level.ERROR, entry.level);
+            assertEquals("com.example.A", entry.name);
+            Matcher matcher = REPEAT.matcher(entry.message);
+            assertTrue(entry.message, matcher.matches());
+            assertEquals("java.lang.IllegalStateException: boom", matcher.group(1));
+            assertEquals(String.valueOf(index + 1), matcher.group(3));
+        }
+    }
+
+    @Test
+    public void theLeastRecentlySeenFingerprintIsForgotten() {
+        appender = new ExceptionAggregatingAppender(recorder, 2, 2, INTERVAL);
+        Throwable a = createdByFirstCaller();
+        Throwable b = createdBySecondCaller();
+        Throwable c = new IllegalArgumentException("other");
+
+        log(a, 0);
+        log(b, 1);
+        log(a, 2);
+        // The table is full, b was seen least recently.
+        log(c, 3);
+        log(b, 4);
+        // The table is full again, now a was seen least recently.
+        log(c, 5);
+
+        List<RecordingAppender.Entry> entries = recorder.getEntries();
+        assertEquals(6, entries.size());
+        assertNotNull(entries.get(3).throwable);
+        assertNotNull("b comes back in full", entries.get(4).throwable);
+        Matcher matcher = REPEAT.matcher(entries.get(5).message);
+        assertTrue(entries.get(5).message, matcher.matches());
+        assertEquals("java.lang.IllegalArgumentException: other", matcher.group(1));
+        assertEquals("2", matcher.group(3));
+    }
+
+    @Test
+    public void theSummaryCountsOnlyTheLastInterval() {
+        log(null, 0);
+        log(createdByFirstCaller(), 10);
+        // Nothing repeated, no summary, but the interval starts over.
+        log(null, INTERVAL + 1);
+        log(createdByFirstCaller(), INTERVAL + 2);
+        log(null, 2 * INTERVAL + 5);
+
+        List<String> messages = recorder.getMessages();
+        assertEquals(6, messages.size());
+        String[] lines = messages.get(4).split("\n|\r\n");
+        assertEquals(2, lines.length);
+        Matcher matcher = SUMMARY_LINE.matcher(lines[1]);
+        assertTrue(lines[1], matcher.matches());
+        assertEquals("1", matcher.group(1));
+        assertEquals("2", matcher.group(2));
+        assertEquals("java.lang.IllegalStateException", matcher.group(3));
+
+        RecordingAppender.Entry summary = recorder.getEntries().get(4);
+        assertEquals(Level.WARN, summary.level);
+        assertEquals(START_MILLIS + 2 * INTERVAL + 5, summary.timeMillis);
+        assertEquals((2 * INTERVAL + 5) * NANOS_PER_MILLI, summary.timeNanos);
+    }
+
+    @Test
+    public void theSummaryIsLoggedAfterSilence() throws Exception {
+        appender = new ExceptionAggregatingAppender(recorder, 2, 16, 50);
+        appender.open();
+        for (int index = 0; index < 3; index++) {
+            LogEvent event = LogEvent.obtain("client", "com.example.A", 0, Level.ERROR, "failed",
+                    createdByFirstCaller());
+            appender.append(event);
+            event.release();
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.getMessages().size() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        List<RecordingAppender.Entry> entries = recorder.getEntries();
+        assertEquals(4, entries.size());
+        assertTrue(entries.get(3).message,
+                entries.get(3).message.startsWith("Most frequent exceptions"));
+
+        // The relative time moved on as much as the wall clock time.
+        RecordingAppender.Entry last = entries.get(2);
+        RecordingAppender.Entry summary = entries.get(3);
+        assertTrue(summary.timeMillis >= last.timeMillis + 50);
+        assertEquals((summary.timeMillis - last.timeMillis) * NANOS_PER_MILLI,
+                summary.timeNanos - last.timeNanos);
+    }
+
+    private void log(Throwable t, long offsetMillis) {
+        LogEvent event = LogEvent.obtain("client", "com.example.A", offsetMillis * NANOS_PER_MILLI,
+                START_MILLIS + offsetMillis, Level.ERROR, "failed", t);
+        try {
+            appender.append(event);
+        } finally {
+            event.release();
+        }
+    }
+
+    private static long fingerprint(Throwable throwable, int frames) {
+        return ExceptionAggregatingAppender.fingerprint(throwable, throwable.getStackTrace(),
+                frames);
+    }
+
+    private static Throwable createdByFirstCaller() {
+        return create();
+    }
+
+    private static Throwable createdBySecondCaller() {
+        return create();
+    }
+
+    private static Throwable create() {
+        return new IllegalStateException("boom");
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.lisicnu.log4android.appender;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.Logger;
+import com.github.lisicnu.log4android.format.PatternFormatter;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that logging a line through a <code>Logger</code> with a
+ * <code>FileAppender</code> in the garbage free mode does not allocate,
+ * measured with the allocation counter of the current thread.
+ */
+public class FileAppenderGarbageFreeTest {
+
+    private static final int WARM_UP_EVENTS = 20000;
+
+    private static final int MEASURED_EVENTS = 10000;
+
+    /**
+     * The bytes the measurement itself and the JIT may account for. It is
+     * less than a byte per line, while the smallest object allocated per
+     * line would take 16 bytes.
+     */
+    private static final long ALLOWED_BYTES = MEASURED_EVENTS / 2;
+
+    private File logFile;
+
+    private FileAppender appender;
+
+    private Logger logger;
+
+    /**
+     * A <code>FileAppender</code> that writes to a temporary file instead of
+     * the external storage.
+     */
+    private static final class TempFileAppender extends FileAppender {
+        private final File file;
+
+        TempFileAppender(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public synchronized File getLogFile() {
+            return file;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        logFile = File.createTempFile("log4android", ".log");
+        appender = new TempFileAppender(logFile);
+        PatternFormatter formatter = new PatternFormatter();
+        formatter.setPattern("%d{ISO8601} %r %c{1} [%P] %t %m");
+        appender.setFormatter(formatter);
+        appender.setGarbageFree(true);
+
+        logger = new Logger("com.example.Main");
+        logger.setLevel(Level.INFO);
+        logger.resetLogger();
+        // The first event opens the appender.
+        logger.addAppender(appender);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        logger.removeAllAppenders();
+        logger.resetLogger();
+        logFile.delete();
+    }
+
+    @Test
+    public void garbageFreeModeDoesNotAllocatePerLine() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        long threadId = Thread.currentThread().getId();
+        logEvents(WARM_UP_EVENTS);
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        logEvents(MEASURED_EVENTS);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("Allocated " + allocated + " bytes for " + MEASURED_EVENTS + " lines",
+                allocated <= ALLOWED_BYTES);
+    }
+
+    @Test
+    public void garbageFreeModeWritesTheLines() throws IOException {
+        logEvents(3);
+        assertTrue(appender.isLogOpen());
+        logger.removeAllAppenders();
+
+        BufferedReader reader = new BufferedReader(new FileReader(logFile));
+        try {
+            // The appender writes a separator line when it is opened.
+            int lines = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                assertTrue(line, !line.contains("below the level"));
+                if (line.endsWith("A message of a typical length")) {
+                    lines++;
+                }
+            }
+            assertEquals(3, lines);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void logEvents(int count) {
+        for (int index = 0; index < count; index++) {
+            logger.info("A message of a typical length");
+            // A disabled level must not allocate either.
+            logger.debug("A message below the level");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.lisicnu.log4android.appender;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An <code>Appender</code> for the tests that keeps a copy of every event it
+ * is given. It can be made slow, by closing a gate that every event waits
+ * for, to test the appenders that wrap it.
+ */
+class RecordingAppender extends AbstractAppender {
+
+    /**
+     * The fields of a logged event. The event itself is recycled after
+     * <code>append</code> returns.
+     */
+    static final class Entry {
+        final String name;
+        final long timeNanos;
+        final long timeMillis;
+        final Level level;
+        final String message;
+        final Throwable throwable;
+
+        Entry(LogEvent event) {
+            name = event.getName();
+            timeNanos = event.getTimeNanos();
+            timeMillis = event.getTimeMillis();
+            level = event.getLevel();
+            message = String.valueOf(event.getMessage());
+            throwable = event.getThrowable();
+        }
+
+        public String toString() {
+            return level + " " + name + " " + message;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    private volatile CountDownLatch gate;
+
+    private volatile long delayMillis;
+
+    /**
+     * Make every event wait until {@link #openGate()} is called.
+     */
+    void closeGate() {
+        gate = new CountDownLatch(1);
+    }
+
+    void openGate() {
+        CountDownLatch current = gate;
+        gate = null;
+        if (current != null) {
+            current.countDown();
+        }
+    }
+
+    /**
+     * Make every event take the specified time.
+     */
+    void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * Get a copy of the logged events.
+     */
+    synchronized List<Entry> getEntries() {
+        return new ArrayList<Entry>(entries);
+    }
+
+    /**
+     * Get the messages of the logged events.
+     */
+    synchronized List<String> getMessages() {
+        List<String> messages = new ArrayList<String>();
+        for (Entry entry : entries) {
+            messages.add(entry.message);
+        }
+        return messages;
+    }
+
+    @Override
+    public void doLog(String clientID, String name, long time, Level level, Object message,
+                      Throwable t) {
+        appendEvent(clientID, name, time, level, message, t);
+    }
+
+    @Override
+    protected void doAppend(LogEvent event) {
+        CountDownLatch current = gate;
+        try {
+            if (current != null && !current.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("The gate was not opened.");
+            }
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Entry entry = new Entry(event);
+        synchronized (this) {
+            entries.add(entry);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void open() {
+        logOpen = true;
+    }
+
+    @Override
+    public void close() {
+        logOpen = false;
+    }
+
+    public long getLogSize() {
+        return SIZE_UNDEFINED;
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.lisicnu.log4android.benchmark;
+
+import com.github.lisicnu.log4android.format.command.DateFormatCommand;
+import com.github.lisicnu.log4android.format.command.DatePattern;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Measures the time to format a date with the named formats of
+ * <code>%d</code> and with user defined patterns, which are compiled into a
+ * <code>DatePattern</code> of their own, against
+ * <code>SimpleDateFormat</code>. The dates advance by 1 ms, like the events
+ * of a busy logger, so the template of a <code>DatePattern</code> is reused
+ * within a second. Run it with
+ * <pre>
+ * java -cp [classes] com.github.lisicnu.log4android.benchmark.DatePatternBenchmark [iterations]
+ * </pre>
+ */
+public final class DatePatternBenchmark {
+
+    /**
+     * The options of <code>%d</code>: the named formats, then user defined
+     * patterns.
+     */
+    private static final String[] FORMATS = {"ABSOLUTE", "DATE", "ISO8601", "HH:mm:ss.SSS",
+            "yyyy-MM-dd'T'HH:mm:ss.SSSZ", "EEE dd MMM yyyy hh:mm:ss a"};
+
+    private static final int ROUNDS = 5;
+
+    private DatePatternBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        long start = System.currentTimeMillis();
+
+        for (String option : FORMATS) {
+            DateFormatCommand command = new DateFormatCommand();
+            command.init(option);
+            DatePattern datePattern = command.getDatePattern();
+            String pattern = datePattern.getPattern();
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+            StringBuilder buffer = new StringBuilder(64);
+
+            for (int round = 0; round < ROUNDS; round++) {
+                // The first rounds warm up the JIT.
+                long sink = 0;
+                long begin = System.nanoTime();
+                for (int index = 0; index < iterations; index++) {
+                    buffer.setLength(0);
+                    datePattern.appendTo(buffer, start + index);
+                    sink += buffer.length();
+                }
+                long patternNanos = System.nanoTime() - begin;
+
+                Date date = new Date();
+                begin = System.nanoTime();
+                for (int index = 0; index < iterations; index++) {
+                    date.setTime(start + index);
+                    sink += format.format(date).length();
+                }
+                long formatNanos = System.nanoTime() - begin;
+
+                if (round == ROUNDS - 1) {
+                    System.out.println(String.format(Locale.US,
+                            "%-28s DatePattern %6.1f ns, SimpleDateFormat %6.1f ns (%d)",
+                            option, (double) patternNanos / iterations,
+                            (double) formatNanos / iterations, sink));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.lisicnu.log4android.benchmark;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+import com.github.lisicnu.log4android.format.BufferedFormatter;
+import com.github.lisicnu.log4android.format.JsonFormatter;
+import com.github.lisicnu.log4android.format.ParameterizedMessage;
+import com.github.lisicnu.log4android.format.PatternFormatter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Measures the time and the allocated bytes per event of the
+ * <code>JsonFormatter</code>, and of a <code>PatternFormatter</code> that
+ * prints the same fields, on the same events. Both format into a reused
+ * buffer like the garbage free mode of the <code>FileAppender</code> does.
+ * The pattern prints the date where the JSON has the milliseconds since the
+ * epoch. The allocations are only reported if the JVM counts them per
+ * thread. Run it with
+ * <pre>
+ * java -cp [classes] com.github.lisicnu.log4android.benchmark.JsonFormatterBenchmark [iterations]
+ * </pre>
+ */
+public final class JsonFormatterBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    /**
+     * The fields of the JSON object: timestamp, time, level, logger, thread,
+     * client id and message.
+     */
+    private static final String PATTERN = "%d %r %P %c %t %i %m";
+
+    private JsonFormatterBenchmark() {
+    }
+
+    private interface Case {
+        Object message();
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final Integer argument = Integer.valueOf(42);
+
+        run("plain message", iterations, new Case() {
+            public Object message() {
+                return "Connection established";
+            }
+        });
+        run("message with escapes", iterations, new Case() {
+            public Object message() {
+                return "Path \"C:\\temp\"\tcontains\na newline";
+            }
+        });
+        run("parameterized message", iterations, new Case() {
+            public Object message() {
+                return new ParameterizedMessage("Request {} took {} ms", "GET /", argument);
+            }
+        });
+    }
+
+    private static void run(String name, int iterations, Case messageCase) {
+        Object[] messages = new Object[iterations];
+        for (int index = 0; index < iterations; index++) {
+            messages[index] = messageCase.message();
+        }
+
+        PatternFormatter patternFormatter = new PatternFormatter();
+        patternFormatter.setPattern(PATTERN);
+        long[] json = measure(new JsonFormatter(), messages);
+        long[] pattern = measure(patternFormatter, messages);
+
+        System.out.println(String.format(Locale.US, "%-22s JSON %6.1f ns, %s, pattern %6.1f ns, %s"
+                        + " (%d)", name, (double) json[0] / iterations, toBytes(json[1], iterations),
+                (double) pattern[0] / iterations, toBytes(pattern[1], iterations),
+                json[2] + pattern[2]));
+    }
+
+    /**
+     * Format the events with the formatter.
+     *
+     * @return the nanoseconds, the allocated bytes and the formatted length
+     * of the last round.
+     */
+    private static long[] measure(BufferedFormatter formatter, Object[] messages) {
+        StringBuilder buffer = new StringBuilder(512);
+        long[] result = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            // The first rounds warm up the JIT.
+            long sink = 0;
+            long allocatedBefore = allocatedBytes();
+            long begin = System.nanoTime();
+            for (int index = 0; index < messages.length; index++) {
+                LogEvent event = LogEvent.obtain("benchmark", "com.example.Main", index,
+                        1286901300123L + index, Level.INFO, messages[index], null);
+                buffer.setLength(0);
+                formatter.format(buffer, event);
+                sink += buffer.length();
+                event.release();
+            }
+            long nanos = System.nanoTime() - begin;
+            long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+            result = new long[]{nanos, allocated, sink};
+        }
+        return result;
+    }
+
+    private static String toBytes(long allocated, int iterations) {
+        return allocated < 0 ? "allocations unknown"
+                : String.format(Locale.US, "%.1f bytes", (double) allocated / iterations);
+    }
+
+    /**
+     * Get the bytes allocated by the current thread, or -1 if the JVM does
+     * not count them.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
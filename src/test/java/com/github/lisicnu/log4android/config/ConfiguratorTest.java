@@ -0,0 +1,68 @@
+package com.github.lisicnu.log4android.config;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.Sampler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the parsing of the <code>microlog.sampling</code> values.
+ */
+public class ConfiguratorTest {
+
+    @Test
+    public void oneRateUpToTheDefaultLevel() {
+        Sampler sampler = Configurator.parseSampler("100");
+
+        assertEquals(100, sampler.getRate(Level.TRACE));
+        assertEquals(100, sampler.getRate(Level.DEBUG));
+        assertEquals(1, sampler.getRate(Level.INFO));
+        assertNull(sampler.getKey());
+    }
+
+    @Test
+    public void oneRateUpToALevelWithAKey() {
+        Sampler sampler = Configurator.parseSampler("50, INFO, key=requestId");
+
+        assertEquals(50, sampler.getRate(Level.INFO));
+        assertEquals(1, sampler.getRate(Level.WARN));
+        assertEquals("requestId", sampler.getKey());
+    }
+
+    @Test
+    public void ratesPerLevel() {
+        Sampler sampler = Configurator.parseSampler("TRACE=100,DEBUG=10");
+
+        assertEquals(100, sampler.getRate(Level.TRACE));
+        assertEquals(10, sampler.getRate(Level.DEBUG));
+        assertEquals(1, sampler.getRate(Level.INFO));
+    }
+
+    @Test
+    public void ratesPerLevelTakePrecedence() {
+        Sampler sampler = Configurator.parseSampler("5,INFO,TRACE=100,key=user");
+
+        assertEquals(100, sampler.getRate(Level.TRACE));
+        assertEquals(5, sampler.getRate(Level.DEBUG));
+        assertEquals(5, sampler.getRate(Level.INFO));
+        assertEquals("user", sampler.getKey());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aMissingRateIsRejected() {
+        Configurator.parseSampler("DEBUG");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anUnknownLevelIsRejected() {
+        Configurator.parseSampler("VERBOSE=10");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anInvalidRateIsRejected() {
+        Configurator.parseSampler("DEBUG=x");
+    }
+}
@@ -0,0 +1,233 @@
+package com.github.lisicnu.log4android.filter;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.LogEvent;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that a <code>FilterChain</code>, which merges adjacent
+ * <code>LoggerNameFilter</code> objects into one trie, decides like asking
+ * the filters one after the other.
+ */
+public class FilterChainTest {
+
+    private static final Filter.Result ACCEPT = Filter.Result.ACCEPT;
+
+    private static final Filter.Result DENY = Filter.Result.DENY;
+
+    private static final Filter.Result NEUTRAL = Filter.Result.NEUTRAL;
+
+    private static final String[] NAMES = {"", "com", "com.foo", "com.foo.Bar", "com.foo.bar.Baz",
+            "com.foobar", "com.foobar.Baz", "com.fo", "com.bar.Foo", "org.foo", "comfoo", "c"};
+
+    @Test
+    public void overlappingPrefixesFollowTheFilterOrder() {
+        FilterChain chain = chain(
+                new LoggerNameFilter(DENY, "com.foo.bar"),
+                new LoggerNameFilter(ACCEPT, "com.foo"),
+                new LoggerNameFilter(DENY, "com"));
+
+        assertDecision(DENY, chain, "com.foo.bar.Baz", Level.INFO);
+        assertDecision(ACCEPT, chain, "com.foo.Bar", Level.INFO);
+        assertDecision(DENY, chain, "com.other", Level.INFO);
+        assertDecision(NEUTRAL, chain, "org.foo", Level.INFO);
+    }
+
+    @Test
+    public void anEarlierShorterPrefixWinsOverALaterLongerOne() {
+        FilterChain chain = chain(
+                new LoggerNameFilter(ACCEPT, "com"),
+                new LoggerNameFilter(DENY, "com.foo"));
+
+        assertDecision(ACCEPT, chain, "com.foo.Bar", Level.INFO);
+        assertDecision(ACCEPT, chain, "com.foo", Level.INFO);
+    }
+
+    @Test
+    public void theSamePrefixInTwoFiltersTakesTheFirst() {
+        FilterChain chain = chain(
+                new LoggerNameFilter(DENY, "com.foo"),
+                new LoggerNameFilter(ACCEPT, "com.foo", "org"));
+
+        assertDecision(DENY, chain, "com.foo.Bar", Level.INFO);
+        assertDecision(ACCEPT, chain, "org.foo", Level.INFO);
+    }
+
+    @Test
+    public void prefixesOnlyMatchAtDots() {
+        FilterChain chain = chain(
+                new LoggerNameFilter(DENY, "com.foo"),
+                new LoggerNameFilter(ACCEPT, "com.foobar"));
+
+        assertDecision(DENY, chain, "com.foo", Level.INFO);
+        assertDecision(DENY, chain, "com.foo.Bar", Level.INFO);
+        assertDecision(ACCEPT, chain, "com.foobar", Level.INFO);
+        assertDecision(ACCEPT, chain, "com.foobar.Baz", Level.INFO);
+        assertDecision(NEUTRAL, chain, "com.fo", Level.INFO);
+        assertDecision(NEUTRAL, chain, "com.foobarbaz", Level.INFO);
+    }
+
+    @Test
+    public void trailingDotsAreIgnored() {
+        FilterChain chain = chain(new LoggerNameFilter(DENY, "com.foo."));
+
+        assertDecision(DENY, chain, "com.foo", Level.INFO);
+        assertDecision(DENY, chain, "com.foo.Bar", Level.INFO);
+        assertDecision(NEUTRAL, chain, "com.foobar", Level.INFO);
+    }
+
+    @Test
+    public void theEmptyPrefixMatchesEveryLogger() {
+        FilterChain chain = chain(
+                new LoggerNameFilter(ACCEPT, "com.foo"),
+                new LoggerNameFilter(DENY, ""));
+
+        assertDecision(ACCEPT, chain, "com.foo.Bar", Level.INFO);
+        assertDecision(DENY, chain, "com.foobar", Level.INFO);
+        assertDecision(DENY, chain, "", Level.INFO);
+
+        chain = chain(
+                new LoggerNameFilter(DENY, ""),
+                new LoggerNameFilter(ACCEPT, "com.foo"));
+        assertDecision(DENY, chain, "com.foo.Bar", Level.INFO);
+    }
+
+    @Test
+    public void neutralFallsThroughToALevelRangeFilter() {
+        FilterChain chain = chain(
+                new LoggerNameFilter(ACCEPT, "com.foo"),
+                new LoggerNameFilter(DENY, "org"),
+                new LevelRangeFilter(Level.WARN, Level.FATAL));
+
+        assertDecision(ACCEPT, chain, "com.foo.Bar", Level.DEBUG);
+        assertDecision(DENY, chain, "org.foo", Level.ERROR);
+        assertDecision(NEUTRAL, chain, "net.foo", Level.ERROR);
+        assertDecision(DENY, chain, "net.foo", Level.DEBUG);
+    }
+
+    @Test
+    public void neutralFallsThroughToARegexFilterAndOnToTheNextNameFilter() {
+        FilterChain chain = chain(
+                new LoggerNameFilter(ACCEPT, "com.foo"),
+                new RegexFilter(".*secret.*"),
+                new LoggerNameFilter(DENY, "com"));
+
+        // The filters around the regex filter must not be merged.
+        assertEquals(3, chain.size());
+        assertDecision(ACCEPT, chain, "com.foo.Bar", Level.INFO, "a secret");
+        assertDecision(DENY, chain, "org.Bar", Level.INFO, "a secret");
+        assertDecision(NEUTRAL, chain, "org.Bar", Level.INFO, "a message");
+        assertDecision(DENY, chain, "com.bar.Foo", Level.INFO, "a message");
+    }
+
+    @Test
+    public void neutralNameFiltersAreSkipped() {
+        FilterChain chain = chain(
+                new LoggerNameFilter(NEUTRAL, "com.foo"),
+                new LoggerNameFilter(DENY, "com"));
+
+        assertDecision(DENY, chain, "com.foo.Bar", Level.INFO);
+    }
+
+    @Test
+    public void removingAFilterRebuildsTheMergedTrie() {
+        LoggerNameFilter first = new LoggerNameFilter(ACCEPT, "com.foo");
+        LoggerNameFilter second = new LoggerNameFilter(DENY, "com");
+        FilterChain chain = chain(first, second).remove(first);
+
+        assertEquals(1, chain.size());
+        assertDecision(DENY, chain, "com.foo.Bar", Level.INFO);
+    }
+
+    @Test
+    public void mergedChainsDecideLikeTheFiltersOneByOne() {
+        String[] prefixes = {"", "com", "com.", "com.foo", "com.foo.", "com.foo.bar", "com.foobar",
+                "com.fo", "org", "org.foo", "c", "comfoo"};
+        Filter.Result[] results = {ACCEPT, DENY, NEUTRAL};
+        Random random = new Random(11);
+
+        for (int round = 0; round < 2000; round++) {
+            int count = 1 + random.nextInt(5);
+            FilterChain chain = FilterChain.EMPTY;
+            for (int index = 0; index < count; index++) {
+                String[] filterPrefixes = new String[1 + random.nextInt(3)];
+                for (int prefix = 0; prefix < filterPrefixes.length; prefix++) {
+                    filterPrefixes[prefix] = prefixes[random.nextInt(prefixes.length)];
+                }
+                chain = chain.add(new LoggerNameFilter(results[random.nextInt(results.length)],
+                        filterPrefixes));
+                if (random.nextInt(4) == 0) {
+                    chain = chain.add(new LevelRangeFilter(Level.INFO, Level.ERROR, NEUTRAL,
+                            results[random.nextInt(results.length)]));
+                }
+            }
+
+            for (String name : NAMES) {
+                for (Level level : new Level[]{Level.DEBUG, Level.WARN, Level.FATAL}) {
+                    LogEvent event = event(name, level, "message");
+                    try {
+                        assertEquals(describe(chain) + " " + name + " " + level,
+                                oneByOne(chain, event), chain.decide(event));
+                    } finally {
+                        event.release();
+                    }
+                }
+            }
+        }
+    }
+
+    private static FilterChain chain(Filter... filters) {
+        FilterChain chain = FilterChain.EMPTY;
+        for (Filter filter : filters) {
+            chain = chain.add(filter);
+        }
+        return chain;
+    }
+
+    /**
+     * Ask the filters of the chain in the order they were added, without
+     * merging them.
+     */
+    private static Filter.Result oneByOne(FilterChain chain, LogEvent event) {
+        for (int index = 0; index < chain.size(); index++) {
+            Filter.Result result = chain.get(index).decide(event);
+            if (result != NEUTRAL) {
+                return result;
+            }
+        }
+        return NEUTRAL;
+    }
+
+    private static void assertDecision(Filter.Result expected, FilterChain chain, String name,
+                                       Level level) {
+        assertDecision(expected, chain, name, level, "message");
+    }
+
+    private static void assertDecision(Filter.Result expected, FilterChain chain, String name,
+                                       Level level, String message) {
+        LogEvent event = event(name, level, message);
+        try {
+            assertEquals(name, expected, chain.decide(event));
+            assertEquals(name, expected, oneByOne(chain, event));
+        } finally {
+            event.release();
+        }
+    }
+
+    private static LogEvent event(String name, Level level, String message) {
+        return LogEvent.obtain("client", name, 0, level, message, null);
+    }
+
+    private static String describe(FilterChain chain) {
+        StringBuilder description = new StringBuilder();
+        for (int index = 0; index < chain.size(); index++) {
+            description.append(chain.get(index)).append(';');
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.lisicnu.log4android.format;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that escaping a message in place in the buffer gives the same text
+ * as escaping the <code>String</code> while appending it.
+ */
+public class JsonFormatterTest {
+
+    /**
+     * Text before the start index, it must not be escaped again.
+     */
+    private static final String PREFIX = "{\"message\":\"a \\\"quoted\\\" \\n";
+
+    @Test
+    public void quotesAndBackslashes() {
+        assertEscaped("say \"hello\"", "say \\\"hello\\\"");
+        assertEscaped("C:\\temp\\", "C:\\\\temp\\\\");
+        assertEscaped("\"\\\"", "\\\"\\\\\\\"");
+    }
+
+    @Test
+    public void controlCharacters() {
+        assertEscaped("a\nb\rc\td\be\ff", "a\\nb\\rc\\td\\be\\ff");
+        assertEscaped("\u0000\u0001\u001f", "\\u0000\\u0001\\u001f");
+        assertEscaped("\u2028\u2029", "\\u2028\\u2029");
+
+        for (char c = 0; c < 0x20; c++) {
+            assertSameAsAppended("x" + c + "y");
+        }
+    }
+
+    @Test
+    public void surrogatePairsAreCopied() {
+        assertEscaped("smile \uD83D\uDE00!", "smile \uD83D\uDE00!");
+        assertEscaped("\uD83D\uDE00\"\uD83D\uDE00", "\uD83D\uDE00\\\"\uD83D\uDE00");
+        // A lone surrogate is copied as well.
+        assertEscaped("\uDE00\n\uD83D", "\uDE00\\n\uD83D");
+    }
+
+    @Test
+    public void textWithoutEscapesIsUnchanged() {
+        assertEscaped("", "");
+        assertEscaped("Connection established", "Connection established");
+    }
+
+    @Test
+    public void randomTextIsEscapedLikeTheString() {
+        char[] alphabet = {'a', 'Z', ' ', '"', '\\', '\n', '\r', '\t', '\b', '\f', '\u0000',
+                '\u0007', '\u001f', '/', '\u00e9', '\u2028', '\u2029', '\uD83D', '\uDE00', '{'};
+        Random random = new Random(25);
+        for (int round = 0; round < 5000; round++) {
+            char[] text = new char[random.nextInt(40)];
+            for (int index = 0; index < text.length; index++) {
+                text[index] = alphabet[random.nextInt(alphabet.length)];
+            }
+            assertSameAsAppended(new String(text));
+        }
+    }
+
+    private static void assertEscaped(String value, String expected) {
+        assertEquals(PREFIX + expected, escapedInPlace(value));
+        assertSameAsAppended(value);
+    }
+
+    private static void assertSameAsAppended(String value) {
+        StringBuilder appended = new StringBuilder(PREFIX);
+        JsonFormatter.appendEscaped(appended, value);
+        assertEquals(appended.toString(), escapedInPlace(value));
+    }
+
+    private static String escapedInPlace(String value) {
+        StringBuilder buffer = new StringBuilder(PREFIX);
+        buffer.append(value);
+        JsonFormatter.escape(buffer, PREFIX.length());
+        return buffer.toString();
+    }
+}
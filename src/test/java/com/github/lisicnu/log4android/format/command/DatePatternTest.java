@@ -0,0 +1,72 @@
+package com.github.lisicnu.log4android.format.command;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the <code>DatePattern</code> with <code>SimpleDateFormat</code>.
+ * The names of the months and the days are upper case in a
+ * <code>DatePattern</code>, so the expected dates are compared in upper case.
+ */
+public class DatePatternTest {
+
+    private static final String[] PATTERNS = {
+            "HH:mm:ss,SSS",
+            "dd MMM yyyy HH:mm:ss,SSS",
+            "yyyy-MM-dd HH:mm:ss,SSS",
+            "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+            "yy/M/d h:m:s a S",
+            "EEE HH:mm:ss.SS",
+            "ss.SSSS 'O''CLOCK' ''",
+    };
+
+    private static final String[] TIME_ZONES = {"UTC", "Europe/Berlin", "America/New_York",
+            "Asia/Kolkata", "Pacific/Chatham"};
+
+    @Test
+    public void matchesSimpleDateFormat() {
+        Random random = new Random(42);
+        long[] times = new long[200];
+        for (int index = 0; index < times.length; index++) {
+            // From 1970 to 2100, plus some times close to each other.
+            times[index] = index % 4 == 0 && index > 0 ? times[index - 1] + random.nextInt(2000)
+                    : (long) (random.nextDouble() * 4102444800000L);
+        }
+        times[0] = 0;
+        times[1] = 1000;
+        times[2] = 1007;
+        times[3] = 1099;
+
+        for (String zone : TIME_ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zone);
+            for (String pattern : PATTERNS) {
+                DatePattern datePattern = new DatePattern(pattern, timeZone);
+                SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+                format.setTimeZone(timeZone);
+                for (long time : times) {
+                    String expected = format.format(new Date(time)).toUpperCase(Locale.US);
+                    assertEquals(pattern + " " + zone + " " + time, expected,
+                            datePattern.format(time));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void millisecondsArePaddedToTheNumberOfLetters() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        assertEquals("7", new DatePattern("S", utc).format(7));
+        assertEquals("07", new DatePattern("SS", utc).format(7));
+        assertEquals("007", new DatePattern("SSS", utc).format(7));
+        assertEquals("0007", new DatePattern("SSSS", utc).format(7));
+        assertEquals("123", new DatePattern("S", utc).format(123));
+        assertEquals("0123", new DatePattern("SSSS", utc).format(123));
+    }
+}
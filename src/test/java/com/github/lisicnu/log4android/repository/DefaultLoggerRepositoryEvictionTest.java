@@ -0,0 +1,103 @@
+package com.github.lisicnu.log4android.repository;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.Logger;
+import com.github.lisicnu.log4android.filter.LevelRangeFilter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the eviction of unused leaf loggers never detaches a logger
+ * that a caller still holds, e.g. in a <code>static final</code> field.
+ */
+public class DefaultLoggerRepositoryEvictionTest {
+
+    private static final int MAX = 16;
+
+    private final DefaultLoggerRepository repository = DefaultLoggerRepository.INSTANCE;
+
+    @Before
+    public void setUp() {
+        repository.setMaxLeafLoggers(0);
+    }
+
+    @After
+    public void tearDown() {
+        repository.setMaxLeafLoggers(0);
+    }
+
+    @Test
+    public void aHeldLoggerIsReturnedAgainAfterTheEviction() throws InterruptedException {
+        Logger held = repository.getLogger("evict.held.Logger");
+        evictAll("evict.held.cold");
+
+        assertTrue(repository.contains("evict.held.Logger"));
+        assertSame(held, repository.getLogger("evict.held.Logger"));
+    }
+
+    @Test
+    public void aLevelSetOnAHeldLoggerIsSeenByTheRepository() throws InterruptedException {
+        Logger held = repository.getLogger("evict.level.Held");
+        evictAll("evict.level.cold");
+
+        held.setLevel(Level.TRACE);
+        assertEquals(Level.TRACE_INT, repository.getLowestEnabledLevel());
+        assertEquals(Level.TRACE, repository.getEffectiveLevel("evict.level.Held.Child"));
+        assertEquals(Level.TRACE, repository.getLogger("evict.level.Held.Child")
+                .getEffectiveLevel());
+
+        held.setLevel(Level.ERROR);
+        assertEquals(Level.ERROR, repository.getLogger("evict.level.Held.Child")
+                .getEffectiveLevel());
+        assertEquals(Level.DEBUG_INT, repository.getLowestEnabledLevel());
+    }
+
+    @Test
+    public void aConfiguredLoggerIsKeptAfterTheCallerDropsIt() throws InterruptedException {
+        repository.getLogger("evict.dropped");
+        evictAll("evict.dropped.cold");
+
+        repository.getLogger("evict.dropped").setLevel(Level.WARN);
+        repository.getLogger("evict.filtered").addFilter(new LevelRangeFilter(Level.WARN,
+                Level.FATAL));
+        evictAll("evict.dropped.again");
+
+        assertEquals(Level.WARN, repository.getLogger("evict.dropped").getLevel());
+        assertEquals(Level.WARN, repository.getEffectiveLevel("evict.dropped.Child"));
+        assertEquals(1, repository.getLogger("evict.filtered").getFilterChain().size());
+    }
+
+    @Test
+    public void anUnreachableLoggerIsRemoved() throws InterruptedException {
+        repository.getLogger("evict.unreachable.Logger");
+        evictAll("evict.unreachable.cold");
+
+        assertTrue(!repository.contains("evict.unreachable.Logger"));
+        assertEquals(null, repository.getLogger("evict.unreachable.Logger").getLevel());
+    }
+
+    /**
+     * Create more loggers than the maximum and evict until every logger that
+     * nobody holds has been collected and removed.
+     */
+    private void evictAll(String prefix) throws InterruptedException {
+        for (int index = 0; index < MAX * 4; index++) {
+            repository.getLogger(prefix + ".Logger" + index);
+        }
+
+        for (int attempt = 0; attempt < 5; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+            // One eviction releases the loggers, the next removes the collected ones.
+            repository.setMaxLeafLoggers(1);
+            repository.setMaxLeafLoggers(MAX);
+        }
+        repository.setMaxLeafLoggers(0);
+    }
+}
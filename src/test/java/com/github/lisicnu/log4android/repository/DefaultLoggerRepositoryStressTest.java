@@ -0,0 +1,231 @@
+package com.github.lisicnu.log4android.repository;
+
+import com.github.lisicnu.log4android.Level;
+import com.github.lisicnu.log4android.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stresses the lock-free lookup of the <code>DefaultLoggerRepository</code>
+ * with several threads that get and create the same loggers at the same
+ * time, with and without the eviction of unused leaf loggers. The repository
+ * is a singleton, so every test uses names of its own.
+ */
+public class DefaultLoggerRepositoryStressTest {
+
+    private static final int THREADS = 8;
+
+    private static final int NAMES = 500;
+
+    private static final int ROUNDS = 20;
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private final DefaultLoggerRepository repository = DefaultLoggerRepository.INSTANCE;
+
+    private final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+
+    @Before
+    public void setUp() {
+        repository.setMaxLeafLoggers(0);
+    }
+
+    @After
+    public void tearDown() {
+        repository.setMaxLeafLoggers(0);
+    }
+
+    @Test
+    public void concurrentGetsReturnTheSameLogger() throws InterruptedException {
+        final String[] names = createNames("get", NAMES);
+        final AtomicReferenceArray<Logger> loggers = new AtomicReferenceArray<Logger>(NAMES);
+
+        runConcurrently(new Task() {
+            public void run(Random random) {
+                for (int round = 0; round < ROUNDS; round++) {
+                    int offset = random.nextInt(NAMES);
+                    for (int count = 0; count < NAMES; count++) {
+                        int index = (offset + count) % NAMES;
+                        Logger logger = repository.getLogger(names[index]);
+                        assertEquals(names[index], logger.getName());
+                        if (!loggers.compareAndSet(index, null, logger)) {
+                            assertSame(names[index], loggers.get(index), logger);
+                        }
+                    }
+                }
+            }
+        });
+
+        for (int index = 0; index < NAMES; index++) {
+            assertTrue(repository.contains(names[index]));
+            assertSame(loggers.get(index), repository.getLogger(names[index]));
+        }
+    }
+
+    @Test
+    public void levelsSetDuringCreationAreInherited() throws InterruptedException {
+        final String[] names = createNames("level", NAMES);
+
+        runConcurrently(new Task() {
+            public void run(Random random) {
+                for (int round = 0; round < ROUNDS; round++) {
+                    int index = random.nextInt(NAMES);
+                    repository.getLogger(names[index]);
+                    if (random.nextInt(16) == 0) {
+                        // Set the level on a package node that may not exist yet.
+                        String name = names[index];
+                        repository.setLevel(name.substring(0, name.lastIndexOf('.')), Level.WARN);
+                    }
+                }
+            }
+        });
+
+        for (String name : names) {
+            String packageName = name.substring(0, name.lastIndexOf('.'));
+            repository.setLevel(packageName, Level.ERROR);
+            assertEquals(name, Level.ERROR, repository.getEffectiveLevel(name));
+            assertEquals(name, Level.ERROR, repository.getLogger(name).getEffectiveLevel());
+        }
+    }
+
+    @Test
+    public void evictionKeepsConfiguredAndReturnsLiveLoggers() throws InterruptedException {
+        final int max = 64;
+        final String[] hotNames = createNames("hot", 16);
+        final String[] coldNames = createNames("cold", 4000);
+        final String configured = "stress.evict.Configured";
+        final Logger configuredLogger = repository.getLogger(configured);
+        repository.setLevel(configured, Level.WARN);
+        repository.setMaxLeafLoggers(max);
+
+        runConcurrently(new Task() {
+            public void run(Random random) {
+                for (int round = 0; round < coldNames.length; round++) {
+                    String name = random.nextBoolean() ? hotNames[random.nextInt(hotNames.length)]
+                            : coldNames[random.nextInt(coldNames.length)];
+                    Logger logger = repository.getLogger(name);
+                    assertEquals(name, logger.getName());
+                    // The logger may have been evicted and created again in between.
+                    Logger again = repository.getLogger(name);
+                    assertEquals(name, again.getName());
+                }
+            }
+        });
+
+        // A released logger is only removed once it has been collected.
+        collectAndEvict(max);
+        assertTrue("Leaf loggers: " + repository.numberOfLeafNodes(),
+                repository.numberOfLeafNodes() <= max);
+        assertTrue(repository.contains(configured));
+        assertSame(configuredLogger, repository.getLogger(configured));
+        assertEquals(Level.WARN, repository.getEffectiveLevel(configured));
+
+        for (String name : hotNames) {
+            Logger logger = repository.getLogger(name);
+            assertEquals(name, logger.getName());
+            assertSame(logger, repository.getLogger(name));
+        }
+    }
+
+    @Test
+    public void evictedLoggersAreCreatedAgainWithTheirInheritedLevel()
+            throws InterruptedException {
+        final String[] names = createNames("again", 2000);
+        repository.setLevel("stress.again", Level.ERROR);
+        repository.setMaxLeafLoggers(32);
+
+        runConcurrently(new Task() {
+            public void run(Random random) {
+                for (int round = 0; round < names.length; round++) {
+                    String name = names[random.nextInt(names.length)];
+                    Logger logger = repository.getLogger(name);
+                    assertEquals(name, Level.ERROR, logger.getEffectiveLevel());
+                }
+            }
+        });
+
+        assertEquals(Level.ERROR, repository.getEffectiveLevel("stress.again"));
+    }
+
+    /**
+     * Run the eviction until the released loggers have been collected and
+     * their nodes removed.
+     */
+    void collectAndEvict(int max) throws InterruptedException {
+        for (int attempt = 0; attempt < 20 && repository.numberOfLeafNodes() > max; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+            repository.setMaxLeafLoggers(max);
+        }
+    }
+
+    /**
+     * Create names in a few packages, so the threads also race on the
+     * package nodes.
+     */
+    static String[] createNames(String prefix, int count) {
+        String[] names = new String[count];
+        for (int index = 0; index < count; index++) {
+            names[index] = "stress." + prefix + ".p" + (index % 7) + ".q" + (index % 3) + ".Logger"
+                    + index;
+        }
+        return names;
+    }
+
+    interface Task {
+        void run(Random random);
+    }
+
+    /**
+     * Run the task on all the threads at once and fail with the first error
+     * of any thread.
+     */
+    void runConcurrently(final Task task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int index = 0; index < THREADS; index++) {
+            final long seed = index;
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        task.run(new Random(seed));
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            }, "stress-" + index);
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            assertTrue(thread.getName() + " did not finish", !thread.isAlive());
+        }
+
+        Throwable failure = failures.peek();
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new AssertionError(failure);
+        }
+    }
+}